@@ -0,0 +1,92 @@
+package guru.nicks.commons.feign.benchmark;
+
+import guru.nicks.commons.ApplicationContextHolder;
+import guru.nicks.commons.feign.log.ApplicationNameMdcWriter;
+import guru.nicks.commons.log.domain.LogContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up the application name via {@link ApplicationContextHolder#findApplicationName()} and putting it to
+ * MDC on each log line (as FeignLogger used to do) with {@link ApplicationNameMdcWriter}. The holder is backed by a
+ * real (stub) application context, so the lookup costs what it costs in applications.
+ * <p>
+ * {@code fresh} MDC: each operation runs on a new virtual thread, which starts with an empty MDC, as Feign calls made
+ * from virtual threads do (starting and joining the thread costs the same in both benchmarks, so it cancels out).
+ * {@code warm} MDC: operations run on the benchmark thread, which already has the application name in MDC, as pooled
+ * threads do. Run with {@code -Djmh.executor=VIRTUAL} (JMH 1.37+) to have benchmark threads virtual as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ApplicationNameMdcBenchmark {
+
+    private static final String APPLICATION_NAME = "benchmark-app";
+
+    @Param({"fresh", "warm"})
+    private String mdc;
+
+    private boolean freshMdc;
+    private GenericApplicationContext applicationContext;
+    private ApplicationNameMdcWriter writer;
+
+    @Setup
+    public void setUp() {
+        freshMdc = "fresh".equals(mdc);
+
+        // the holder gets the context when the context is refreshed, as in applications
+        applicationContext = new GenericApplicationContext();
+        applicationContext.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Map.of(ApplicationContextHolder.SPRING_APPLICATION_NAME_PROPERTY, APPLICATION_NAME)));
+        applicationContext.registerBean(ApplicationContextHolder.class);
+        applicationContext.refresh();
+
+        writer = new ApplicationNameMdcWriter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    /**
+     * What FeignLogger used to do: look up the application name and put it to MDC unconditionally.
+     */
+    @Benchmark
+    public void lookupAndPutEachTime() throws InterruptedException {
+        run(() -> ApplicationContextHolder.findApplicationName().ifPresent(LogContext.APP_NAME::put));
+    }
+
+    @Benchmark
+    public void cachedPutIfAbsent() throws InterruptedException {
+        run(writer::putToMdc);
+    }
+
+    private void run(Runnable operation) throws InterruptedException {
+        if (freshMdc) {
+            Thread.ofVirtual().start(operation).join();
+        } else {
+            operation.run();
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package guru.nicks.commons.feign.benchmark;
+
+import guru.nicks.commons.feign.FeignLogger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import feign.Logger;
+import feign.Request;
+import feign.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the two {@link FeignLogger} methods every Feign call goes through: {@code logRequest} and
+ * {@code logAndRebufferResponse}, with bodies of different kinds and sizes, with logging enabled (the logger category
+ * is at {@code DEBUG}) and disabled ({@code OFF}). Run with {@code -prof gc} to see allocation rates as well - this is
+ * the baseline future logger changes are held to.
+ * <p>
+ * Log events are formatted but not written anywhere, so I/O doesn't blur the numbers. The response benchmark includes
+ * building a response around a fresh input stream, as Feign clients do for each call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeignLoggerBenchmark {
+
+    private static final String CONFIG_KEY = "UserClient#findById(String)";
+    private static final String URL = "http://10.0.0.1:8080/users/1?name=x";
+
+    @Param({"empty", "json-1k", "json-100k", "binary-100k"})
+    private String body;
+
+    @Param({"enabled", "disabled"})
+    private String logging;
+
+    private FeignLogger feignLogger;
+    private byte[] bodyBytes;
+    private Map<String, Collection<String>> headers;
+    private Request request;
+    private Level originalLevel;
+
+    @Setup
+    public void setUp() {
+        bodyBytes = switch (body) {
+            case "empty" -> new byte[0];
+            case "json-1k" -> createJson(1024);
+            case "json-100k" -> createJson(100 * 1024);
+            case "binary-100k" -> createBinary(100 * 1024);
+            default -> throw new IllegalArgumentException("Unknown body: " + body);
+        };
+
+        headers = Map.of("Content-Type", List.of(body.startsWith("binary")
+                ? "application/octet-stream"
+                : "application/json"));
+        request = Request.create(Request.HttpMethod.POST, URL, headers, bodyBytes, StandardCharsets.UTF_8, null);
+        // no service discovery here: URLs are already resolved
+        feignLogger = new FeignLogger(URI::create);
+
+        var loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger rootLogger = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.detachAndStopAllAppenders();
+
+        var appender = new DiscardingAppender();
+        appender.setContext(loggerContext);
+        appender.start();
+        rootLogger.addAppender(appender);
+
+        ch.qos.logback.classic.Logger feignLoggerCategory = loggerContext.getLogger(FeignLogger.class);
+        originalLevel = feignLoggerCategory.getLevel();
+        feignLoggerCategory.setLevel("enabled".equals(logging)
+                ? Level.DEBUG
+                : Level.OFF);
+    }
+
+    @TearDown
+    public void tearDown() {
+        var loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.getLogger(FeignLogger.class).setLevel(originalLevel);
+        feignLogger.shutdown();
+    }
+
+    @Benchmark
+    public void logRequest() {
+        feignLogger.logRequest(CONFIG_KEY, Logger.Level.FULL, request);
+    }
+
+    @Benchmark
+    public Response logAndRebufferResponse() {
+        Response response = Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .headers(headers)
+                .body(new ByteArrayInputStream(bodyBytes), bodyBytes.length)
+                .build();
+
+        return feignLogger.logAndRebufferResponse(CONFIG_KEY, Logger.Level.FULL, response, 5L);
+    }
+
+    /**
+     * Creates a JSON array of objects, each containing sensitive and non-sensitive fields.
+     *
+     * @param minSize min. JSON size in bytes
+     * @return JSON bytes
+     */
+    private static byte[] createJson(int minSize) {
+        var json = new StringBuilder(minSize + 256).append('[');
+
+        for (int i = 0; json.length() < minSize; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"id\":").append(i)
+                    .append(",\"username\":\"user").append(i).append('"')
+                    .append(",\"password\":\"secret").append(i).append('"')
+                    .append(",\"roles\":[\"USER\",\"ADMIN\"]")
+                    .append(",\"profile\":{\"email\":\"user").append(i).append("@example.com\",\"token\":\"abc")
+                    .append(i).append("\"}}");
+        }
+
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] createBinary(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Formats log events (as a real appender would) and discards them.
+     */
+    private static class DiscardingAppender extends AppenderBase<ILoggingEvent> {
+
+        /**
+         * Keeps the JIT from eliminating formatting.
+         */
+        private volatile int lastMessageLength;
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            lastMessageLength = event.getFormattedMessage().length();
+        }
+
+    }
+
+}
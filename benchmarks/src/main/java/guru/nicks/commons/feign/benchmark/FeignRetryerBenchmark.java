@@ -0,0 +1,101 @@
+package guru.nicks.commons.feign.benchmark;
+
+import guru.nicks.commons.feign.FeignRetryer;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.RetryableException;
+import feign.Retryer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what retryers cost Feign calls: {@code feign.SynchronousMethodHandler} clones the retryer on every call, and
+ * calls {@link Retryer#continueOrPropagate(RetryableException)} only when an attempt fails. Run with {@code -prof gc}:
+ * cloning {@link FeignRetryer} allocates nothing (its per-call state is created on the first failure only), whereas
+ * {@link Retryer.Default} - the per-call-instance design FeignRetryer used to follow - allocates a retryer per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeignRetryerBenchmark {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private FeignRetryer feignRetryer;
+    private Retryer defaultRetryer;
+
+    @Setup
+    public void setUp() {
+        // retries are logged as errors, which is not what's measured here
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger(FeignRetryer.class).setLevel(Level.OFF);
+
+        feignRetryer = new FeignRetryer(0, 0, MAX_ATTEMPTS);
+        defaultRetryer = new Retryer.Default(0, 0, MAX_ATTEMPTS);
+    }
+
+    /**
+     * Successful call: the retryer is cloned and not used.
+     */
+    @Benchmark
+    public Retryer successfulCallFeignRetryer() {
+        return feignRetryer.clone();
+    }
+
+    /**
+     * Same as {@link #successfulCallFeignRetryer()}, for comparison.
+     */
+    @Benchmark
+    public Retryer successfulCallDefaultRetryer() {
+        return defaultRetryer.clone();
+    }
+
+    /**
+     * Call whose first attempt fails once: includes creating per-call state.
+     */
+    @Benchmark
+    public Retryer retriedCallFeignRetryer() {
+        Retryer retryer = feignRetryer.clone();
+        retryer.continueOrPropagate(createException());
+        return retryer;
+    }
+
+    /**
+     * Same as {@link #retriedCallFeignRetryer()}, for comparison.
+     */
+    @Benchmark
+    public Retryer retriedCallDefaultRetryer() {
+        Retryer retryer = defaultRetryer.clone();
+        retryer.continueOrPropagate(createException());
+        return retryer;
+    }
+
+    /**
+     * Each call has its own request template, as in Feign.
+     */
+    private static RetryableException createException() {
+        Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, new RequestTemplate());
+
+        return new RetryableException(503, "Service Unavailable", Request.HttpMethod.GET, null, (Long) null, request);
+    }
+
+}
@@ -0,0 +1,82 @@
+package guru.nicks.commons.feign.benchmark;
+
+import guru.nicks.commons.feign.log.StreamingJsonMasker;
+import guru.nicks.commons.utils.json.JsonUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares tree-based {@link JsonUtils#maskSensitiveJsonFields(byte[])} with {@link StreamingJsonMasker} on bodies of
+ * different sizes. Run with {@code -prof gc} to see allocation rates as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonMaskerBenchmark {
+
+    @Param({"1024", "102400", "10485760"})
+    private int bodySize;
+
+    private byte[] body;
+    private StreamingJsonMasker streamingJsonMasker;
+
+    @Setup
+    public void setUp() {
+        body = createJson(bodySize);
+        streamingJsonMasker = new StreamingJsonMasker(StreamingJsonMasker.DEFAULT_MASKED_FIELDS, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public String jsonUtils() {
+        return JsonUtils.maskSensitiveJsonFields(body);
+    }
+
+    @Benchmark
+    public String streaming() {
+        var output = new StringBuilder(body.length);
+        streamingJsonMasker.mask(body, body.length, output);
+        return output.toString();
+    }
+
+    /**
+     * Creates a JSON array of objects, each containing sensitive and non-sensitive fields.
+     *
+     * @param minSize min. JSON size in bytes
+     * @return JSON bytes
+     */
+    private static byte[] createJson(int minSize) {
+        var json = new StringBuilder(minSize + 256).append('[');
+
+        for (int i = 0; json.length() < minSize; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"id\":").append(i)
+                    .append(",\"username\":\"user").append(i).append('"')
+                    .append(",\"password\":\"secret").append(i).append('"')
+                    .append(",\"roles\":[\"USER\",\"ADMIN\"]")
+                    .append(",\"profile\":{\"email\":\"user").append(i).append("@example.com\",\"token\":\"abc")
+                    .append(i).append("\"}}");
+        }
+
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
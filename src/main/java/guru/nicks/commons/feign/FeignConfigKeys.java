@@ -0,0 +1,28 @@
+package guru.nicks.commons.feign;
+
+import feign.Feign;
+
+/**
+ * Helpers for Feign config keys (see {@link Feign#configKey(Class, java.lang.reflect.Method)}), such as
+ * {@code UserClient#findById(String)}.
+ */
+public final class FeignConfigKeys {
+
+    private FeignConfigKeys() {
+    }
+
+    /**
+     * Extracts client name - the simple name of the Feign client interface.
+     *
+     * @param configKey config key, such as {@code UserClient#findById(String)}
+     * @return client name, such as {@code UserClient}, or the whole config key if it has no '#'
+     */
+    public static String getClientName(String configKey) {
+        int hashIndex = configKey.indexOf('#');
+
+        return (hashIndex < 0)
+                ? configKey
+                : configKey.substring(0, hashIndex);
+    }
+
+}
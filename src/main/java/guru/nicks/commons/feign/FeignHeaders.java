@@ -0,0 +1,46 @@
+package guru.nicks.commons.feign;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Helpers for Feign request/response headers.
+ */
+public final class FeignHeaders {
+
+    private FeignHeaders() {
+    }
+
+    /**
+     * Finds the first value of the given header. Header names are case-insensitive, but not all Feign header maps are:
+     * if the exact name is not found, the map is scanned.
+     *
+     * @param headers    headers
+     * @param headerName header name
+     * @return header value, {@code null} if there's no such header
+     */
+    @Nullable
+    public static String findFirst(@Nullable Map<String, Collection<String>> headers, String headerName) {
+        if ((headers == null) || headers.isEmpty()) {
+            return null;
+        }
+
+        Collection<String> values = headers.get(headerName);
+
+        if (values == null) {
+            for (Map.Entry<String, Collection<String>> entry : headers.entrySet()) {
+                if (headerName.equalsIgnoreCase(entry.getKey())) {
+                    values = entry.getValue();
+                    break;
+                }
+            }
+        }
+
+        return ((values == null) || values.isEmpty())
+                ? null
+                : values.iterator().next();
+    }
+
+}
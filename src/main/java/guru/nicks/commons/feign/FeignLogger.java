@@ -1,25 +1,51 @@
 package guru.nicks.commons.feign;
 
-import guru.nicks.commons.ApplicationContextHolder;
-import guru.nicks.commons.log.domain.LogContext;
+import guru.nicks.commons.feign.domain.FeignLoggerProperties;
+import guru.nicks.commons.feign.log.ApplicationNameMdcWriter;
+import guru.nicks.commons.feign.log.AsyncFeignLogWriter;
+import guru.nicks.commons.feign.log.BodyBufferPool;
+import guru.nicks.commons.feign.log.BodyContentType;
+import guru.nicks.commons.feign.log.BodyFormatter;
+import guru.nicks.commons.feign.log.CachingUrlResolver;
+import guru.nicks.commons.feign.log.CapturedResponse;
+import guru.nicks.commons.feign.log.ErrorLogRateLimiter;
+import guru.nicks.commons.feign.log.FeignLogKeys;
+import guru.nicks.commons.feign.log.FeignLogSampler;
+import guru.nicks.commons.feign.log.QueryRedactor;
+import guru.nicks.commons.feign.log.StatusLogLevelRouter;
+import guru.nicks.commons.feign.log.StreamingJsonMasker;
 import guru.nicks.commons.utils.ExceptionUtils;
-import guru.nicks.commons.utils.json.JsonUtils;
 import guru.nicks.commons.utils.text.TimeUtils;
 
 import feign.Logger;
-import feign.Util;
-import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.http.HttpHeaders;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.regex.Pattern;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
 
 /**
  * Logs Feign client activity (requests and responses) in a way similar to what {@link Logger} does out-of-the box, with
@@ -27,29 +53,166 @@ import java.util.regex.Pattern;
  * <ul>
  *  <li>log level {@link Level#NONE} ({@code feign.client.config.default.loggerLevel})
  *      turns logging off; all others don't affect the logging behavior</li>
- *  <li>request and response bodies are always logged</li>
+ *  <li>request and response bodies are always logged (possibly truncated - see
+ *      {@link FeignLoggerProperties#getMaxBodyBytes()}); JSON bodies are logged with sensitive fields masked, form
+ *      bodies - with sensitive parameters masked, text bodies - as-is, binary bodies - as their content type and size
+ *      only (see {@link BodyContentType})</li>
  *  <li>request and response headers are never logged, except response's HTTP status</li>
+ *  <li>similar errors (I/O errors and responses logged as {@link org.slf4j.event.Level#ERROR}) can be
+ *      rate-limited, with the number of suppressed ones reported periodically (see
+ *      {@link FeignLoggerProperties#getErrorRateLimit()})</li>
+ *  <li>values of sensitive query and form parameters are masked (see
+ *      {@link FeignLoggerProperties#getRedactedQueryParameters()})</li>
+ *  <li>responses are logged with the level configured for their HTTP status (see
+ *      {@link FeignLoggerProperties#getStatusLogLevels()})</li>
+ *  <li>application name is put to MDC (see {@link ApplicationNameMdcWriter}); it's looked up when the logger is
+ *      created and when the application context is refreshed</li>
+ *  <li>exchange details can be logged as SLF4J key-value pairs instead of being embedded in messages (see
+ *      {@link FeignLoggerProperties#getLogFormat()})</li>
+ *  <li>bodies can be sampled (see {@link FeignLogSampler}); request/response lines are always logged</li>
+ *  <li>bodies can be rendered and logged asynchronously (see {@link FeignLoggerProperties#getAsync()}); in this case
+ *      {@link #shutdown()} must be called when the logger is not needed anymore (Spring does this for beans)</li>
  * </ul>
  *  The point of having this logger is: default {@link Logger} logs either headers only or body+headers.
  *  But request headers contain sensitive information (auth tokens) which should never be revealed.
  */
-@RequiredArgsConstructor
 @Slf4j
-public class FeignLogger extends Logger {
+public class FeignLogger extends Logger implements MeterBinder, ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * Logged instead of the body if the body has been skipped by {@link FeignLogSampler}.
+     */
+    private static final String BODY_NOT_SAMPLED_MARKER = "[body not sampled]";
+
+    /**
+     * Name of the cache of resolved URLs, as seen in metrics.
+     */
+    private static final String RESOLVED_URL_CACHE_NAME = "feign.logger.resolved-urls";
+
+    /**
+     * Initial capacity of {@link #LINE_BUILDER}: enough for a request/response line without body.
+     */
+    private static final int LINE_BUILDER_INITIAL_CAPACITY = 256;
 
-    private static final Pattern URL_PERCENT_ESCAPE_PATTERN = Pattern.compile("%(-?\\d*[a-z])");
+    /**
+     * If {@link #LINE_BUILDER} has grown beyond this (because of a large body), it's not reused - to avoid retaining
+     * large buffers in each thread forever.
+     */
+    private static final int LINE_BUILDER_MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    /**
+     * Reused for building log lines, see {@link #acquireLineBuilder()}.
+     */
+    private static final ThreadLocal<StringBuilder> LINE_BUILDER =
+            ThreadLocal.withInitial(() -> new StringBuilder(LINE_BUILDER_INITIAL_CAPACITY));
 
-    @NonNull // Lombok creates runtime nullness check for this own annotation only
     private final Function<String, URI> springCloudServiceNameToUrlResolver;
 
     /**
-     * Logs message.
+     * Memoizes {@link #springCloudServiceNameToUrlResolver} for URL bases, {@code null} if
+     * {@link FeignLoggerProperties#getResolvedUrlCacheEnabled()} is off and full URLs are resolved on each log line.
+     */
+    @Nullable
+    private final CachingUrlResolver urlResolver;
+    private final FeignLoggerProperties properties;
+    private final StatusLogLevelRouter statusLogLevelRouter;
+    private final BodyFormatter bodyFormatter;
+    private final FeignLogSampler logSampler;
+    private final ApplicationNameMdcWriter applicationNameMdcWriter = new ApplicationNameMdcWriter();
+
+    /**
+     * Whether {@link FeignLoggerProperties.LogFormat#STRUCTURED} is on.
+     */
+    private final boolean structured;
+
+    /**
+     * {@code null} if logging is synchronous.
+     */
+    @Nullable
+    private final AsyncFeignLogWriter asyncLogWriter;
+
+    /**
+     * {@code null} if response bodies are not read into pooled buffers.
+     */
+    @Nullable
+    private final BodyBufferPool bodyBufferPool;
+
+    /**
+     * {@code null} if error lines are not rate-limited.
+     */
+    @Nullable
+    private final ErrorLogRateLimiter errorLogRateLimiter;
+
+    /**
+     * Keys are Feign config keys, values are resolved {@link FeignLoggerProperties#getMaxBodyBytes()}.
+     */
+    private final Map<String, Integer> maxBodyBytesByConfigKey = new ConcurrentHashMap<>();
+
+    /**
+     * Keys are Feign config keys, values are redactors for resolved
+     * {@link FeignLoggerProperties#getRedactedQueryParameters()}.
+     */
+    private final Map<String, QueryRedactor> queryRedactorByConfigKey = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor. All settings have their default values.
+     *
+     * @param springCloudServiceNameToUrlResolver resolves service names (as in service discovery) to actual URLs
+     */
+    public FeignLogger(Function<String, URI> springCloudServiceNameToUrlResolver) {
+        this(springCloudServiceNameToUrlResolver, FeignLoggerProperties.builder().build());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param springCloudServiceNameToUrlResolver resolves service names (as in service discovery) to actual URLs
+     * @param properties                          logger settings
+     */
+    public FeignLogger(Function<String, URI> springCloudServiceNameToUrlResolver,
+            FeignLoggerProperties properties) {
+        this(springCloudServiceNameToUrlResolver, properties, FeignLogSampler.logAll());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param springCloudServiceNameToUrlResolver resolves service names (as in service discovery) to actual URLs
+     * @param properties                          logger settings
+     * @param logSampler                          decides which bodies to log (the bean created by auto-configuration
+     *                                            picks up setting changes at runtime)
+     */
+    public FeignLogger(Function<String, URI> springCloudServiceNameToUrlResolver,
+            FeignLoggerProperties properties, FeignLogSampler logSampler) {
+        this.springCloudServiceNameToUrlResolver = checkNotNull(springCloudServiceNameToUrlResolver,
+                "springCloudServiceNameToUrlResolver");
+        this.properties = checkNotNull(properties, "properties");
+        urlResolver = Boolean.TRUE.equals(properties.getResolvedUrlCacheEnabled())
+                ? new CachingUrlResolver(springCloudServiceNameToUrlResolver,
+                        Optional.ofNullable(properties.getResolvedUrlCacheTtl())
+                                .orElse(CachingUrlResolver.DEFAULT_TTL),
+                        Optional.ofNullable(properties.getResolvedUrlCacheMaxSize())
+                                .orElse(CachingUrlResolver.DEFAULT_MAX_SIZE))
+                : null;
+        this.logSampler = checkNotNull(logSampler, "logSampler");
+        structured = (properties.getLogFormat() == FeignLoggerProperties.LogFormat.STRUCTURED);
+
+        statusLogLevelRouter = new StatusLogLevelRouter(properties.getStatusLogLevels());
+        bodyFormatter = new BodyFormatter(properties.getMaxTextBodyBytes(), createJsonMasker(properties),
+                properties.getJsonMasker() == FeignLoggerProperties.JsonMasker.STREAMING);
+        asyncLogWriter = createAsyncLogWriter(properties.getAsync());
+        errorLogRateLimiter = createErrorLogRateLimiter(properties.getErrorRateLimit(),
+                this::reportSuppressedErrors);
+        bodyBufferPool = createBodyBufferPool(properties.getBufferPool(), asyncLogWriter != null);
+    }
+
+    /**
+     * Logs message. Not used by this class itself (requests, responses, and I/O errors are logged by the overridden
+     * methods, with levels routed by {@link StatusLogLevelRouter}), but still called by the parent class for lines
+     * which don't carry a status, such as retries. Such lines are always logged at INFO level.
      * <p>
-     * Format contains the URL being invoked, which may contain special characters: '%2C' is ',' etc. Without special
-     * measures, {@link String#format(Locale, String, Object...)} will complain about invalid format because of '%'. For
-     * this reason, this method - for logging purposes only - replaces all '%' with '%25' if it precedes optional digits
-     * followed by a lowercase letter (such as '%s', '%-02d') - because URL encoding (ASCII 0..127) starts with '%00'
-     * and ends with '%7F' (and always has UPPERCASE letters anyway).
+     * The message is formatted only if there are arguments. If the format is invalid (for example, because it contains
+     * a URL-encoded character such as '%2C'), the format and the arguments are logged as-is.
      *
      * @param configKey see parent method (in fact this is a message tag)
      * @param format    see {@link String#format(String, Object...)}
@@ -57,42 +220,85 @@ public class FeignLogger extends Logger {
      */
     @Override
     protected void log(String configKey, String format, Object... args) {
-        // MDC is empty is Feign was called from a thread whose MDC wasn't initialized explicitly
-        ApplicationContextHolder
-                .findApplicationName()
-                .ifPresent(LogContext.APP_NAME::put);
-
-        String formatWithoutUrlSpecials = URLDecoder.decode(
-                URL_PERCENT_ESCAPE_PATTERN.matcher(format).replaceAll("%25$1"),
-                StandardCharsets.UTF_8);
-
-        // heuristics based on the messages logAndRebufferResponse() creates
-        if (formatWithoutUrlSpecials.contains(" [5") || formatWithoutUrlSpecials.contains(" [4")) {
-            log.error("{} {}", Logger.methodTag(configKey), String.format(Locale.US, formatWithoutUrlSpecials, args));
-        } else {
-            log.info("{} {}", Logger.methodTag(configKey), String.format(Locale.US, formatWithoutUrlSpecials, args));
+        if (!log.isInfoEnabled()) {
+            return;
         }
+
+        applicationNameMdcWriter.putToMdc();
+        log.info("{} {}", Logger.methodTag(configKey), formatMessage(format, args));
     }
 
     @Override
     public void logRequest(String configKey, Level logLevel, feign.Request request) {
-        // logging turned off in Feign config
-        if (logLevel.compareTo(Level.NONE) == 0) {
+        // logging turned off in Feign config or in logger config
+        if ((logLevel.compareTo(Level.NONE) == 0) || !log.isInfoEnabled()) {
             return;
         }
 
-        String messagePrefix = String.format(Locale.US, "Sending request [%s %s]",
-                request.httpMethod().name(), springCloudServiceNameToUrlResolver.apply(request.url()));
+        applicationNameMdcWriter.putToMdc();
 
-        if ((request.body() == null) || (request.body().length == 0)) {
-            log(configKey, messagePrefix);
+        StringBuilder line = acquireLineBuilder();
+        byte[] body = request.body();
+        List<KeyValuePair> keyValues = null;
+
+        if (structured) {
+            line.append("Sending request");
+            keyValues = createRequestKeyValues(configKey, request, body);
         } else {
-            log(configKey, messagePrefix + " with body: %s", JsonUtils.maskSensitiveJsonFields(request.body()));
+            appendMethodTag(line, configKey)
+                    .append("Sending request [")
+                    .append(request.httpMethod().name())
+                    .append(' ')
+                    .append(resolveUrl(configKey, request.url()))
+                    .append(']');
         }
+
+        if ((body == null) || (body.length == 0)) {
+            write(org.slf4j.event.Level.INFO, line, keyValues, null);
+            return;
+        }
+
+        line.append(" with body: ");
+
+        if (!logSampler.shouldLogRequestBody(configKey)) {
+            line.append(BODY_NOT_SAMPLED_MARKER);
+            write(org.slf4j.event.Level.INFO, line, keyValues, null);
+            return;
+        }
+
+        BodyContentType contentType = BodyContentType.of(request.headers());
+
+        if (contentType == BodyContentType.BINARY) {
+            bodyFormatter.appendBinaryBody(line,
+                    FeignHeaders.findFirst(request.headers(), HttpHeaders.CONTENT_TYPE), body.length);
+            write(org.slf4j.event.Level.INFO, line, keyValues, null);
+            return;
+        }
+
+        int readableLength = Math.min(body.length,
+                bodyFormatter.getLoggableLength(contentType, getMaxBodyBytes(configKey)));
+        // if a truncated body can't be masked reliably, only its size is logged
+        int loggableLength = ((readableLength < body.length) && !bodyFormatter.canAppendTruncated(contentType))
+                ? 0
+                : readableLength;
+        Charset charset = Optional.ofNullable(request.charset()).orElse(StandardCharsets.UTF_8);
+        QueryRedactor queryRedactor = getQueryRedactor(configKey);
+
+        write(org.slf4j.event.Level.INFO, line, keyValues, builder -> {
+            if (loggableLength > 0) {
+                bodyFormatter.appendBody(builder, contentType, body, loggableLength, charset, queryRedactor);
+            }
+
+            if (loggableLength < body.length) {
+                appendTruncationMarker(builder, body.length);
+            }
+        });
     }
 
     /**
-     * This method's body is logically similar to that of the parent class.
+     * This method's body is logically similar to that of the parent class. If the log level the response would be
+     * logged with is disabled, the response is returned as-is, without reading (and rebuffering) its body. Binary
+     * bodies (see {@link BodyContentType#BINARY}) and bodies skipped by {@link FeignLogSampler} are not read either.
      */
     @Override
     public feign.Response logAndRebufferResponse(String configKey, Level logLevel, feign.Response response,
@@ -102,43 +308,101 @@ public class FeignLogger extends Logger {
             return response;
         }
 
-        // Feign manual claims there's no reason (such as 'Not Found' for 404) when using HTTP/2
-        String httpStatusExplanation = Optional.ofNullable(response.reason())
-                .map(reason -> " " + reason)
-                .orElse("");
+        org.slf4j.event.Level level = statusLogLevelRouter.route(response.status());
+        // logging turned off in logger config
+        if (!log.isEnabledForLevel(level)) {
+            return response;
+        }
+
+        // suppressed error responses are not read
+        if ((level == org.slf4j.event.Level.ERROR)
+                && !acquireErrorLine(configKey, response.status(), level)) {
+            return response;
+        }
+
+        BodyContentType contentType = BodyContentType.of(response.headers());
+        String contentTypeHeader = FeignHeaders.findFirst(response.headers(), HttpHeaders.CONTENT_TYPE);
+        CapturedResponse capturedResponse = null;
+        Integer totalBodyLength;
+        boolean emptyBody;
 
-        // body is null e.g. if HTTP status is 401 Unauthorized
-        byte[] bodyData;
+        boolean bodySampled = logSampler.shouldLogResponseBody(configKey, response.status());
 
-        if (response.body() == null) {
-            bodyData = new byte[0];
+        // binary or not sampled body is not read at all, the response is returned as-is
+        if ((contentType == BodyContentType.BINARY) || !bodySampled) {
+            totalBodyLength = (response.body() == null)
+                    ? Integer.valueOf(0)
+                    : response.body().length();
+            emptyBody = (totalBodyLength != null) && (totalBodyLength == 0);
         } else {
-            try {
-                bodyData = Util.toByteArray(response.body().asInputStream());
-                // once response has been read, response MUST be rebuilt for further (re)reading by caller
-                response = response.toBuilder().body(bodyData).build();
+            capturedResponse = CapturedResponse.capture(response,
+                    bodyFormatter.getLoggableLength(contentType, getMaxBodyBytes(configKey)), bodyBufferPool);
+            totalBodyLength = capturedResponse.getTotalLength();
+            emptyBody = (capturedResponse.getLoggableLength() == 0) && !capturedResponse.isTruncated();
+        }
+
+        applicationNameMdcWriter.putToMdc();
+
+        StringBuilder line = acquireLineBuilder();
+        List<KeyValuePair> keyValues = null;
+
+        if (structured) {
+            line.append("Received")
+                    .append(emptyBody ? " empty" : "")
+                    .append(" response");
+            keyValues = createResponseKeyValues(configKey, response, elapsedMillis, totalBodyLength,
+                    (capturedResponse != null) && capturedResponse.isTruncated());
+        } else {
+            appendMethodTag(line, configKey)
+                    .append("Received")
+                    .append(emptyBody ? " empty" : "")
+                    .append(" response [")
+                    .append(response.status());
+
+            // Feign manual claims there's no reason (such as 'Not Found' for 404) when using HTTP/2
+            if (response.reason() != null) {
+                line.append(' ').append(response.reason());
             }
-            // sometimes, InterruptedIOException occurs; rethrowing it would break the retries
-            catch (IOException e) {
-                bodyData = new byte[0];
+
+            line.append("] from [")
+                    .append(response.request().httpMethod().name())
+                    .append(' ')
+                    .append(resolveUrl(configKey, response.request().url()))
+                    .append("] in ")
+                    .append(TimeUtils.convertMillisToSeconds(elapsedMillis))
+                    .append('s');
+        }
+
+        if (capturedResponse == null) {
+            if (!emptyBody) {
+                line.append(": ");
+
+                if (contentType == BodyContentType.BINARY) {
+                    bodyFormatter.appendBinaryBody(line, contentTypeHeader, response.body().length());
+                } else {
+                    line.append(BODY_NOT_SAMPLED_MARKER);
+                }
             }
+
+            write(level, line, keyValues, null);
+            return response;
         }
 
-        String messagePrefix = String.format(Locale.US, "Received%s response [%s%s] from [%s %s] in %ss",
-                (bodyData.length == 0) ? " empty" : "",
-                response.status(), httpStatusExplanation,
-                response.request().httpMethod().name(),
-                springCloudServiceNameToUrlResolver.apply(response.request().url()),
-                TimeUtils.convertMillisToSeconds(elapsedMillis));
+        // if a truncated body can't be masked reliably, only its size is logged
+        int loggableLength = (capturedResponse.isTruncated() && !bodyFormatter.canAppendTruncated(contentType))
+                ? 0
+                : capturedResponse.getLoggableLength();
 
-        if (bodyData.length == 0) {
-            log(configKey, messagePrefix);
-        } else {
-            log(configKey, messagePrefix + ": %s", JsonUtils.maskSensitiveJsonFields(bodyData));
+        if (loggableLength > 0) {
+            line.append(": ");
         }
 
+        write(level, line, keyValues, createResponseBodyRenderer(contentType,
+                BodyContentType.findCharset(contentTypeHeader, StandardCharsets.UTF_8), getQueryRedactor(configKey),
+                capturedResponse, loggableLength));
+
         // original response if IOException occurred, or rebuilt response
-        return response;
+        return capturedResponse.getResponse();
     }
 
     @Override
@@ -148,9 +412,493 @@ public class FeignLogger extends Logger {
             return e;
         }
 
+        if (!acquireErrorLine(configKey, e.getClass(), org.slf4j.event.Level.ERROR)) {
+            return e;
+        }
+
         log.error("{} Error after {} ms.: {}", Logger.methodTag(configKey), elapsedMillis,
                 ExceptionUtils.formatWithCompactStackTrace(e));
         return e;
     }
 
+    /**
+     * Registers metrics of the resolved URL cache (if URL bases are cached). Called by Spring Boot for beans. Exchange
+     * latencies are recorded by {@link guru.nicks.commons.feign.log.FeignLatencyCapability}, since Feign doesn't call
+     * loggers if their log level is {@link Level#NONE}.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (urlResolver != null) {
+            urlResolver.bindMetrics(registry, RESOLVED_URL_CACHE_NAME);
+        }
+    }
+
+    /**
+     * Looks up the application name put to MDC again: it's only available after the application context has been
+     * refreshed, and the logger may have been created before that. Called by Spring for beans.
+     *
+     * @param event event
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        applicationNameMdcWriter.refresh();
+    }
+
+    /**
+     * Stops the background thread if logging is asynchronous, after it has logged what's been enqueued so far. Also
+     * stops reporting suppressed errors, if error lines are rate-limited.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (errorLogRateLimiter != null) {
+            errorLogRateLimiter.shutdown();
+        }
+
+        if (asyncLogWriter != null) {
+            asyncLogWriter.shutdown();
+        }
+    }
+
+    /**
+     * Creates {@link StreamingJsonMasker}, which masks the same fields whatever
+     * {@link FeignLoggerProperties#getJsonMasker()} is. The number of input bytes it processes is limited by
+     * {@link #getMaxBodyBytes(String)}, therefore output size is not limited.
+     *
+     * @param properties logger settings
+     * @return masker
+     */
+    private static StreamingJsonMasker createJsonMasker(FeignLoggerProperties properties) {
+        return new StreamingJsonMasker(Optional
+                .ofNullable(properties.getMaskedJsonFields())
+                .orElse(StreamingJsonMasker.DEFAULT_MASKED_FIELDS), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates {@link AsyncFeignLogWriter} if it's enabled in settings.
+     *
+     * @param asyncProperties asynchronous logging settings
+     * @return writer, {@code null} if logging is synchronous
+     */
+    @Nullable
+    private AsyncFeignLogWriter createAsyncLogWriter(@Nullable FeignLoggerProperties.Async asyncProperties) {
+        if ((asyncProperties == null) || !Boolean.TRUE.equals(asyncProperties.getEnabled())) {
+            return null;
+        }
+
+        return new AsyncFeignLogWriter(
+                Optional.ofNullable(asyncProperties.getQueueCapacity())
+                        .orElse(FeignLoggerProperties.Async.DEFAULT_QUEUE_CAPACITY),
+                Optional.ofNullable(asyncProperties.getOverflowPolicy())
+                        .orElse(AsyncFeignLogWriter.OverflowPolicy.DROP_BODY_KEEP_LINE),
+                this::emit);
+    }
+
+    /**
+     * Creates key-value pairs describing request, for {@link FeignLoggerProperties.LogFormat#STRUCTURED} mode.
+     *
+     * @param configKey Feign config key
+     * @param request   request
+     * @param body      request body
+     * @return key-value pairs
+     */
+    private List<KeyValuePair> createRequestKeyValues(String configKey, feign.Request request, @Nullable byte[] body) {
+        List<KeyValuePair> keyValues = new ArrayList<>(4);
+        keyValues.add(new KeyValuePair(FeignLogKeys.CONFIG_KEY, configKey));
+        keyValues.add(new KeyValuePair(FeignLogKeys.METHOD, request.httpMethod().name()));
+        keyValues.add(new KeyValuePair(FeignLogKeys.RESOLVED_URL, resolveUrl(configKey, request.url())));
+        keyValues.add(new KeyValuePair(FeignLogKeys.BODY_BYTES, (body == null) ? 0 : body.length));
+        return keyValues;
+    }
+
+    /**
+     * Creates key-value pairs describing response, for {@link FeignLoggerProperties.LogFormat#STRUCTURED} mode.
+     *
+     * @param configKey       Feign config key
+     * @param response        response
+     * @param elapsedMillis   milliseconds elapsed between sending request and receiving response
+     * @param totalBodyLength total body length, {@code null} if unknown
+     * @param truncated       whether the body logged is not complete
+     * @return key-value pairs
+     */
+    private List<KeyValuePair> createResponseKeyValues(String configKey, feign.Response response, long elapsedMillis,
+            @Nullable Integer totalBodyLength, boolean truncated) {
+        List<KeyValuePair> keyValues = new ArrayList<>(8);
+        keyValues.add(new KeyValuePair(FeignLogKeys.CONFIG_KEY, configKey));
+        keyValues.add(new KeyValuePair(FeignLogKeys.METHOD, response.request().httpMethod().name()));
+        keyValues.add(new KeyValuePair(FeignLogKeys.RESOLVED_URL, resolveUrl(configKey, response.request().url())));
+        keyValues.add(new KeyValuePair(FeignLogKeys.STATUS, response.status()));
+
+        if (response.reason() != null) {
+            keyValues.add(new KeyValuePair(FeignLogKeys.REASON, response.reason()));
+        }
+
+        keyValues.add(new KeyValuePair(FeignLogKeys.ELAPSED_MS, elapsedMillis));
+
+        if (totalBodyLength != null) {
+            keyValues.add(new KeyValuePair(FeignLogKeys.BODY_BYTES, totalBodyLength));
+        }
+
+        keyValues.add(new KeyValuePair(FeignLogKeys.TRUNCATED, truncated));
+        return keyValues;
+    }
+
+    /**
+     * Creates {@link BodyBufferPool} if it's enabled in settings. Pooling is incompatible with asynchronous logging:
+     * the caller may close the response body (and therefore return its buffer to the pool) before the body is logged.
+     *
+     * @param bufferPoolProperties buffer pool settings
+     * @param asyncLogging         whether logging is asynchronous
+     * @return buffer pool, {@code null} if response bodies are not read into pooled buffers
+     */
+    @Nullable
+    private static BodyBufferPool createBodyBufferPool(
+            @Nullable FeignLoggerProperties.BufferPool bufferPoolProperties, boolean asyncLogging) {
+        if ((bufferPoolProperties == null) || !Boolean.TRUE.equals(bufferPoolProperties.getEnabled())) {
+            return null;
+        }
+
+        if (asyncLogging) {
+            log.warn("Feign response body buffer pool is disabled because logging is asynchronous");
+            return null;
+        }
+
+        return new BodyBufferPool(Optional.ofNullable(bufferPoolProperties.getMaxBuffersPerSizeClass())
+                .orElse(BodyBufferPool.DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS));
+    }
+
+    /**
+     * Creates {@link ErrorLogRateLimiter} if it's enabled in settings.
+     *
+     * @param rateLimitProperties error rate limit settings
+     * @param reporter            reports errors suppressed in intervals which are over
+     * @return rate limiter, {@code null} if error lines are not rate-limited
+     */
+    @Nullable
+    private static ErrorLogRateLimiter createErrorLogRateLimiter(
+            @Nullable FeignLoggerProperties.ErrorRateLimit rateLimitProperties,
+            ErrorLogRateLimiter.SuppressedErrorsReporter reporter) {
+        if ((rateLimitProperties == null) || !Boolean.TRUE.equals(rateLimitProperties.getEnabled())) {
+            return null;
+        }
+
+        return new ErrorLogRateLimiter(
+                Optional.ofNullable(rateLimitProperties.getMaxErrors())
+                        .orElse(FeignLoggerProperties.ErrorRateLimit.DEFAULT_MAX_ERRORS),
+                Optional.ofNullable(rateLimitProperties.getInterval())
+                        .orElse(FeignLoggerProperties.ErrorRateLimit.DEFAULT_INTERVAL),
+                reporter);
+    }
+
+    /**
+     * Consults {@link #errorLogRateLimiter} and, if similar errors have been suppressed before, logs their number.
+     *
+     * @param configKey      Feign config key
+     * @param exceptionClass exception class
+     * @param level          log level for the number of suppressed errors
+     * @return {@code true} if the error should be logged
+     */
+    private boolean acquireErrorLine(String configKey, Class<? extends Throwable> exceptionClass,
+            org.slf4j.event.Level level) {
+        if (errorLogRateLimiter == null) {
+            return true;
+        }
+
+        long suppressedCount = errorLogRateLimiter.tryAcquire(configKey, exceptionClass);
+
+        if (suppressedCount > 0) {
+            writeSuppressedErrors(configKey, exceptionClass, suppressedCount, level);
+        }
+
+        return suppressedCount != ErrorLogRateLimiter.SUPPRESSED;
+    }
+
+    /**
+     * Same as {@link #acquireErrorLine(String, Class, org.slf4j.event.Level)}, for error responses. The status is
+     * boxed only if similar errors have been suppressed before.
+     *
+     * @param configKey Feign config key
+     * @param status    HTTP status
+     * @param level     log level for the number of suppressed errors
+     * @return {@code true} if the error should be logged
+     */
+    private boolean acquireErrorLine(String configKey, int status, org.slf4j.event.Level level) {
+        if (errorLogRateLimiter == null) {
+            return true;
+        }
+
+        long suppressedCount = errorLogRateLimiter.tryAcquire(configKey, status);
+
+        if (suppressedCount > 0) {
+            writeSuppressedErrors(configKey, status, suppressedCount, level);
+        }
+
+        return suppressedCount != ErrorLogRateLimiter.SUPPRESSED;
+    }
+
+    /**
+     * Called by the timer thread of {@link #errorLogRateLimiter}: logs the number of errors suppressed in an interval
+     * which is over, even if no similar error has followed.
+     *
+     * @param configKey       Feign config key
+     * @param errorKind       exception class or HTTP status
+     * @param suppressedCount number of suppressed errors
+     */
+    private void reportSuppressedErrors(String configKey, Object errorKind, long suppressedCount) {
+        applicationNameMdcWriter.putToMdc();
+        writeSuppressedErrors(configKey, errorKind, suppressedCount, org.slf4j.event.Level.ERROR);
+    }
+
+    /**
+     * Logs the number of suppressed errors.
+     *
+     * @param configKey       Feign config key
+     * @param errorKind       exception class or HTTP status
+     * @param suppressedCount number of suppressed errors
+     * @param level           log level
+     */
+    private void writeSuppressedErrors(String configKey, Object errorKind, long suppressedCount,
+            org.slf4j.event.Level level) {
+        StringBuilder line = appendMethodTag(acquireLineBuilder(), configKey)
+                .append("Suppressed ")
+                .append(suppressedCount)
+                .append(" similar error(s): ");
+
+        if (errorKind instanceof Class<?> errorClass) {
+            line.append(errorClass.getName());
+        } else {
+            line.append("response [").append(errorKind).append(']');
+        }
+
+        write(level, line, null, null);
+    }
+
+    /**
+     * Creates a renderer of the captured response body (and the truncation marker, if needed). The renderer doesn't
+     * depend on any mutable state, so it can be run on another thread.
+     *
+     * @param contentType      body content type, must not be {@link BodyContentType#BINARY}
+     * @param charset          body charset
+     * @param queryRedactor    masks sensitive form parameters
+     * @param capturedResponse captured response
+     * @param loggableLength   number of captured body bytes to log (may be less than
+     *                         {@link CapturedResponse#getLoggableLength()} if the body is not logged at all)
+     * @return body renderer, {@code null} if there's nothing to render
+     */
+    @Nullable
+    private Consumer<StringBuilder> createResponseBodyRenderer(BodyContentType contentType, Charset charset,
+            QueryRedactor queryRedactor, CapturedResponse capturedResponse, int loggableLength) {
+        if ((loggableLength == 0) && !capturedResponse.isTruncated()) {
+            return null;
+        }
+
+        return builder -> {
+            if (loggableLength > 0) {
+                bodyFormatter.appendBody(builder, contentType, capturedResponse.getBody(), loggableLength, charset,
+                        queryRedactor);
+            }
+
+            if (capturedResponse.isTruncated()) {
+                appendTruncationMarker(builder, capturedResponse.getTotalLength());
+            }
+        };
+    }
+
+    /**
+     * Resolves {@link FeignLoggerProperties#getMaxBodyBytes()} for the client the config key belongs to (once per
+     * config key).
+     *
+     * @param configKey Feign config key
+     * @return max. number of body bytes to log, {@link CapturedResponse#UNLIMITED} means no limit
+     */
+    private int getMaxBodyBytes(String configKey) {
+        return maxBodyBytesByConfigKey.computeIfAbsent(configKey, key -> Optional
+                .ofNullable(properties.getClients())
+                .map(clients -> clients.get(FeignConfigKeys.getClientName(key)))
+                .map(FeignLoggerProperties.Client::getMaxBodyBytes)
+                .or(() -> Optional.ofNullable(properties.getMaxBodyBytes()))
+                .orElse(CapturedResponse.UNLIMITED));
+    }
+
+    /**
+     * Resolves {@link FeignLoggerProperties#getRedactedQueryParameters()} for the client the config key belongs to, and
+     * creates a redactor for them (once per config key).
+     *
+     * @param configKey Feign config key
+     * @return query redactor
+     */
+    private QueryRedactor getQueryRedactor(String configKey) {
+        return queryRedactorByConfigKey.computeIfAbsent(configKey, key -> new QueryRedactor(Optional
+                .ofNullable(properties.getClients())
+                .map(clients -> clients.get(FeignConfigKeys.getClientName(key)))
+                .map(FeignLoggerProperties.Client::getRedactedQueryParameters)
+                .or(() -> Optional.ofNullable(properties.getRedactedQueryParameters()))
+                .orElse(QueryRedactor.DEFAULT_REDACTED_PARAMETERS)));
+    }
+
+    /**
+     * Appends a marker saying the body logged is not complete.
+     *
+     * @param builder     builder to append to
+     * @param totalLength total body length, {@code null} if unknown
+     */
+    private static void appendTruncationMarker(StringBuilder builder, @Nullable Integer totalLength) {
+        // no body has been appended after 'with body: '
+        builder.append((!builder.isEmpty() && (builder.charAt(builder.length() - 1) == ' '))
+                ? "(truncated, "
+                : " (truncated, ");
+
+        if (totalLength == null) {
+            builder.append("total size unknown)");
+        } else {
+            builder.append(totalLength).append(" bytes total)");
+        }
+    }
+
+    /**
+     * Renders body (if any) and logs the line - on the calling thread or, if logging is asynchronous, on the background
+     * one. In the latter case, the line is copied, so {@code line} can be reused right away.
+     *
+     * @param level        log level
+     * @param line         line without body
+     * @param keyValues    key-value pairs to attach to the log event, {@code null} if none
+     * @param bodyRenderer appends body to the line, {@code null} if there's no body
+     */
+    private void write(org.slf4j.event.Level level, StringBuilder line, @Nullable List<KeyValuePair> keyValues,
+            @Nullable Consumer<StringBuilder> bodyRenderer) {
+        if (asyncLogWriter != null) {
+            asyncLogWriter.submit(level, line.toString(), keyValues, bodyRenderer);
+            return;
+        }
+
+        if (bodyRenderer != null) {
+            bodyRenderer.accept(line);
+        }
+
+        emit(level, line.toString(), keyValues);
+    }
+
+    /**
+     * Logs message with the given level. Unlike {@link org.slf4j.Logger#atLevel(org.slf4j.event.Level)}, doesn't create
+     * an event builder.
+     *
+     * @param level     log level
+     * @param message   message (not a template: placeholders in it are not substituted)
+     * @param keyValues key-value pairs to attach to the log event, {@code null} if none (only in this case the event
+     *                  builder is not created)
+     */
+    private void emit(org.slf4j.event.Level level, String message, @Nullable List<KeyValuePair> keyValues) {
+        if (keyValues != null) {
+            LoggingEventBuilder eventBuilder = log.atLevel(level);
+
+            for (KeyValuePair keyValue : keyValues) {
+                eventBuilder = eventBuilder.addKeyValue(keyValue.key, keyValue.value);
+            }
+
+            eventBuilder.log(message);
+            return;
+        }
+
+        switch (level) {
+            case ERROR -> log.error(message);
+            case WARN -> log.warn(message);
+            case INFO -> log.info(message);
+            case DEBUG -> log.debug(message);
+            case TRACE -> log.trace(message);
+        }
+    }
+
+    /**
+     * Returns the per-thread line builder, emptied. Oversized builders are replaced, not reused.
+     *
+     * @return empty line builder
+     */
+    private static StringBuilder acquireLineBuilder() {
+        StringBuilder builder = LINE_BUILDER.get();
+
+        if (builder.capacity() > LINE_BUILDER_MAX_RETAINED_CAPACITY) {
+            builder = new StringBuilder(LINE_BUILDER_INITIAL_CAPACITY);
+            LINE_BUILDER.set(builder);
+        } else {
+            builder.setLength(0);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Appends what {@link #log(String, String, Object...)} prepends to each message: {@link Logger#methodTag(String)}
+     * and a space, without creating intermediate strings.
+     *
+     * @param builder   builder to append to
+     * @param configKey see parent method (in fact this is a message tag)
+     * @return {@code builder}
+     */
+    private static StringBuilder appendMethodTag(StringBuilder builder, String configKey) {
+        int parenthesisIndex = configKey.indexOf('(');
+
+        return builder
+                .append('[')
+                .append(configKey, 0, (parenthesisIndex < 0) ? configKey.length() : parenthesisIndex)
+                .append("]  ");
+    }
+
+    private static String formatMessage(String format, Object... args) {
+        if (args.length == 0) {
+            return format;
+        }
+
+        try {
+            return String.format(Locale.US, format, args);
+        } catch (IllegalFormatException e) {
+            return format + " " + Arrays.toString(args);
+        }
+    }
+
+    /**
+     * Resolves URL (see {@link #resolveUrlBase(String)}), masks sensitive query parameters (see {@link #getQueryRedactor(String)};
+     * parameter names are compared after decoding), and URL-decodes it (for readability) only if it contains something
+     * to decode. The result is not cached: URLs differ in path IDs and query values from call to call, and caching them
+     * would retain unmasked values.
+     *
+     * @param configKey Feign config key
+     * @param url       URL to resolve
+     * @return resolved URL
+     */
+    private String resolveUrl(String configKey, String url) {
+        String resolvedUrl = getQueryRedactor(configKey).redact(resolveUrlBase(url));
+
+        if ((resolvedUrl.indexOf('%') < 0) && (resolvedUrl.indexOf('+') < 0)) {
+            return resolvedUrl;
+        }
+
+        try {
+            return URLDecoder.decode(resolvedUrl, StandardCharsets.UTF_8);
+        }
+        // malformed escape sequence - log URL as-is
+        catch (IllegalArgumentException e) {
+            return resolvedUrl;
+        }
+    }
+
+    /**
+     * Resolves URL with {@link #urlResolver} if URL bases are cached, otherwise passes the full URL to
+     * {@link #springCloudServiceNameToUrlResolver}.
+     *
+     * @param url URL to resolve
+     * @return resolved URL (the original URL if the resolver returned {@code null})
+     */
+    private String resolveUrlBase(String url) {
+        if (urlResolver != null) {
+            return urlResolver.resolve(url);
+        }
+
+        URI resolvedUri = springCloudServiceNameToUrlResolver.apply(url);
+
+        return (resolvedUri == null)
+                ? url
+                : resolvedUri.toString();
+    }
+
 }
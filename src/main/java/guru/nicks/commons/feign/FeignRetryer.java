@@ -1,72 +1,518 @@
 package guru.nicks.commons.feign;
 
+import guru.nicks.commons.feign.retry.CallDeadlines;
+import guru.nicks.commons.feign.retry.RetryBudgetRegistry;
+import guru.nicks.commons.feign.retry.RetryPolicy;
+import guru.nicks.commons.feign.retry.RetryPolicyRegistry;
+import guru.nicks.commons.feign.retry.TargetHealth;
+import guru.nicks.commons.feign.retry.TargetHealthRegistry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
 import feign.RetryableException;
 import feign.Retryer;
+import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
 /**
- * As compared to parent class, adds logging.
+ * As compared to {@link Retryer.Default}, adds logging and randomizes sleeps between attempts (see {@link Jitter}), so
+ * that clients which failed at the same moment (for example, because the server was restarting) don't retry in
+ * synchronized waves. Optionally, retries are limited by a retry budget shared by all retryers of the process (see
+ * {@link RetryBudgetRegistry}), so that retries don't multiply load on a struggling service. In the adaptive mode (see
+ * {@link TargetHealthRegistry}), backoff also follows recent latency and error rate of the target service, and retries
+ * stop while the error rate is above a threshold.
+ * <p>
+ * Per-call state ({@link CallState}) is created on the first failure of a call (most calls never fail). It's found by
+ * the {@link RequestTemplate} of the failed request, which Feign reuses across all attempts of a call, so the same
+ * instance can serve any number of calls. Requests without a template fall back to the state kept by the instance
+ * itself, which is per call only because Feign clones the retryer for every call: {@link #clone()} returns a shallow
+ * copy (preserving the subclass) which shares settings and the template-keyed states, and starts without own state.
  */
 @Slf4j
-public class FeignRetryer extends Retryer.Default {
+public class FeignRetryer implements Retryer {
 
     /**
-     * Same variables as in parent class, where they're private.
+     * Settings used if {@link #retryPolicies} is not set.
      */
     private final long period;
     private final long maxPeriod;
     private final int maxAttempts;
-    private int currentAttempt;
+    private final Jitter jitter;
+
+    /**
+     * {@code null} if the same policy applies to all Feign methods.
+     */
+    @Nullable
+    private final RetryPolicyRegistry retryPolicies;
+
+    /**
+     * {@code null} if retries are not limited by a budget.
+     */
+    @Nullable
+    private final RetryBudgetRegistry retryBudgets;
+
+    /**
+     * {@code null} if backoff is not adaptive.
+     */
+    @Nullable
+    private final TargetHealthRegistry targetHealths;
+
+    /**
+     * Keys are request templates, compared by identity. Weak keys let state of finished calls be garbage-collected
+     * along with their templates.
+     */
+    private final Cache<RequestTemplate, CallState> callStates = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * State of the call made with this clone, for requests without a template. {@code null} until such a request
+     * fails.
+     */
+    @Nullable
+    private CallState cloneCallState;
 
     /**
-     * Calls parent constructor, at the same time copies the arguments to own variables (because they're private in
-     * parent class, and there are no getters).
+     * Constructor. Sleeps between attempts are not randomized ({@link Jitter#NONE}).
      *
      * @param period      initial interval between each attempt in milliseconds
      * @param maxPeriod   maximum interval between each attempt in milliseconds
      * @param maxAttempts maximum number of attempts
      */
     public FeignRetryer(long period, long maxPeriod, int maxAttempts) {
-        super(period, maxPeriod, maxAttempts);
+        this(period, maxPeriod, maxAttempts, Jitter.NONE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param period      initial interval between each attempt in milliseconds
+     * @param maxPeriod   maximum interval between each attempt in milliseconds
+     * @param maxAttempts maximum number of attempts
+     * @param jitter      how sleeps between attempts are randomized
+     */
+    public FeignRetryer(long period, long maxPeriod, int maxAttempts, Jitter jitter) {
+        this(period, maxPeriod, maxAttempts, jitter, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param period       initial interval between each attempt in milliseconds
+     * @param maxPeriod    maximum interval between each attempt in milliseconds
+     * @param maxAttempts  maximum number of attempts
+     * @param jitter       how sleeps between attempts are randomized
+     * @param retryBudgets retry budgets shared by all retryers, {@code null} means retries are not limited by a budget
+     */
+    public FeignRetryer(long period, long maxPeriod, int maxAttempts, Jitter jitter,
+            @Nullable RetryBudgetRegistry retryBudgets) {
+        this(period, maxPeriod, maxAttempts, jitter, null, retryBudgets, null);
+    }
+
+    /**
+     * Constructor. The retry policy is picked per Feign method, by the config key of the failed request.
+     *
+     * @param retryPolicies resolves retry policies of Feign methods
+     * @param retryBudgets  retry budgets shared by all retryers, {@code null} means retries are not limited by a budget
+     */
+    public FeignRetryer(RetryPolicyRegistry retryPolicies, @Nullable RetryBudgetRegistry retryBudgets) {
+        this(retryPolicies, retryBudgets, null);
+    }
+
+    /**
+     * Constructor. The retry policy is picked per Feign method, by the config key of the failed request.
+     *
+     * @param retryPolicies resolves retry policies of Feign methods
+     * @param retryBudgets  retry budgets shared by all retryers, {@code null} means retries are not limited by a budget
+     * @param targetHealths recent health of target services, {@code null} means backoff is not adaptive
+     */
+    public FeignRetryer(RetryPolicyRegistry retryPolicies, @Nullable RetryBudgetRegistry retryBudgets,
+            @Nullable TargetHealthRegistry targetHealths) {
+        this(checkNotNull(retryPolicies, "retryPolicies").getDefaultPolicy(), retryPolicies, retryBudgets,
+                targetHealths);
+    }
+
+    private FeignRetryer(RetryPolicy defaultPolicy, RetryPolicyRegistry retryPolicies,
+            @Nullable RetryBudgetRegistry retryBudgets, @Nullable TargetHealthRegistry targetHealths) {
+        this(defaultPolicy.getPeriod(), defaultPolicy.getMaxPeriod(), defaultPolicy.getMaxAttempts(),
+                defaultPolicy.getJitter(), retryPolicies, retryBudgets, targetHealths);
+    }
+
+    private FeignRetryer(long period, long maxPeriod, int maxAttempts, Jitter jitter,
+            @Nullable RetryPolicyRegistry retryPolicies, @Nullable RetryBudgetRegistry retryBudgets,
+            @Nullable TargetHealthRegistry targetHealths) {
         this.period = period;
         this.maxPeriod = maxPeriod;
         this.maxAttempts = maxAttempts;
-        currentAttempt = 1;
+        this.jitter = checkNotNull(jitter, "jitter");
+        this.retryPolicies = retryPolicies;
+        this.retryBudgets = retryBudgets;
+        this.targetHealths = targetHealths;
     }
 
+    /**
+     * Sleeps before the next attempt, or rethrows the exception if there are no attempts left. If the server has
+     * specified when to retry ({@link RetryableException#retryAfter()}), that moment is honored (but the sleep is
+     * still capped by {@code maxPeriod}), otherwise the sleep grows exponentially, is adapted to the health of the
+     * target service (see {@link TargetHealthRegistry}), and is then randomized according to {@link Jitter}. If the
+     * target service is failing too often, or if the call deadline (see {@link CallDeadlines}) would pass before the
+     * next attempt, or if the retry budget of the target service is exhausted, the exception is rethrown immediately.
+     *
+     * @param e exception the previous attempt has failed with
+     */
     @Override
     public void continueOrPropagate(RetryableException e) {
+        long sleepMillis = prepareNextAttempt(e);
+
+        if (sleepMillis <= 0) {
+            return;
+        }
+
+        try {
+            sleep(sleepMillis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #continueOrPropagate(RetryableException)}, but doesn't sleep: returns how long the caller should
+     * wait before the next attempt. The call is identified by the request template of the exception; attempts of
+     * requests without one are counted by this instance (see {@link #clone()}).
+     *
+     * @param e exception the previous attempt has failed with
+     * @return delay before the next attempt in milliseconds (not positive means retry immediately)
+     * @throws RetryableException {@code e} if there are no attempts left or the retry budget is exhausted
+     */
+    public long prepareNextAttempt(RetryableException e) {
+        RequestTemplate callKey = Optional.ofNullable(e.request())
+                .map(Request::requestTemplate)
+                .orElse(null);
+
+        // each attempt may be a new request object, so attempts are counted per clone, i.e. per call
+        if (callKey == null) {
+            return prepareNextAttemptOfClone(e);
+        }
+
+        CallState callState = callStates.get(callKey, key -> startCall(e));
+
+        try {
+            return prepareNextAttempt(e, callState);
+        } catch (RetryableException re) {
+            callStates.invalidate(callKey);
+            throw re;
+        }
+    }
+
+    /**
+     * Same as {@link #prepareNextAttempt(RetryableException)}, but for requests without a template: the call state is
+     * kept by this instance and discarded once there are no attempts left.
+     */
+    private long prepareNextAttemptOfClone(RetryableException e) {
+        if (cloneCallState == null) {
+            cloneCallState = startCall(e);
+        }
+
+        try {
+            return prepareNextAttempt(e, cloneCallState);
+        } catch (RetryableException re) {
+            cloneCallState = null;
+            throw re;
+        }
+    }
+
+    /**
+     * Creates state of a call which has failed for the first time, for callers which track calls on their own (see
+     * {@link guru.nicks.commons.feign.retry.AsyncFeignRetrier}) and therefore pass it to
+     * {@link #prepareNextAttempt(RetryableException, CallState)}.
+     *
+     * @param e exception the first attempt has failed with (its config key determines the retry policy)
+     * @return call state
+     */
+    public CallState startCall(RetryableException e) {
+        return (retryPolicies == null)
+                ? new CallState(period, maxPeriod, maxAttempts, jitter)
+                : new CallState(retryPolicies.getPolicy(findConfigKey(e)));
+    }
+
+    /**
+     * Same as {@link #prepareNextAttempt(RetryableException)}, but the call state is passed explicitly.
+     *
+     * @param e         exception the previous attempt has failed with
+     * @param callState state created by {@link #startCall(RetryableException)} for this call
+     * @return delay before the next attempt in milliseconds (not positive means retry immediately)
+     * @throws RetryableException {@code e} if there are no attempts left or the retry budget is exhausted
+     */
+    public long prepareNextAttempt(RetryableException e, CallState callState) {
         // only retries are processed here; on the very first call, currentAttempt is still 1
-        if (currentAttempt < maxAttempts) {
-            log.error("Sleeping {} ms. before attempt {}/{} failed because of: {}", nextMaxInterval(),
-                    currentAttempt + 1, maxAttempts, e.getMessage());
+        if (callState.currentAttempt >= callState.maxAttempts) {
+            throw e;
+        }
+
+        String url = Optional.ofNullable(e.request())
+                .map(Request::url)
+                .orElse("");
+        long sleepMillis = nextSleepMillis(e, callState, url);
+
+        Long deadline = CallDeadlines.findDeadline(e.request());
+
+        // there would be no time left for the next attempt
+        if ((deadline != null) && (deadline - System.currentTimeMillis() <= Math.max(sleepMillis, 0))) {
+            log.error("Call deadline passed or too close, not making attempt {}/{} failed because of: {}",
+                    callState.currentAttempt + 1, callState.maxAttempts, e.getMessage());
+            throw e;
+        }
+
+        if ((retryBudgets != null) && !retryBudgets.tryAcquire(url)) {
+            log.error("Retry budget exhausted, not making attempt {}/{} to [{}] failed because of: {}",
+                    callState.currentAttempt + 1, callState.maxAttempts, url, e.getMessage());
+            throw e;
         }
 
-        currentAttempt++;
-        super.continueOrPropagate(e);
+        log.error("Sleeping {} ms. before attempt {}/{} failed because of: {}", sleepMillis,
+                callState.currentAttempt + 1, callState.maxAttempts, e.getMessage());
+        callState.currentAttempt++;
+        return sleepMillis;
     }
 
     /**
-     * Without this, {@link Default#clone()} would be called, it creates yet another {@link feign.Retryer.Default}
-     * ({@code feign.SynchronousMethodHandler#invoke(Object[])} does that on every request because the number of
-     * attempts should start from 1 in every request).
+     * {@code feign.SynchronousMethodHandler#invoke(Object[])} clones the retryer on every request because the number
+     * of attempts should start from 1 in every request. Attempts are counted per request template anyway (see
+     * {@link CallState}), so the clone is a shallow copy sharing settings and template-keyed states with this instance;
+     * only attempts of requests without a template are counted by the clone itself.
+     *
+     * @return shallow copy of this instance (of the same class) without own call state
      */
-    @SuppressWarnings({"java:S2975", "java:S1182"}) // allow clone()
+    @SuppressWarnings("java:S2975") // allow clone()
     @Override
     public Retryer clone() {
-        return new FeignRetryer(period, maxPeriod, maxAttempts);
+        try {
+            var clone = (FeignRetryer) super.clone();
+            clone.cloneCallState = null;
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            // Retryer is Cloneable
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sleeps. Overridable for testing purposes.
+     *
+     * @param millis milliseconds to sleep
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    protected void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
     }
 
     /**
-     * Logic borrowed from parent class' method (the method is not accessible) and does not affect the business logic.
-     * It's used for logging purposes only.
+     * Finds config key of the Feign method which has sent the failed request.
      *
-     * @return time in milliseconds from now until the next attempt
+     * @param e exception the previous attempt has failed with
+     * @return config key, {@code null} if unknown
      */
-    @SuppressWarnings("java:S2177") // allow overridden method signature
-    private long nextMaxInterval() {
-        long interval = (long) (period * Math.pow(1.5, currentAttempt - 1.0));
-        return Math.min(interval, maxPeriod);
+    @Nullable
+    private static String findConfigKey(RetryableException e) {
+        return Optional.ofNullable(e.request())
+                .map(Request::requestTemplate)
+                .map(RequestTemplate::methodMetadata)
+                .map(MethodMetadata::configKey)
+                .orElse(null);
+    }
+
+    /**
+     * Calculates sleep before the next attempt. The sleep is adapted to the health of the target service (if
+     * {@link #targetHealths} is set) before it's randomized, so that callers of a slow service don't retry in lockstep.
+     *
+     * @param e         exception the previous attempt has failed with
+     * @param callState call state
+     * @param url       request URL
+     * @return sleep in milliseconds (not positive means retry immediately)
+     * @throws RetryableException {@code e} if the error rate of the target service is above the threshold
+     */
+    private long nextSleepMillis(RetryableException e, CallState callState, String url) {
+        Long retryAfter = e.retryAfter();
+
+        // the server knows better when to retry
+        if (retryAfter != null) {
+            return Math.min(retryAfter - System.currentTimeMillis(), callState.maxPeriod);
+        }
+
+        long exponentialSleepMillis = Math.min(
+                (long) (callState.period * Math.pow(1.5, callState.currentAttempt - 1.0)), callState.maxPeriod);
+        long period = callState.period;
+
+        if (targetHealths != null) {
+            long adaptedSleepMillis = adaptSleepMillis(e, callState, url, exponentialSleepMillis);
+
+            // for Jitter.DECORRELATED, which doesn't depend on the exponential sleep
+            if (adaptedSleepMillis != exponentialSleepMillis) {
+                period = adaptedSleepMillis;
+            }
+
+            exponentialSleepMillis = adaptedSleepMillis;
+        }
+
+        long sleepMillis = callState.jitter.apply(exponentialSleepMillis, callState.previousSleepMillis, period,
+                callState.maxPeriod);
+
+        callState.previousSleepMillis = sleepMillis;
+        return sleepMillis;
+    }
+
+    /**
+     * Adapts sleep to recent health of the target service: the sleep is at least the average latency (a slow service
+     * needs more time to recover), divided by the success rate (so it grows as the error rate climbs), and capped by
+     * {@code maxPeriod}. Services which have had too few calls to judge are not adapted to.
+     *
+     * @param e           exception the previous attempt has failed with
+     * @param callState   call state
+     * @param url         request URL
+     * @param sleepMillis non-randomized sleep calculated by the retry policy
+     * @return adapted non-randomized sleep in milliseconds
+     * @throws RetryableException {@code e} if the error rate of the target service is above the threshold
+     */
+    private long adaptSleepMillis(RetryableException e, CallState callState, String url, long sleepMillis) {
+        TargetHealth health = targetHealths.getHealth(url);
+        long calls = health.getCalls();
+
+        if (calls < targetHealths.getMinCalls()) {
+            return sleepMillis;
+        }
+
+        double errorRate = health.getErrorRate();
+        double latencyMillis = health.getLatencyMillis();
+        long errorPercent = Math.round(errorRate * 100);
+
+        if (errorRate * 100 > targetHealths.getMaxErrorPercent()) {
+            log.error("Error rate of [{}] is {}% (above {}%, latency {} ms., {} calls), not making attempt {}/{} "
+                            + "failed because of: {}", url, errorPercent, targetHealths.getMaxErrorPercent(),
+                    Math.round(latencyMillis), calls, callState.currentAttempt + 1, callState.maxAttempts,
+                    e.getMessage());
+            throw e;
+        }
+
+        // errorRate is below 1 here, unless the threshold is 100%, in which case the sleep is maxPeriod
+        long adaptedSleepMillis = Math.min(
+                (long) (Math.max(sleepMillis, latencyMillis) / (1 - errorRate)), callState.maxPeriod);
+
+        log.debug("Adapted sleep before attempt {}/{} to [{}] from {} to {} ms. before jitter (error rate {}%, "
+                        + "latency {} ms., {} calls)", callState.currentAttempt + 1, callState.maxAttempts, url,
+                sleepMillis, adaptedSleepMillis, errorPercent, Math.round(latencyMillis), calls);
+        return adaptedSleepMillis;
+    }
+
+    /**
+     * State of a call which has failed at least once: its retry policy and attempts made so far. Not thread-safe:
+     * attempts of a call are made one after another.
+     */
+    public static final class CallState {
+
+        private final long period;
+        private final long maxPeriod;
+        private final int maxAttempts;
+        private final Jitter jitter;
+
+        private int currentAttempt;
+
+        /**
+         * Previous sleep, needed for {@link Jitter#DECORRELATED}.
+         */
+        private long previousSleepMillis;
+
+        private CallState(RetryPolicy policy) {
+            this(policy.getPeriod(), policy.getMaxPeriod(), policy.getMaxAttempts(), policy.getJitter());
+        }
+
+        private CallState(long period, long maxPeriod, int maxAttempts, Jitter jitter) {
+            this.period = period;
+            this.maxPeriod = maxPeriod;
+            this.maxAttempts = maxAttempts;
+            this.jitter = jitter;
+            currentAttempt = 1;
+            previousSleepMillis = period;
+        }
+
+    }
+
+    /**
+     * How sleeps between attempts are randomized. Random numbers come from {@link ThreadLocalRandom}.
+     */
+    public enum Jitter {
+
+        /**
+         * No randomization: {@code min(period * 1.5^(attempt - 1), maxPeriod)}, as in {@link Retryer.Default}.
+         */
+        NONE {
+            @Override
+            long apply(long exponentialSleepMillis, long previousSleepMillis, long period, long maxPeriod) {
+                return exponentialSleepMillis;
+            }
+        },
+
+        /**
+         * Random value between 0 and the exponential sleep. Spreads retries best, but some of them happen almost
+         * immediately.
+         */
+        FULL {
+            @Override
+            long apply(long exponentialSleepMillis, long previousSleepMillis, long period, long maxPeriod) {
+                return randomBetween(0, exponentialSleepMillis);
+            }
+        },
+
+        /**
+         * Half of the exponential sleep plus a random value between 0 and the other half.
+         */
+        EQUAL {
+            @Override
+            long apply(long exponentialSleepMillis, long previousSleepMillis, long period, long maxPeriod) {
+                long half = exponentialSleepMillis / 2;
+                return half + randomBetween(0, exponentialSleepMillis - half);
+            }
+        },
+
+        /**
+         * Random value between {@code period} and 3 times the previous sleep, capped by {@code maxPeriod}. Doesn't
+         * depend on the attempt number, only on the previous sleep.
+         */
+        DECORRELATED {
+            @Override
+            long apply(long exponentialSleepMillis, long previousSleepMillis, long period, long maxPeriod) {
+                return Math.min(randomBetween(period, Math.max(period, previousSleepMillis * 3)), maxPeriod);
+            }
+        };
+
+        /**
+         * Calculates sleep before the next attempt.
+         *
+         * @param exponentialSleepMillis non-randomized sleep: {@code min(period * 1.5^(attempt - 1), maxPeriod)}
+         * @param previousSleepMillis    previous sleep ({@code period} before the first retry)
+         * @param period                 initial interval between attempts in milliseconds
+         * @param maxPeriod              maximum interval between attempts in milliseconds
+         * @return sleep in milliseconds
+         */
+        abstract long apply(long exponentialSleepMillis, long previousSleepMillis, long period, long maxPeriod);
+
+        /**
+         * @return random value from {@code min} to {@code max} inclusive
+         */
+        private static long randomBetween(long min, long max) {
+            return (max <= min)
+                    ? min
+                    : ThreadLocalRandom.current().nextLong(min, max + 1);
+        }
+
     }
 
 }
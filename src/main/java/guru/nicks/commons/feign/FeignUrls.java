@@ -0,0 +1,85 @@
+package guru.nicks.commons.feign;
+
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Target;
+import jakarta.annotation.Nullable;
+
+/**
+ * Helpers for Feign request URLs. They don't parse whole URLs, because they're called for every request.
+ */
+public final class FeignUrls {
+
+    private static final String SCHEME_SEPARATOR = "://";
+
+    private FeignUrls() {
+    }
+
+    /**
+     * Finds URL of the Feign target the request has been sent to, such as {@code http://user-service} (see
+     * {@link org.springframework.cloud.openfeign.FeignClient#url()} and
+     * {@link org.springframework.cloud.openfeign.FeignClient#name()}).
+     *
+     * @param request request
+     * @return target URL, {@code null} if the request has no fixed target (such as a request with a URL passed as a
+     *         method argument)
+     */
+    @Nullable
+    public static String findTargetUrl(Request request) {
+        RequestTemplate template = request.requestTemplate();
+
+        return ((template != null) && (template.feignTarget() instanceof Target.HardCodedTarget<?> target))
+                ? target.url()
+                : null;
+    }
+
+    /**
+     * Extracts host, which is the service name for service discovery URLs (such as {@code user-service} in
+     * {@code http://user-service/users/1}).
+     *
+     * @param url URL
+     * @return host, {@code null} if the URL has no scheme
+     */
+    @Nullable
+    public static String getServiceName(String url) {
+        int hostStart = findHostStart(url);
+
+        return (hostStart < 0)
+                ? null
+                : url.substring(hostStart, findHostEnd(url, hostStart));
+    }
+
+    /**
+     * Finds where host starts.
+     *
+     * @param url URL
+     * @return index of the first host character, -1 if the URL has no scheme
+     */
+    public static int findHostStart(String url) {
+        int schemeEnd = url.indexOf(SCHEME_SEPARATOR);
+
+        return (schemeEnd < 0)
+                ? -1
+                : (schemeEnd + SCHEME_SEPARATOR.length());
+    }
+
+    /**
+     * Finds where host ends.
+     *
+     * @param url       URL
+     * @param hostStart index returned by {@link #findHostStart(String)}
+     * @return index of the first character after host (URL length if there's nothing after it)
+     */
+    public static int findHostEnd(String url, int hostStart) {
+        for (int i = hostStart; i < url.length(); i++) {
+            char c = url.charAt(i);
+
+            if ((c == '/') || (c == ':') || (c == '?') || (c == '#')) {
+                return i;
+            }
+        }
+
+        return url.length();
+    }
+
+}
@@ -1,9 +1,27 @@
 package guru.nicks.commons.feign.config;
 
 import guru.nicks.commons.feign.BugfixSortPageableEncoder;
+import guru.nicks.commons.feign.FeignLogger;
 import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.domain.FeignLogSamplingProperties;
+import guru.nicks.commons.feign.domain.FeignLoggerProperties;
 import guru.nicks.commons.feign.domain.FeignRetryProperties;
+import guru.nicks.commons.feign.injector.IdempotencyKeyInjector;
+import guru.nicks.commons.feign.log.FeignLatencyCapability;
+import guru.nicks.commons.feign.log.FeignLatencyRecorder;
+import guru.nicks.commons.feign.log.FeignLogSampler;
+import guru.nicks.commons.feign.log.LoadBalancerUrlResolver;
 import guru.nicks.commons.feign.mapper.ExpirableHeaderMapper;
+import guru.nicks.commons.feign.retry.AsyncFeignRetrier;
+import guru.nicks.commons.feign.retry.CallDeadlineCapability;
+import guru.nicks.commons.feign.retry.CallDeadlineInterceptor;
+import guru.nicks.commons.feign.retry.CallDeadlines;
+import guru.nicks.commons.feign.retry.HedgingCapability;
+import guru.nicks.commons.feign.retry.RetryBudgetCapability;
+import guru.nicks.commons.feign.retry.RetryBudgetRegistry;
+import guru.nicks.commons.feign.retry.RetryPolicyRegistry;
+import guru.nicks.commons.feign.retry.TargetHealthCapability;
+import guru.nicks.commons.feign.retry.TargetHealthRegistry;
 import guru.nicks.commons.utils.text.TimeUtils;
 
 import feign.Logger;
@@ -13,19 +31,38 @@ import feign.codec.Encoder;
 import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.factory.Mappers;
 import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
 import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
 import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.cloud.openfeign.FeignClientsConfiguration;
 import org.springframework.cloud.openfeign.loadbalancer.RetryableFeignBlockingLoadBalancerClient;
 import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 
-import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Thanks to {@link Configuration @Configuration}, this config applies to <b>all</b> Feign clients implicitly.
@@ -34,7 +71,8 @@ import static guru.nicks.commons.validation.dsl.ValiDsl.check;
  * {@link feign.RequestInterceptor}.
  */
 @AutoConfiguration
-@EnableConfigurationProperties(FeignRetryProperties.class)
+@EnableConfigurationProperties({FeignRetryProperties.class, FeignLoggerProperties.class,
+        FeignLogSamplingProperties.class})
 @Slf4j
 public class CommonsFeignAutoConfiguration {
 
@@ -67,28 +105,189 @@ public class CommonsFeignAutoConfiguration {
      * Overrides {@link Retryer#NEVER_RETRY} created by {@link FeignClientsConfiguration} which disables retrying. See
      * {@link RetryableFeignBlockingLoadBalancerClient#execute(Request, Request.Options)}.
      * <p>
-     * The retry settings are read from {@code feign.retry.[initialDelayMs,maxDelayMs,maxRetryAttempts]}.
+     * The retry settings are read from {@code spring.cloud.openfeign.retry.*} (see {@link FeignRetryProperties}),
+     * per-client and per-method overrides are resolved by {@link RetryPolicyRegistry}.
      *
      * @return retryer bean
      */
     @ConditionalOnMissingBean(Retryer.class)
     @Bean
-    public Retryer feignRetryer(FeignRetryProperties feignRetryProperties) {
-        // in addition to bean-level validation
-        check(feignRetryProperties.getInitialDelayBetweenAttempts().toMillis(),
-                "initialDelayBetweenAttempts").positiveOrZero();
-        check(feignRetryProperties.getMaxDelayBetweenAttempts().toMillis(),
-                "maxDelayBetweenAttempts").positiveOrZero();
-
-        log.info("Building {} bean - Feign retry policy: {} attempts with delay changing from {} to {}",
+    public Retryer feignRetryer(FeignRetryProperties feignRetryProperties, RetryPolicyRegistry retryPolicyRegistry,
+            ObjectProvider<RetryBudgetRegistry> retryBudgetRegistry,
+            ObjectProvider<TargetHealthRegistry> targetHealthRegistry) {
+        log.info("Building {} bean - Feign retry policy: {} attempts with delay changing from {} to {}, jitter: {}, "
+                        + "adaptive: {}",
                 Retryer.class.getSimpleName(),
                 feignRetryProperties.getMaxAttempts(),
                 TimeUtils.humanFormatDuration(feignRetryProperties.getInitialDelayBetweenAttempts()),
-                TimeUtils.humanFormatDuration(feignRetryProperties.getMaxDelayBetweenAttempts()));
+                TimeUtils.humanFormatDuration(feignRetryProperties.getMaxDelayBetweenAttempts()),
+                Optional.ofNullable(feignRetryProperties.getJitter()).orElse(FeignRetryer.Jitter.NONE),
+                targetHealthRegistry.getIfAvailable() != null);
+
+        return new FeignRetryer(retryPolicyRegistry, retryBudgetRegistry.getIfAvailable(),
+                targetHealthRegistry.getIfAvailable());
+    }
+
+    /**
+     * Resolves retry policies of Feign methods out of {@code spring.cloud.openfeign.retry.*}, including per-client and
+     * per-method overrides.
+     *
+     * @return retry policy registry bean
+     */
+    @ConditionalOnMissingBean
+    @Bean
+    public RetryPolicyRegistry retryPolicyRegistry(FeignRetryProperties feignRetryProperties) {
+        return new RetryPolicyRegistry(feignRetryProperties);
+    }
+
+    /**
+     * Creates retrier for asynchronous Feign clients if {@code spring.cloud.openfeign.retry.async.enabled} is
+     * {@code true}. The retry policy is that of the {@link Retryer} bean if it's a {@link FeignRetryer}, otherwise it's
+     * built from {@code spring.cloud.openfeign.retry.*}. Clients whose calls are retried by it must be built with
+     * {@link Retryer#NEVER_RETRY}.
+     *
+     * @return async retrier bean
+     */
+    @ConditionalOnProperty(prefix = "spring.cloud.openfeign.retry.async", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean
+    @Bean
+    public AsyncFeignRetrier asyncFeignRetrier(ObjectProvider<Retryer> retryer,
+            RetryPolicyRegistry retryPolicyRegistry, ObjectProvider<RetryBudgetRegistry> retryBudgetRegistry,
+            ObjectProvider<TargetHealthRegistry> targetHealthRegistry) {
+        FeignRetryer feignRetryer = (retryer.getIfAvailable() instanceof FeignRetryer retryerBean)
+                ? retryerBean
+                : new FeignRetryer(retryPolicyRegistry, retryBudgetRegistry.getIfAvailable(),
+                        targetHealthRegistry.getIfAvailable());
+
+        return new AsyncFeignRetrier(feignRetryer);
+    }
+
+    /**
+     * Stamps call deadlines ({@code spring.cloud.openfeign.retry.deadline} and its per-client overrides) into requests
+     * if any of them is set. Spring Cloud OpenFeign applies {@link feign.RequestInterceptor} beans to all Feign
+     * clients.
+     *
+     * @return interceptor bean
+     */
+    @Conditional(OnCallDeadlineCondition.class)
+    @ConditionalOnMissingBean
+    @Bean
+    public CallDeadlineInterceptor callDeadlineInterceptor(FeignRetryProperties feignRetryProperties) {
+        Map<String, Duration> clientDeadlines = new HashMap<>();
+
+        Optional.ofNullable(feignRetryProperties.getClients())
+                .orElse(Map.of())
+                .forEach((clientName, client) -> {
+                    if (client.getDeadline() != null) {
+                        clientDeadlines.put(clientName, client.getDeadline());
+                    }
+                });
+
+        return new CallDeadlineInterceptor(feignRetryProperties.getDeadline(), clientDeadlines);
+    }
+
+    /**
+     * Enforces call deadlines on each attempt if any deadline or {@code spring.cloud.openfeign.retry.deadline-header}
+     * is set (the latter is for deadlines started by applications via {@link CallDeadlines}).
+     *
+     * @return capability bean
+     */
+    @Conditional(OnCallDeadlineOrHeaderCondition.class)
+    @ConditionalOnMissingBean
+    @Bean
+    public CallDeadlineCapability callDeadlineCapability(FeignRetryProperties feignRetryProperties) {
+        return new CallDeadlineCapability(feignRetryProperties.getDeadlineHeader());
+    }
+
+    /**
+     * Creates retry budgets shared by all Feign clients if {@code spring.cloud.openfeign.retry.budget.enabled} is
+     * {@code true}. Being a {@link io.micrometer.core.instrument.binder.MeterBinder}, it exposes budget metrics.
+     *
+     * @return retry budget registry bean
+     */
+    @ConditionalOnProperty(prefix = "spring.cloud.openfeign.retry.budget", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean
+    @Bean
+    public RetryBudgetRegistry retryBudgetRegistry(FeignRetryProperties feignRetryProperties) {
+        FeignRetryProperties.Budget budget = feignRetryProperties.getBudget();
+
+        return new RetryBudgetRegistry(
+                Optional.ofNullable(budget.getRetryPercent()).orElse(RetryBudgetRegistry.DEFAULT_RETRY_PERCENT),
+                Optional.ofNullable(budget.getMaxTokens()).orElse(RetryBudgetRegistry.DEFAULT_MAX_TOKENS));
+    }
+
+    /**
+     * Feeds retry budgets with successful requests. Spring Cloud OpenFeign applies {@link feign.Capability} beans to
+     * all Feign clients.
+     *
+     * @return capability bean
+     */
+    @ConditionalOnBean(RetryBudgetRegistry.class)
+    @ConditionalOnMissingBean
+    @Bean
+    public RetryBudgetCapability retryBudgetCapability(RetryBudgetRegistry retryBudgetRegistry) {
+        return new RetryBudgetCapability(retryBudgetRegistry);
+    }
+
+    /**
+     * Tracks recent latency and error rate of target services if {@code spring.cloud.openfeign.retry.adaptive.enabled}
+     * is {@code true}, making backoff of {@link FeignRetryer} adaptive. Being a
+     * {@link io.micrometer.core.instrument.binder.MeterBinder}, it exposes the averages as metrics.
+     *
+     * @return target health registry bean
+     */
+    @ConditionalOnProperty(prefix = "spring.cloud.openfeign.retry.adaptive", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean
+    @Bean
+    public TargetHealthRegistry targetHealthRegistry(FeignRetryProperties feignRetryProperties) {
+        FeignRetryProperties.Adaptive adaptive = feignRetryProperties.getAdaptive();
 
-        return new FeignRetryer(feignRetryProperties.getInitialDelayBetweenAttempts().abs().toMillis(),
-                feignRetryProperties.getMaxDelayBetweenAttempts().abs().toMillis(),
-                feignRetryProperties.getMaxAttempts());
+        return new TargetHealthRegistry(
+                Optional.ofNullable(adaptive.getWindow()).orElse(TargetHealthRegistry.DEFAULT_WINDOW),
+                Optional.ofNullable(adaptive.getMinCalls()).orElse(TargetHealthRegistry.DEFAULT_MIN_CALLS),
+                Optional.ofNullable(adaptive.getMaxErrorPercent())
+                        .orElse(TargetHealthRegistry.DEFAULT_MAX_ERROR_PERCENT));
+    }
+
+    /**
+     * Feeds target health registry with every attempt. Spring Cloud OpenFeign applies {@link feign.Capability} beans
+     * to all Feign clients.
+     *
+     * @return capability bean
+     */
+    @ConditionalOnBean(TargetHealthRegistry.class)
+    @ConditionalOnMissingBean
+    @Bean
+    public TargetHealthCapability targetHealthCapability(TargetHealthRegistry targetHealthRegistry) {
+        return new TargetHealthCapability(targetHealthRegistry);
+    }
+
+    /**
+     * Hedges idempotent requests if {@code spring.cloud.openfeign.retry.hedging.enabled} is {@code true}. Spring Cloud
+     * OpenFeign applies {@link feign.Capability} beans to all Feign clients.
+     *
+     * @return capability bean
+     */
+    @ConditionalOnProperty(prefix = "spring.cloud.openfeign.retry.hedging", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean
+    @Bean
+    public HedgingCapability hedgingCapability(FeignRetryProperties feignRetryProperties) {
+        return new HedgingCapability(feignRetryProperties);
+    }
+
+    /**
+     * Injects idempotency keys into POST requests if {@code spring.cloud.openfeign.retry.idempotency-key.enabled} is
+     * {@code true}. Spring Cloud OpenFeign applies {@link feign.RequestInterceptor} beans to all Feign clients.
+     *
+     * @return interceptor bean
+     */
+    @ConditionalOnProperty(prefix = "spring.cloud.openfeign.retry.idempotency-key", name = "enabled",
+            havingValue = "true")
+    @ConditionalOnMissingBean
+    @Bean
+    public IdempotencyKeyInjector idempotencyKeyInjector(FeignRetryProperties feignRetryProperties) {
+        return new IdempotencyKeyInjector(Optional.ofNullable(feignRetryProperties.getIdempotencyKey().getHeaderName())
+                .orElse(IdempotencyKeyInjector.DEFAULT_HEADER_NAME));
     }
 
     @ConditionalOnMissingBean
@@ -97,4 +296,163 @@ public class CommonsFeignAutoConfiguration {
         return Mappers.getMapper(ExpirableHeaderMapper.class);
     }
 
+    /**
+     * Creates Feign logger. Spring Cloud OpenFeign passes a {@link Logger} bean to all Feign clients. Being a bean, the
+     * logger also exposes its metrics, picks up the application name once the context has been refreshed, and is shut
+     * down along with the context.
+     * <p>
+     * Service names in logged URLs are resolved with {@link LoadBalancerClient} if there's one. Its resolver depends on
+     * scheme and authority alone, therefore resolved URL bases are cached unless
+     * {@code spring.cloud.openfeign.logger.resolved-url-cache-enabled} is {@code false}.
+     *
+     * @return logger bean
+     */
+    @ConditionalOnMissingBean(Logger.class)
+    @Bean
+    public FeignLogger feignLogger(FeignLoggerProperties feignLoggerProperties, FeignLogSampler feignLogSampler,
+            ObjectProvider<LoadBalancerClient> loadBalancerClient) {
+        LoadBalancerClient loadBalancer = loadBalancerClient.getIfAvailable();
+        Function<String, URI> urlResolver = (loadBalancer == null)
+                ? url -> null
+                : new LoadBalancerUrlResolver(loadBalancer);
+
+        FeignLoggerProperties properties = (feignLoggerProperties.getResolvedUrlCacheEnabled() == null)
+                ? feignLoggerProperties.toBuilder()
+                        .resolvedUrlCacheEnabled(loadBalancer != null)
+                        .build()
+                : feignLoggerProperties;
+
+        return new FeignLogger(urlResolver, properties, feignLogSampler);
+    }
+
+    /**
+     * Records exchange latencies of all Feign clients unless
+     * {@code spring.cloud.openfeign.logger.latency-metrics-enabled} is {@code false}. Spring Cloud OpenFeign applies
+     * {@link feign.Capability} beans to all Feign clients. Being a
+     * {@link io.micrometer.core.instrument.binder.MeterBinder}, it's bound to the meter registry by Spring Boot.
+     *
+     * @return capability bean
+     */
+    @ConditionalOnProperty(prefix = "spring.cloud.openfeign.logger", name = "latency-metrics-enabled",
+            havingValue = "true", matchIfMissing = true)
+    @ConditionalOnMissingBean
+    @Bean
+    public FeignLatencyCapability feignLatencyCapability(FeignLoggerProperties feignLoggerProperties) {
+        return new FeignLatencyCapability(new FeignLatencyRecorder(feignLoggerProperties.getLatencyPercentiles()));
+    }
+
+    /**
+     * Creates body sampler to be passed to {@link FeignLogger}.
+     *
+     * @return sampler bean
+     */
+    @ConditionalOnMissingBean
+    @Bean
+    public FeignLogSampler feignLogSampler(FeignLogSamplingProperties feignLogSamplingProperties) {
+        return new FeignLogSampler(feignLogSamplingProperties);
+    }
+
+    /**
+     * Matches if {@code spring.cloud.openfeign.retry.deadline} or any of its per-client overrides is set. Otherwise,
+     * there are no deadlines to stamp, and requests shouldn't pay for looking them up.
+     */
+    static class OnCallDeadlineCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return getMatchOutcome(Binder.get(context.getEnvironment())
+                    .bindOrCreate(FeignRetryProperties.PREFIX, FeignRetryProperties.class));
+        }
+
+        protected ConditionOutcome getMatchOutcome(FeignRetryProperties properties) {
+            boolean hasDeadline = (properties.getDeadline() != null)
+                    || Optional.ofNullable(properties.getClients())
+                    .orElse(Map.of())
+                    .values()
+                    .stream()
+                    .anyMatch(client -> client.getDeadline() != null);
+
+            return hasDeadline
+                    ? ConditionOutcome.match("call deadline is set")
+                    : ConditionOutcome.noMatch("no call deadline is set");
+        }
+
+    }
+
+    /**
+     * Same as {@link OnCallDeadlineCondition}, but also matches if {@code spring.cloud.openfeign.retry.deadline-header}
+     * is set.
+     */
+    static class OnCallDeadlineOrHeaderCondition extends OnCallDeadlineCondition {
+
+        @Override
+        protected ConditionOutcome getMatchOutcome(FeignRetryProperties properties) {
+            return (properties.getDeadlineHeader() != null)
+                    ? ConditionOutcome.match("call deadline header is set")
+                    : super.getMatchOutcome(properties);
+        }
+
+    }
+
+    /**
+     * Applies changes of {@code spring.cloud.openfeign.logger.sampling.*} at runtime. Immutable properties beans are
+     * not rebound by Spring Cloud Context, therefore the settings are rebound here explicitly.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(EnvironmentChangeEvent.class)
+    static class FeignLogSamplingRefreshConfiguration {
+
+        @Bean
+        public ApplicationListener<EnvironmentChangeEvent> feignLogSamplingRefresher(FeignLogSampler feignLogSampler,
+                Environment environment) {
+            return event -> {
+                if (event.getKeys().stream().noneMatch(key -> key.startsWith(FeignLogSamplingProperties.PREFIX))) {
+                    return;
+                }
+
+                try {
+                    feignLogSampler.update(Binder.get(environment)
+                            .bindOrCreate(FeignLogSamplingProperties.PREFIX, FeignLogSamplingProperties.class));
+                    log.info("Feign log sampling settings updated");
+                }
+                // keep old settings
+                catch (RuntimeException e) {
+                    log.error("Failed to update Feign log sampling settings: {}", e.getMessage(), e);
+                }
+            };
+        }
+
+    }
+
+    /**
+     * Applies changes of {@code spring.cloud.openfeign.retry.*} to retry policies at runtime (to calls started
+     * afterwards). Immutable properties beans are not rebound by Spring Cloud Context, therefore the settings are
+     * rebound here explicitly.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(EnvironmentChangeEvent.class)
+    static class FeignRetryPolicyRefreshConfiguration {
+
+        @Bean
+        public ApplicationListener<EnvironmentChangeEvent> feignRetryPolicyRefresher(
+                RetryPolicyRegistry retryPolicyRegistry, Environment environment) {
+            return event -> {
+                if (event.getKeys().stream().noneMatch(key -> key.startsWith(FeignRetryProperties.PREFIX))) {
+                    return;
+                }
+
+                try {
+                    retryPolicyRegistry.update(Binder.get(environment)
+                            .bindOrCreate(FeignRetryProperties.PREFIX, FeignRetryProperties.class));
+                    log.info("Feign retry policies updated");
+                }
+                // keep old settings
+                catch (RuntimeException e) {
+                    log.error("Failed to update Feign retry policies: {}", e.getMessage(), e);
+                }
+            };
+        }
+
+    }
+
 }
@@ -2,17 +2,22 @@ package guru.nicks.commons.feign.decoder;
 
 import guru.nicks.commons.exception.BusinessException;
 import guru.nicks.commons.exception.RootHttpStatus;
+import guru.nicks.commons.feign.FeignHeaders;
+import guru.nicks.commons.feign.injector.IdempotencyKeyInjector;
 import guru.nicks.commons.utils.HttpRequestUtils;
 
+import feign.FeignException;
 import feign.Request;
 import feign.Response;
 import feign.RetryableException;
+import feign.Util;
 import feign.codec.ErrorDecoder;
+import jakarta.annotation.Nullable;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.function.BiFunction;
 
 /**
@@ -21,26 +26,62 @@ import java.util.function.BiFunction;
  * <p>
  * {@link Throwable#getCause()} holds the original cause (usually a {@link feign.FeignException}).
  * <p>
- * {@link RetryableException} should make Feign retry the request.
+ * {@link RetryableException} should make Feign retry the request. If the response has a valid {@code Retry-After}
+ * header (parsed by {@link RetryAfterParser}), it's passed to {@link feign.Retryer} via
+ * {@link RetryableException#retryAfter()}.
  * <p>
  * NOTE: Feign retries on {@link IOException} automatically because this means no connection, invalid hostname,
  * etc.
  */
-@RequiredArgsConstructor
 public class FeignErrorDecoder implements ErrorDecoder {
 
-    @NonNull // Lombok creates runtime nullness check for this own annotation only
     private final BiFunction<Integer, Throwable, BusinessException> httpStatusCodeMapper;
 
-    private final ErrorDecoder defaultErrorDecoder = new Default();
+    /**
+     * If not {@code null}, POST requests having this header (see {@link IdempotencyKeyInjector}) are retryable.
+     */
+    @Nullable
+    private final String idempotencyKeyHeader;
+
+    /**
+     * Constructor. POST requests are never retried.
+     *
+     * @param httpStatusCodeMapper maps HTTP statuses (and original exceptions) to business exceptions
+     */
+    public FeignErrorDecoder(@NonNull BiFunction<Integer, Throwable, BusinessException> httpStatusCodeMapper) {
+        this(httpStatusCodeMapper, null);
+    }
 
+    /**
+     * Constructor.
+     *
+     * @param httpStatusCodeMapper maps HTTP statuses (and original exceptions) to business exceptions
+     * @param idempotencyKeyHeader if not {@code null}, POST requests having this header (such as
+     *                             {@value IdempotencyKeyInjector#DEFAULT_HEADER_NAME}) are retried like requests with
+     *                             other HTTP methods: the server is expected to process each key only once
+     */
+    // Lombok creates runtime nullness check for its own annotation only
+    public FeignErrorDecoder(@NonNull BiFunction<Integer, Throwable, BusinessException> httpStatusCodeMapper,
+            @Nullable String idempotencyKeyHeader) {
+        this.httpStatusCodeMapper = httpStatusCodeMapper;
+        this.idempotencyKeyHeader = idempotencyKeyHeader;
+    }
+
+    /**
+     * Unlike {@link ErrorDecoder.Default}, parses {@code Retry-After} without regular expressions and
+     * {@link java.time.format.DateTimeFormatter} (in most cases), but makes the same decision: a response with a valid
+     * {@code Retry-After} is retryable regardless of its status and HTTP method.
+     */
     @Override
     public Exception decode(String methodKey, Response response) {
-        Exception cause = defaultErrorDecoder.decode(methodKey, response);
+        FeignException cause = FeignException.errorStatus(methodKey, response);
+        Long retryAfter = RetryAfterParser.parse(FeignHeaders.findFirst(response.headers(), Util.RETRY_AFTER),
+                System.currentTimeMillis());
 
-        // propagate retryable stuff as-is to make retries work
-        if (cause instanceof RetryableException) {
-            return cause;
+        // the remote party has said when to retry - propagate as-is to make retries work
+        if (retryAfter != null) {
+            return new RetryableException(response.status(), cause.getMessage(), response.request().httpMethod(),
+                    cause, retryAfter, response.request());
         }
 
         // if RetryableException is returned, Feign auto-retries the request
@@ -75,15 +116,18 @@ public class FeignErrorDecoder implements ErrorDecoder {
 
         BusinessException e = httpStatusCodeMapper.apply(httpStatusCode, cause);
 
+        // no 'retry after': the retryer decides when to retry (the cast avoids ambiguity with the deprecated
+        // constructor accepting Date)
         return requestIsRetryable(response)
                 ? new RetryableException(response.status(), cause.getMessage(), response.request().httpMethod(),
-                e, 0L, response.request())
+                e, (Long) null, response.request())
                 : e;
     }
 
     /**
      * Only 5xx statuses are retryable because things like '400 Bad Request' are client side errors. Don't retry POST
-     * because it's not idempotent: may create multiple entities; all other HTTP methods are retryable.
+     * because it's not idempotent: may create multiple entities (unless it has an idempotency key and
+     * {@link #idempotencyKeyHeader} is set); all other HTTP methods are retryable.
      *
      * @param response response from remote party
      */
@@ -94,7 +138,30 @@ public class FeignErrorDecoder implements ErrorDecoder {
 
         return (httpStatus != null)
                 && httpStatus.is5xxServerError()
-                && (Request.HttpMethod.POST != response.request().httpMethod());
+                && (isIdempotent(response.request()) || hasIdempotencyKey(response.request()));
+    }
+
+    /**
+     * Checks whether sending the request more than once is safe: POST is not idempotent (may create multiple
+     * entities), all other HTTP methods are.
+     *
+     * @param request request
+     * @return {@code true} if the request may be sent more than once
+     */
+    public static boolean isIdempotent(Request request) {
+        return Request.HttpMethod.POST != request.httpMethod();
+    }
+
+    /**
+     * Header names in {@link Request#headers()} are case-insensitive.
+     */
+    private boolean hasIdempotencyKey(Request request) {
+        if (idempotencyKeyHeader == null) {
+            return false;
+        }
+
+        Collection<String> values = request.headers().get(idempotencyKeyHeader);
+        return (values != null) && !values.isEmpty();
     }
 
 }
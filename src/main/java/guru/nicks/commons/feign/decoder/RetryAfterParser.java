@@ -0,0 +1,175 @@
+package guru.nicks.commons.feign.decoder;
+
+import jakarta.annotation.Nullable;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses {@code Retry-After} header values: either delay in seconds ({@code 120}) or HTTP-date. The preferred
+ * HTTP-date format, IMF-fixdate ({@code Sun, 06 Nov 1994 08:49:37 GMT}), is parsed by character positions, without
+ * regular expressions or {@link DateTimeFormatter}; other RFC 1123 dates fall back to
+ * {@link DateTimeFormatter#RFC_1123_DATE_TIME}.
+ */
+public final class RetryAfterParser {
+
+    private static final String IMF_FIXDATE_SAMPLE = "Sun, 06 Nov 1994 08:49:37 GMT";
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    /**
+     * Longer delays in seconds are ignored (this is more than 300 years, and longer values could overflow).
+     */
+    private static final int MAX_DELAY_SECONDS_DIGITS = 10;
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private RetryAfterParser() {
+    }
+
+    /**
+     * Parses {@code Retry-After} header value.
+     *
+     * @param value     header value
+     * @param nowMillis current time (epoch milliseconds) to add delay in seconds to
+     * @return when to retry (epoch milliseconds), {@code null} if the value is missing or invalid
+     */
+    @Nullable
+    public static Long parse(@Nullable String value, long nowMillis) {
+        if (value == null) {
+            return null;
+        }
+
+        String trimmedValue = value.trim();
+
+        if (trimmedValue.isEmpty()) {
+            return null;
+        }
+
+        if (Character.isDigit(trimmedValue.charAt(0))) {
+            return parseDelaySeconds(trimmedValue, nowMillis);
+        }
+
+        Long epochMillis = parseImfFixdate(trimmedValue);
+
+        return (epochMillis == null)
+                ? parseRfc1123(trimmedValue)
+                : epochMillis;
+    }
+
+    @Nullable
+    private static Long parseDelaySeconds(String value, long nowMillis) {
+        if (value.length() > MAX_DELAY_SECONDS_DIGITS) {
+            return null;
+        }
+
+        long seconds = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            int digit = value.charAt(i) - '0';
+
+            if ((digit < 0) || (digit > 9)) {
+                return null;
+            }
+
+            seconds = seconds * 10 + digit;
+        }
+
+        return nowMillis + seconds * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Parses IMF-fixdate by character positions.
+     *
+     * @param value value to parse
+     * @return epoch milliseconds, {@code null} if the value is not an IMF-fixdate
+     */
+    @Nullable
+    private static Long parseImfFixdate(String value) {
+        if ((value.length() != IMF_FIXDATE_SAMPLE.length())
+                || (value.charAt(3) != ',')
+                || (value.charAt(4) != ' ')
+                || (value.charAt(7) != ' ')
+                || (value.charAt(11) != ' ')
+                || (value.charAt(16) != ' ')
+                || (value.charAt(19) != ':')
+                || (value.charAt(22) != ':')
+                || !value.endsWith(" GMT")) {
+            return null;
+        }
+
+        int day = parseDigits(value, 5, 7);
+        int month = parseMonth(value, 8);
+        int year = parseDigits(value, 12, 16);
+        int hour = parseDigits(value, 17, 19);
+        int minute = parseDigits(value, 20, 22);
+        int second = parseDigits(value, 23, 25);
+
+        if ((day < 0) || (month < 0) || (year < 0) || (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59)
+                || (second < 0) || (second > 60)) {
+            return null;
+        }
+
+        try {
+            long epochDay = LocalDate.of(year, month, day).toEpochDay();
+            return (epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second) * MILLIS_PER_SECOND;
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses decimal digits.
+     *
+     * @param value string
+     * @param start first digit index
+     * @param end   index after the last digit
+     * @return number, -1 if there are non-digits
+     */
+    private static int parseDigits(String value, int start, int end) {
+        int number = 0;
+
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+
+            if ((digit < 0) || (digit > 9)) {
+                return -1;
+            }
+
+            number = number * 10 + digit;
+        }
+
+        return number;
+    }
+
+    /**
+     * Parses 3-letter month name.
+     *
+     * @param value string
+     * @param start month name index
+     * @return month number (1..12), -1 if there's no valid month name
+     */
+    private static int parseMonth(String value, int start) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (value.startsWith(MONTHS[i], start)) {
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    @Nullable
+    private static Long parseRfc1123(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package guru.nicks.commons.feign.domain;
+
+import guru.nicks.commons.feign.FeignLogger;
+import guru.nicks.commons.feign.log.FeignLogSampler;
+
+import jakarta.validation.constraints.Min;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.Map;
+
+/**
+ * Sampling of bodies logged by {@link FeignLogger} (see {@link FeignLogSampler}). Request/response lines are always
+ * logged; bodies of responses with non-2xx statuses are always logged too. All settings are optional and can be
+ * changed at runtime (if Spring Cloud Context publishes environment change events).
+ */
+@ConfigurationProperties(prefix = FeignLogSamplingProperties.PREFIX)
+@Validated
+// immutability
+@Value
+@NonFinal // CGLIB creates a subclass to bind property values (nested classes don't need this)
+@Builder(toBuilder = true)
+public class FeignLogSamplingProperties {
+
+    public static final String PREFIX = "spring.cloud.openfeign.logger.sampling";
+
+    /**
+     * Log one in this many bodies. By default, it's 1, which means all bodies are logged.
+     */
+    @Min(1)
+    Integer rate;
+
+    /**
+     * Overrides {@link #getRate()}. Keys are client names (such as {@code UserClient}) or config keys (such as
+     * {@code '[UserClient#findById(String)]'} - brackets are needed because of special characters); config keys take
+     * precedence over client names.
+     */
+    Map<String, @Min(1) Integer> rates;
+
+}
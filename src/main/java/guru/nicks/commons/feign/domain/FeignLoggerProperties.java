@@ -0,0 +1,311 @@
+package guru.nicks.commons.feign.domain;
+
+import guru.nicks.commons.feign.FeignLogger;
+import guru.nicks.commons.feign.log.AsyncFeignLogWriter;
+import guru.nicks.commons.feign.log.BodyBufferPool;
+import guru.nicks.commons.feign.log.CachingUrlResolver;
+import guru.nicks.commons.feign.log.FeignLatencyRecorder;
+import guru.nicks.commons.feign.log.FeignLogKeys;
+import guru.nicks.commons.feign.log.QueryRedactor;
+import guru.nicks.commons.feign.log.StreamingJsonMasker;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+import org.slf4j.event.Level;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link FeignLogger} settings. All of them are optional: if a setting is missing, its default (documented for each
+ * setting) applies.
+ */
+@ConfigurationProperties(prefix = "spring.cloud.openfeign.logger")
+@Validated
+// immutability
+@Value
+@NonFinal // CGLIB creates a subclass to bind property values (nested classes don't need this)
+@Builder(toBuilder = true)
+public class FeignLoggerProperties {
+
+    /**
+     * Log levels of received responses, by HTTP status. Keys are exact statuses (such as '404') or status classes
+     * (such as '4xx'); exact statuses take precedence over status classes.
+     * <p>
+     * By default, 4xx and 5xx statuses are logged as {@link Level#ERROR}, all others - as {@link Level#INFO}.
+     */
+    Map<String, Level> statusLogLevels;
+
+    /**
+     * How requests and responses are logged. By default, it's {@link LogFormat#TEXT}.
+     */
+    LogFormat logFormat;
+
+    /**
+     * Max. number of body bytes to log. Longer response bodies are not buffered fully: only this many bytes are read
+     * (and logged, with a 'truncated' marker), and the caller gets a stream replaying them and then continuing with the
+     * rest of the body.
+     * <p>
+     * By default, bodies are logged (and therefore buffered) fully.
+     */
+    @Min(0)
+    Integer maxBodyBytes;
+
+    /**
+     * Max. number of textual (but not JSON) body bytes to log, such as {@code text/plain} or {@code application/xml}.
+     * Applies in addition to {@link #getMaxBodyBytes()}.
+     * <p>
+     * By default, only {@link #getMaxBodyBytes()} applies. Set this to cap verbose text bodies (such as XML or HTML
+     * error pages) without truncating JSON ones.
+     */
+    @Min(0)
+    Integer maxTextBodyBytes;
+
+    /**
+     * How JSON bodies are logged. By default, it's {@link JsonMasker#JSON_UTILS}.
+     */
+    JsonMasker jsonMasker;
+
+    /**
+     * Names of JSON fields (case-insensitive) whose values are masked, whatever {@link #getJsonMasker()} is.
+     * <p>
+     * By default, it's {@link StreamingJsonMasker#DEFAULT_MASKED_FIELDS}.
+     */
+    Set<String> maskedJsonFields;
+
+    /**
+     * Names of query parameters (case-insensitive) whose values are masked in logged URLs and
+     * {@code application/x-www-form-urlencoded} bodies.
+     * <p>
+     * By default, it's {@link QueryRedactor#DEFAULT_REDACTED_PARAMETERS}.
+     */
+    Set<String> redactedQueryParameters;
+
+    /**
+     * Whether URL bases resolved for logging are cached. If so, only the base of a URL (scheme and authority, such as
+     * {@code http://user-service}) is passed to the resolver, and the rest of the URL is appended to the resolved base
+     * as-is (see {@link CachingUrlResolver}). Enable this only if the resolver depends on scheme and authority alone -
+     * which is not the case, for example, for resolvers routing by path prefix.
+     * <p>
+     * By default, it's {@code false}: the full URL is passed to the resolver on each log line. The logger created by
+     * auto-configuration resolves URLs with {@link guru.nicks.commons.feign.log.LoadBalancerUrlResolver}, which
+     * depends on scheme and authority alone, therefore it's {@code true} for that logger.
+     */
+    Boolean resolvedUrlCacheEnabled;
+
+    /**
+     * How long URL bases resolved for logging (such as {@code http://user-service} resolved to
+     * {@code http://10.0.0.1:8080}) are cached, if {@link #getResolvedUrlCacheEnabled()} is on. By default, it's 30
+     * seconds ({@link CachingUrlResolver#DEFAULT_TTL}).
+     */
+    Duration resolvedUrlCacheTtl;
+
+    /**
+     * Max. number of URL bases resolved for logging to cache. By default, it's
+     * {@value CachingUrlResolver#DEFAULT_MAX_SIZE}.
+     */
+    @Min(0)
+    Long resolvedUrlCacheMaxSize;
+
+    /**
+     * Whether exchange latencies are recorded as Micrometer timers (see {@link FeignLatencyRecorder}), regardless of
+     * log levels. If so, auto-configuration creates {@link guru.nicks.commons.feign.log.FeignLatencyCapability}, which
+     * Spring Cloud OpenFeign applies to all Feign clients. By default, it's {@code true}.
+     */
+    Boolean latencyMetricsEnabled;
+
+    /**
+     * Percentiles (such as {@code 0.5} and {@code 0.99}) computed in the application and published along with the
+     * percentile histogram of each latency timer. Unlike the histogram, they can't be aggregated across instances, and
+     * they cost a sliding window per timer and extra work for each recorded exchange. By default, none are published.
+     */
+    List<@DecimalMin("0.0") @DecimalMax("1.0") Double> latencyPercentiles;
+
+    /**
+     * Pooling of response body buffers. By default, it's off.
+     */
+    @Valid
+    BufferPool bufferPool;
+
+    /**
+     * Rate limiting of similar error lines. By default, it's off.
+     */
+    @Valid
+    ErrorRateLimit errorRateLimit;
+
+    /**
+     * Asynchronous logging settings. By default, logging is synchronous.
+     */
+    @Valid
+    Async async;
+
+    /**
+     * Per-client overrides. Keys are client names - simple names of Feign client interfaces (such as
+     * {@code UserClient}).
+     */
+    Map<String, @Valid Client> clients;
+
+    /**
+     * Log line formats.
+     */
+    public enum LogFormat {
+
+        /**
+         * Human-readable lines, such as {@code [UserClient#findById]  Received response [200 OK] from [GET
+         * http://10.0.0.1:8080/users/1] in 0.1s: {...}}.
+         */
+        TEXT,
+
+        /**
+         * Short messages (such as {@code Received response: {...}}), with exchange details (method, URL, status, etc.)
+         * attached to log events as SLF4J key-value pairs (see {@link FeignLogKeys}), so log pipelines don't have to
+         * parse them out of messages.
+         */
+        STRUCTURED
+
+    }
+
+    /**
+     * How JSON bodies are logged. Either way, they're masked by {@link StreamingJsonMasker} in a single pass, never
+     * holding the whole body in memory: output is compact (whitespace is not preserved), and only
+     * {@link FeignLoggerProperties#getMaskedJsonFields()} are masked.
+     */
+    public enum JsonMasker {
+
+        /**
+         * Only complete bodies are logged: bodies truncated because of {@link FeignLoggerProperties#getMaxBodyBytes()}
+         * are invalid JSON, so only their size is logged. The name is kept for compatibility: masking used to be done
+         * by {@code JsonUtils}, whose field list differed from {@link FeignLoggerProperties#getMaskedJsonFields()}.
+         */
+        JSON_UTILS,
+
+        /**
+         * Truncated bodies are logged too, masked up to the point where they break.
+         */
+        STREAMING
+
+    }
+
+    /**
+     * Asynchronous logging settings: bodies are rendered (masked, decoded) and log lines are emitted by a background
+     * thread (see {@link AsyncFeignLogWriter}), outside of the request latency measured by Feign.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Async {
+
+        /**
+         * Default for {@link #getQueueCapacity()}.
+         */
+        public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+        /**
+         * Whether logging is asynchronous. By default, it's {@code false}.
+         */
+        Boolean enabled;
+
+        /**
+         * Max. number of log lines waiting to be emitted. By default, it's {@value #DEFAULT_QUEUE_CAPACITY}.
+         */
+        @Min(1)
+        Integer queueCapacity;
+
+        /**
+         * What to do when the queue is full. By default, it's
+         * {@link AsyncFeignLogWriter.OverflowPolicy#DROP_BODY_KEEP_LINE}.
+         */
+        AsyncFeignLogWriter.OverflowPolicy overflowPolicy;
+
+    }
+
+    /**
+     * Pooling of buffers which back rebuffered response bodies (see {@link BodyBufferPool}). Only applies if logging is
+     * synchronous, and only to bodies logged in full whose length is known. Requires callers to close response bodies
+     * and not to read them afterwards (Feign itself does so when decoding responses).
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class BufferPool {
+
+        /**
+         * Whether buffers are pooled. By default, it's {@code false}.
+         */
+        Boolean enabled;
+
+        /**
+         * Max. number of free buffers retained for each size class. By default, it's
+         * {@value BodyBufferPool#DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS}.
+         */
+        @Min(1)
+        Integer maxBuffersPerSizeClass;
+
+    }
+
+    /**
+     * Rate limiting of similar error lines: for each config key, only the first {@link #getMaxErrors()} I/O errors of
+     * the same class (or responses with the same HTTP status logged as {@link Level#ERROR}) per {@link #getInterval()}
+     * are logged, the rest are counted and reported once the interval is over.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class ErrorRateLimit {
+
+        /**
+         * Default for {@link #getMaxErrors()}.
+         */
+        public static final int DEFAULT_MAX_ERRORS = 10;
+
+        /**
+         * Default for {@link #getInterval()}.
+         */
+        public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+
+        /**
+         * Whether error lines are rate-limited. By default, it's {@code false}.
+         */
+        Boolean enabled;
+
+        /**
+         * Max. number of similar errors to log per {@link #getInterval()}. By default, it's
+         * {@value #DEFAULT_MAX_ERRORS}.
+         */
+        @Min(1)
+        Integer maxErrors;
+
+        /**
+         * By default, it's 1 minute.
+         */
+        Duration interval;
+
+    }
+
+    /**
+     * Per-client settings. Missing settings are inherited from the top-level ones.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Client {
+
+        /**
+         * Overrides {@link FeignLoggerProperties#getMaxBodyBytes()}.
+         */
+        @Min(0)
+        Integer maxBodyBytes;
+
+        /**
+         * Overrides {@link FeignLoggerProperties#getRedactedQueryParameters()}.
+         */
+        Set<String> redactedQueryParameters;
+
+    }
+
+}
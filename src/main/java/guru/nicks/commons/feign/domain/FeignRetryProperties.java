@@ -1,5 +1,16 @@
 package guru.nicks.commons.feign.domain;
 
+import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.injector.IdempotencyKeyInjector;
+import guru.nicks.commons.feign.retry.AsyncFeignRetrier;
+import guru.nicks.commons.feign.retry.CallDeadlineCapability;
+import guru.nicks.commons.feign.retry.HedgingCapability;
+import guru.nicks.commons.feign.retry.RetryBudgetRegistry;
+import guru.nicks.commons.feign.retry.RetryPolicyRegistry;
+import guru.nicks.commons.feign.retry.TargetHealthRegistry;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
@@ -9,8 +20,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.Duration;
+import java.util.Map;
 
-@ConfigurationProperties(prefix = "spring.cloud.openfeign.retry")
+@ConfigurationProperties(prefix = FeignRetryProperties.PREFIX)
 @Validated
 // immutability
 @Value
@@ -18,6 +30,8 @@ import java.time.Duration;
 @Builder(toBuilder = true)
 public class FeignRetryProperties {
 
+    public static final String PREFIX = "spring.cloud.openfeign.retry";
+
     @NotNull
     Duration initialDelayBetweenAttempts;
 
@@ -28,4 +42,296 @@ public class FeignRetryProperties {
     @NotNull
     Integer maxAttempts;
 
+    /**
+     * How sleeps between attempts are randomized. By default, it's {@link FeignRetryer.Jitter#NONE}.
+     */
+    FeignRetryer.Jitter jitter;
+
+    /**
+     * Max. total duration of a call, including all attempts and sleeps between them: no attempt is made past this
+     * duration, and the read timeout of each attempt is shrunk to the time remaining (see
+     * {@link CallDeadlineCapability}). By default, calls are not limited.
+     */
+    Duration deadline;
+
+    /**
+     * Name of the header telling servers how much time (in milliseconds) remains until the call deadline, so they can
+     * drop work which is already too late. By default, the header is not sent.
+     */
+    String deadlineHeader;
+
+    /**
+     * Per-client overrides. Keys are client names - simple names of Feign client interfaces (such as
+     * {@code UserClient}). Retry policies are resolved by {@link RetryPolicyRegistry}.
+     */
+    Map<String, @Valid Client> clients;
+
+    /**
+     * Retry budget shared by all Feign clients, per target service. By default, retries are not limited by a budget.
+     */
+    @Valid
+    Budget budget;
+
+    /**
+     * Adaptive backoff, following recent latency and error rate of each target service. By default, it's off.
+     */
+    @Valid
+    Adaptive adaptive;
+
+    /**
+     * Hedging of idempotent requests (see {@link HedgingCapability}). By default, it's off.
+     */
+    @Valid
+    Hedging hedging;
+
+    /**
+     * Retries of asynchronous Feign clients. By default, they're off.
+     */
+    @Valid
+    Async async;
+
+    /**
+     * Injection of idempotency keys into POST requests (see {@link IdempotencyKeyInjector}). By default, it's off.
+     */
+    @Valid
+    IdempotencyKey idempotencyKey;
+
+    /**
+     * Per-client settings. Missing settings are inherited from the top-level ones.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Client {
+
+        /**
+         * Overrides {@link FeignRetryProperties#getDeadline()}.
+         */
+        Duration deadline;
+
+        /**
+         * Overrides {@link FeignRetryProperties#getInitialDelayBetweenAttempts()}.
+         */
+        Duration initialDelayBetweenAttempts;
+
+        /**
+         * Overrides {@link FeignRetryProperties#getMaxDelayBetweenAttempts()}.
+         */
+        Duration maxDelayBetweenAttempts;
+
+        /**
+         * Overrides {@link FeignRetryProperties#getMaxAttempts()}.
+         */
+        @Min(0)
+        Integer maxAttempts;
+
+        /**
+         * Overrides {@link FeignRetryProperties#getJitter()}.
+         */
+        FeignRetryer.Jitter jitter;
+
+        /**
+         * Per-method overrides. Keys are method signatures as in config keys (such as {@code findById(String)}, which
+         * needs bracket notation in property names: {@code methods.[findById(String)].max-attempts}) or just method
+         * names (such as {@code findById}); signatures take precedence over names.
+         */
+        Map<String, @Valid Method> methods;
+
+        /**
+         * Overrides {@link FeignRetryProperties#getHedging()}, each setting separately. Hedging can be disabled per
+         * client, but not enabled: the top-level {@link Hedging#getEnabled()} turns the feature on.
+         */
+        @Valid
+        Hedging hedging;
+
+    }
+
+    /**
+     * Per-method settings. Missing settings are inherited from the client ones.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Method {
+
+        /**
+         * Overrides {@link Client#getInitialDelayBetweenAttempts()}.
+         */
+        Duration initialDelayBetweenAttempts;
+
+        /**
+         * Overrides {@link Client#getMaxDelayBetweenAttempts()}.
+         */
+        Duration maxDelayBetweenAttempts;
+
+        /**
+         * Overrides {@link Client#getMaxAttempts()}.
+         */
+        @Min(0)
+        Integer maxAttempts;
+
+        /**
+         * Overrides {@link Client#getJitter()}.
+         */
+        FeignRetryer.Jitter jitter;
+
+    }
+
+    /**
+     * Retry budget settings (see {@link RetryBudgetRegistry}): retries to a service may not exceed a percentage of
+     * recent successful requests to it. When the budget is exhausted, failed requests are not retried.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Budget {
+
+        /**
+         * Whether retries are limited by a budget. By default, it's {@code false}.
+         */
+        Boolean enabled;
+
+        /**
+         * Max. number of retries as a percentage of successful requests. By default, it's
+         * {@value RetryBudgetRegistry#DEFAULT_RETRY_PERCENT}.
+         */
+        @Min(0)
+        @Max(100)
+        Integer retryPercent;
+
+        /**
+         * Max. number of retries possible in a burst (and before any request has succeeded). By default, it's
+         * {@value RetryBudgetRegistry#DEFAULT_MAX_TOKENS}.
+         */
+        @Min(1)
+        Integer maxTokens;
+
+    }
+
+    /**
+     * Adaptive backoff settings (see {@link TargetHealthRegistry}): sleeps between attempts are at least the average
+     * latency of recent calls to the target service and grow with its error rate, and retries are not made while the
+     * error rate is above {@link #getMaxErrorPercent()}.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Adaptive {
+
+        /**
+         * Whether backoff is adaptive. By default, it's {@code false}.
+         */
+        Boolean enabled;
+
+        /**
+         * Number of recent calls the averages mostly reflect. By default, it's
+         * {@value TargetHealthRegistry#DEFAULT_WINDOW}.
+         */
+        @Min(1)
+        Integer window;
+
+        /**
+         * Min. number of calls to a service before its averages are trusted. By default, it's
+         * {@value TargetHealthRegistry#DEFAULT_MIN_CALLS}.
+         */
+        @Min(1)
+        Integer minCalls;
+
+        /**
+         * Error rate (in percent) above which retries are not made. By default, it's
+         * {@value TargetHealthRegistry#DEFAULT_MAX_ERROR_PERCENT}.
+         */
+        @Min(0)
+        @Max(100)
+        Integer maxErrorPercent;
+
+    }
+
+    /**
+     * Hedging settings: if no response to an idempotent request arrives within the hedge delay, a second copy of the
+     * request is sent, and the first response wins.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Hedging {
+
+        /**
+         * Whether requests are hedged. By default, it's {@code false}.
+         */
+        Boolean enabled;
+
+        /**
+         * Fixed hedge delay. By default, it's the observed 95th percentile of latencies of each Feign method.
+         */
+        Duration delay;
+
+        /**
+         * Lower bound of the hedge delay estimated from latencies: without it, methods which respond within a
+         * millisecond would be hedged almost immediately. Ignored if {@link #getDelay()} is set. By default, it's 5
+         * milliseconds ({@link HedgingCapability#DEFAULT_MIN_DELAY}).
+         */
+        Duration minDelay;
+
+        /**
+         * Min. number of calls to a Feign method before its latency percentile is trusted (methods are not hedged
+         * until then). Ignored if {@link #getDelay()} is set. By default, it's
+         * {@value HedgingCapability#DEFAULT_MIN_SAMPLES}.
+         */
+        @Min(1)
+        Integer minSamples;
+
+        /**
+         * Max. number of hedges as a percentage of hedged requests, per client. By default, it's
+         * {@value HedgingCapability#DEFAULT_BUDGET_PERCENT}.
+         */
+        @Min(0)
+        @Max(100)
+        Integer budgetPercent;
+
+        /**
+         * Max. number of hedges possible in a burst, per client. By default, it's
+         * {@value HedgingCapability#DEFAULT_MAX_TOKENS}.
+         */
+        @Min(1)
+        Integer maxTokens;
+
+    }
+
+    /**
+     * Retries of asynchronous Feign clients (see {@link AsyncFeignRetrier}).
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class Async {
+
+        /**
+         * Whether {@link AsyncFeignRetrier} is created. By default, it's {@code false}.
+         * <p>
+         * Clients whose calls are retried by it must be built with {@link feign.Retryer#NEVER_RETRY}, otherwise each
+         * attempt is retried by the client too.
+         */
+        Boolean enabled;
+
+    }
+
+    /**
+     * Idempotency key settings. For POST retries to happen, {@link guru.nicks.commons.feign.decoder.FeignErrorDecoder}
+     * must be told the header name too.
+     */
+    @Value
+    @Builder(toBuilder = true)
+    public static class IdempotencyKey {
+
+        /**
+         * Whether idempotency keys are injected. By default, it's {@code false}.
+         * <p>
+         * This flag alone only adds the header: POST requests are still not retried until the application builds
+         * {@link guru.nicks.commons.feign.decoder.FeignErrorDecoder} with the header name (the constructor taking
+         * {@code idempotencyKeyHeader}).
+         */
+        Boolean enabled;
+
+        /**
+         * By default, it's {@value IdempotencyKeyInjector#DEFAULT_HEADER_NAME}.
+         */
+        String headerName;
+
+    }
+
 }
@@ -0,0 +1,72 @@
+package guru.nicks.commons.feign.injector;
+
+import guru.nicks.commons.feign.decoder.FeignErrorDecoder;
+
+import feign.Request;
+import feign.RequestTemplate;
+import lombok.Getter;
+
+import java.util.UUID;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotBlank;
+
+/**
+ * Injects a random key into POST requests (which are not idempotent by themselves), so that servers can recognize
+ * retries of the same call and process it only once. With such a key, {@link FeignErrorDecoder} may retry POST (see
+ * {@link FeignErrorDecoder#FeignErrorDecoder(java.util.function.BiFunction, String)}).
+ * <p>
+ * The key is stable per call: Feign applies interceptors to the same request template on each attempt, and the key set
+ * on the first attempt is kept. A key set by the caller (for example, via a method parameter annotated with
+ * {@code @RequestHeader}) is kept too, which lets the application reuse it across calls (for example, when a user
+ * resubmits a form).
+ */
+public class IdempotencyKeyInjector implements FeignHeaderInjector {
+
+    /**
+     * Header name proposed by IETF (draft-ietf-httpapi-idempotency-key-header) and used by many APIs.
+     */
+    public static final String DEFAULT_HEADER_NAME = "Idempotency-Key";
+
+    @Getter // no 'onMethod_ = @Override', otherwise apidocs are not generated
+    private final String headerName;
+
+    /**
+     * Constructor. The header name is {@value #DEFAULT_HEADER_NAME}.
+     */
+    public IdempotencyKeyInjector() {
+        this(DEFAULT_HEADER_NAME);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param headerName header name
+     */
+    public IdempotencyKeyInjector(String headerName) {
+        this.headerName = checkNotBlank(headerName, "headerName");
+    }
+
+    /**
+     * Injects the key into POST requests which don't have one yet (header names are case-insensitive in
+     * {@link RequestTemplate#headers()}).
+     *
+     * @param request Feign request
+     */
+    @Override
+    public void apply(RequestTemplate request) {
+        if (Request.HttpMethod.POST.name().equals(request.method()) && !request.headers().containsKey(headerName)) {
+            FeignHeaderInjector.super.apply(request);
+        }
+    }
+
+    /**
+     * Generates a random (version 4) UUID.
+     *
+     * @return new key
+     */
+    @Override
+    public String getHeaderValue() {
+        return UUID.randomUUID().toString();
+    }
+
+}
@@ -0,0 +1,70 @@
+package guru.nicks.commons.feign.log;
+
+import guru.nicks.commons.ApplicationContextHolder;
+import guru.nicks.commons.log.domain.LogContext;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Puts application name to MDC (MDC is empty if Feign was called from a thread whose MDC wasn't initialized
+ * explicitly, which is always the case for new virtual threads). The application name is looked up when the writer is
+ * created and again on {@link #refresh()} (the name is only available after the application context has been
+ * refreshed), never on the logging path; MDC is only written to if it doesn't contain the application name yet.
+ */
+public class ApplicationNameMdcWriter {
+
+    /**
+     * Whether {@link #applicationName} is looked up via {@link ApplicationContextHolder#findApplicationName()}, as
+     * opposed to having been passed to the constructor.
+     */
+    private final boolean lookedUp;
+
+    /**
+     * {@code null} until the application name is known.
+     */
+    @Nullable
+    private volatile String applicationName;
+
+    /**
+     * Constructor. The application name is looked up via {@link ApplicationContextHolder#findApplicationName()}.
+     */
+    public ApplicationNameMdcWriter() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param applicationName application name, {@code null} means look it up via
+     *                        {@link ApplicationContextHolder#findApplicationName()}
+     */
+    public ApplicationNameMdcWriter(@Nullable String applicationName) {
+        lookedUp = (applicationName == null);
+        this.applicationName = lookedUp
+                ? ApplicationContextHolder.findApplicationName().orElse(null)
+                : applicationName;
+    }
+
+    /**
+     * Looks up the application name again, unless it was passed to the constructor. Should be called once the
+     * application context has been refreshed. If the name can't be found, the previous one is kept.
+     */
+    public void refresh() {
+        if (lookedUp) {
+            ApplicationContextHolder.findApplicationName().ifPresent(name -> applicationName = name);
+        }
+    }
+
+    /**
+     * Puts application name to MDC if it's known and MDC doesn't contain it yet.
+     */
+    public void putToMdc() {
+        String name = applicationName;
+
+        // application context hadn't been refreshed when the name was looked up
+        if ((name != null) && !name.equals(LogContext.APP_NAME.get())) {
+            LogContext.APP_NAME.put(name);
+        }
+    }
+
+}
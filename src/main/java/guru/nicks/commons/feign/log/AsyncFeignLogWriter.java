@@ -0,0 +1,363 @@
+package guru.nicks.commons.feign.log;
+
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.Level;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Moves the expensive part of logging - rendering (masking, decoding) bodies - off the calling thread: the caller
+ * builds the cheap part of the log line and enqueues it along with a deferred body renderer, and a single background
+ * worker renders the body and emits the line.
+ * <p>
+ * MDC (which also holds tracing context) is captured at enqueue time and restored in the worker for each line. Lines
+ * are emitted in the order they were enqueued. What happens when the queue is full depends on {@link OverflowPolicy}.
+ * <p>
+ * The queue is lock-free (callers never contend for a lock, unlike with {@link java.util.concurrent.BlockingQueue}
+ * implementations), and its capacity is enforced by a separate counter. The worker parks when the queue is empty and
+ * is woken up by the next caller.
+ */
+@Slf4j
+public class AsyncFeignLogWriter {
+
+    /**
+     * Appended instead of the body if the body has been dropped (see {@link OverflowPolicy#DROP_BODY_KEEP_LINE}).
+     */
+    public static final String BODY_DROPPED_MARKER = "[body not logged, log queue is full]";
+
+    /**
+     * How long {@link #shutdown()} waits for the worker to drain the queue.
+     */
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+
+    /**
+     * How often the worker checks if it should stop (or report dropped records) when the queue is empty.
+     */
+    private static final long PARK_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * How long callers wait before checking again if there's space in the queue (see {@link OverflowPolicy#BLOCK}).
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * How often the number of dropped records is reported (by the worker, regardless of whether it has anything to
+     * emit).
+     */
+    private static final long DROPPED_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Queue<LogRecord> queue = new ConcurrentLinkedQueue<>();
+    private final int queueCapacity;
+
+    /**
+     * Number of records in {@link #queue} ({@link ConcurrentLinkedQueue#size()} traverses the queue).
+     */
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final OverflowPolicy overflowPolicy;
+    private final Emitter emitter;
+    private final Thread worker;
+
+    /**
+     * Number of records dropped since the last report.
+     */
+    private final LongAdder droppedRecords = new LongAdder();
+
+    private volatile boolean stopped;
+
+    /**
+     * Whether the worker is parked (or about to park) because the queue is empty, so callers have to wake it up.
+     */
+    private volatile boolean workerWaiting;
+
+    /**
+     * Constructor. Starts the worker thread (daemon).
+     *
+     * @param queueCapacity  max. number of records waiting to be emitted
+     * @param overflowPolicy what to do when the queue is full
+     * @param emitter        emits the final line (called from the worker thread)
+     */
+    public AsyncFeignLogWriter(int queueCapacity, OverflowPolicy overflowPolicy, Emitter emitter) {
+        check(queueCapacity, "queueCapacity").positive();
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = checkNotNull(overflowPolicy, "overflowPolicy");
+        this.emitter = checkNotNull(emitter, "emitter");
+
+        worker = Thread.ofPlatform()
+                .name("feign-logger")
+                .daemon()
+                .start(this::processQueue);
+    }
+
+    /**
+     * Enqueues line for emitting. If the writer has been shut down, the line is emitted on the calling thread.
+     *
+     * @param level        log level
+     * @param line         line without body
+     * @param keyValues    key-value pairs to attach to the log event, {@code null} if none
+     * @param bodyRenderer appends body to the line, {@code null} if there's no body; must not depend on any mutable
+     *                     state
+     */
+    public void submit(Level level, String line, @Nullable List<KeyValuePair> keyValues,
+            @Nullable Consumer<StringBuilder> bodyRenderer) {
+        var logRecord = new LogRecord(level, line, keyValues, bodyRenderer, MDC.getCopyOfContextMap());
+
+        if (stopped) {
+            emit(logRecord);
+            return;
+        }
+
+        if (tryEnqueue(logRecord)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_BODY_KEEP_LINE -> emitWithoutBody(logRecord);
+            case DROP -> droppedRecords.increment();
+            case BLOCK -> enqueueWhenSpaceAvailable(logRecord);
+        }
+    }
+
+    /**
+     * Stops the worker after it has emitted the records enqueued so far (waiting for that not longer than
+     * {@value #SHUTDOWN_TIMEOUT_MS} ms). Records enqueued afterwards are emitted on the calling thread.
+     */
+    public void shutdown() {
+        stopped = true;
+        LockSupport.unpark(worker);
+
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // enqueued concurrently with stopping, or the worker didn't stop in time
+        LogRecord logRecord;
+
+        while ((logRecord = dequeue()) != null) {
+            emit(logRecord);
+        }
+
+        reportDroppedRecords();
+    }
+
+    /**
+     * Enqueues record if there's space in the queue, and wakes up the worker if it's waiting.
+     *
+     * @param logRecord record to enqueue
+     * @return {@code true} if the record has been enqueued
+     */
+    private boolean tryEnqueue(LogRecord logRecord) {
+        if (queueSize.incrementAndGet() > queueCapacity) {
+            queueSize.decrementAndGet();
+            return false;
+        }
+
+        queue.offer(logRecord);
+
+        if (workerWaiting) {
+            LockSupport.unpark(worker);
+        }
+
+        return true;
+    }
+
+    /**
+     * Waits until there's space in the queue, then enqueues the record. If the thread is interrupted meanwhile, the
+     * line is emitted on the calling thread without body.
+     *
+     * @param logRecord record to enqueue
+     */
+    private void enqueueWhenSpaceAvailable(LogRecord logRecord) {
+        while (!tryEnqueue(logRecord)) {
+            if (stopped) {
+                emit(logRecord);
+                return;
+            }
+
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+
+            if (Thread.currentThread().isInterrupted()) {
+                emitWithoutBody(logRecord);
+                return;
+            }
+        }
+    }
+
+    @Nullable
+    private LogRecord dequeue() {
+        LogRecord logRecord = queue.poll();
+
+        if (logRecord != null) {
+            queueSize.decrementAndGet();
+        }
+
+        return logRecord;
+    }
+
+    private void processQueue() {
+        long lastReportNanos = System.nanoTime();
+
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                LogRecord logRecord = dequeue();
+
+                if (logRecord == null) {
+                    awaitRecords();
+                } else {
+                    emit(logRecord);
+                }
+            }
+            // logging must never kill the worker
+            catch (RuntimeException e) {
+                log.error("Failed to emit Feign log record: {}", e.getMessage(), e);
+            }
+
+            // on a timer, not after the next record: there may be no records for a long time after a burst
+            if (System.nanoTime() - lastReportNanos >= DROPPED_REPORT_INTERVAL_NANOS) {
+                reportDroppedRecords();
+                lastReportNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Parks the worker until a record is enqueued, but not longer than {@link #PARK_TIMEOUT_NANOS}.
+     */
+    private void awaitRecords() {
+        workerWaiting = true;
+
+        // a record might have been enqueued before the flag was set, and its caller didn't wake the worker up
+        if (queue.isEmpty() && !stopped) {
+            LockSupport.parkNanos(this, PARK_TIMEOUT_NANOS);
+        }
+
+        workerWaiting = false;
+    }
+
+    /**
+     * Renders body (if any) and emits the line with the MDC captured when the record was enqueued.
+     *
+     * @param logRecord record to emit
+     */
+    private void emit(LogRecord logRecord) {
+        var line = new StringBuilder(logRecord.line());
+
+        if (logRecord.bodyRenderer() != null) {
+            logRecord.bodyRenderer().accept(line);
+        }
+
+        emitWithMdc(logRecord, line.toString());
+    }
+
+    private void emitWithoutBody(LogRecord logRecord) {
+        if (logRecord.bodyRenderer() == null) {
+            emitWithMdc(logRecord, logRecord.line());
+        } else if (logRecord.line().endsWith(" ")) {
+            emitWithMdc(logRecord, logRecord.line() + BODY_DROPPED_MARKER);
+        } else {
+            emitWithMdc(logRecord, logRecord.line() + ' ' + BODY_DROPPED_MARKER);
+        }
+    }
+
+    /**
+     * Emits line with the MDC captured when the record was enqueued, then restores the current thread's MDC.
+     *
+     * @param logRecord record to take level and MDC from
+     * @param line      line to emit
+     */
+    private void emitWithMdc(LogRecord logRecord, String line) {
+        Map<String, String> currentMdc = MDC.getCopyOfContextMap();
+        setMdc(logRecord.mdc());
+
+        try {
+            emitter.emit(logRecord.level(), line, logRecord.keyValues());
+        } finally {
+            setMdc(currentMdc);
+        }
+    }
+
+    private static void setMdc(@Nullable Map<String, String> mdc) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+    }
+
+    private void reportDroppedRecords() {
+        long count = droppedRecords.sumThenReset();
+
+        if (count > 0) {
+            log.warn("{} Feign log record(s) dropped because log queue is full", count);
+        }
+    }
+
+    /**
+     * What {@link #submit(Level, String, List, Consumer)} does when the queue is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Emit the line on the calling thread, with {@link #BODY_DROPPED_MARKER} instead of the body.
+         */
+        DROP_BODY_KEEP_LINE,
+
+        /**
+         * Wait until there's space in the queue (the calling thread slows down to the speed of logging).
+         */
+        BLOCK,
+
+        /**
+         * Drop the whole line (the number of lines dropped is logged periodically).
+         */
+        DROP
+
+    }
+
+    /**
+     * Emits the final line.
+     */
+    @FunctionalInterface
+    public interface Emitter {
+
+        /**
+         * Emits line.
+         *
+         * @param level     log level
+         * @param line      line (not a template: placeholders in it are not substituted)
+         * @param keyValues key-value pairs to attach to the log event, {@code null} if none
+         */
+        void emit(Level level, String line, @Nullable List<KeyValuePair> keyValues);
+
+    }
+
+    /**
+     * Log line waiting to be emitted.
+     *
+     * @param level        log level
+     * @param line         line without body
+     * @param keyValues    key-value pairs to attach to the log event, {@code null} if none
+     * @param bodyRenderer appends body to the line, {@code null} if there's no body
+     * @param mdc          MDC of the thread which enqueued the record, {@code null} if it was empty
+     */
+    private record LogRecord(Level level, String line, @Nullable List<KeyValuePair> keyValues,
+            @Nullable Consumer<StringBuilder> bodyRenderer, @Nullable Map<String, String> mdc) {
+    }
+
+}
@@ -0,0 +1,108 @@
+package guru.nicks.commons.feign.log;
+
+import jakarta.annotation.Nullable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+
+/**
+ * Pool of heap buffers for mid-size response bodies ({@value #MIN_POOLED_SIZE}..{@value #MAX_POOLED_SIZE} bytes),
+ * organized in power-of-two size classes. Reusing such buffers avoids young generation churn and - for bodies
+ * approaching G1 region size - humongous allocations. Smaller bodies are cheap to allocate, larger ones are rare, so
+ * they're not pooled.
+ * <p>
+ * Each size class retains not more than a fixed number of free buffers; buffers which were never returned (for
+ * example, because the response body wasn't closed) are simply garbage-collected, and {@link #getLeasedCount()} helps
+ * detecting such leaks.
+ */
+public class BodyBufferPool {
+
+    public static final int MIN_POOLED_SIZE = 64 * 1024;
+    public static final int MAX_POOLED_SIZE = 1024 * 1024;
+
+    /**
+     * Default for {@link #BodyBufferPool(int)}.
+     */
+    public static final int DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS = 8;
+
+    private static final int SIZE_CLASS_COUNT = getSizeClassIndex(MAX_POOLED_SIZE) + 1;
+
+    /**
+     * Indexes are size classes: buffer size is {@code MIN_POOLED_SIZE << index}.
+     */
+    private final BlockingQueue<byte[]>[] freeBuffers;
+
+    private final AtomicLong leasedCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxBuffersPerSizeClass max. number of free buffers retained for each size class
+     */
+    @SuppressWarnings("unchecked")
+    public BodyBufferPool(int maxBuffersPerSizeClass) {
+        check(maxBuffersPerSizeClass, "maxBuffersPerSizeClass").positive();
+
+        freeBuffers = new BlockingQueue[SIZE_CLASS_COUNT];
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            freeBuffers[i] = new ArrayBlockingQueue<>(maxBuffersPerSizeClass);
+        }
+    }
+
+    /**
+     * Takes a free buffer (or allocates a new one) for the given number of bytes.
+     *
+     * @param size number of bytes needed
+     * @return buffer (may be larger than requested), {@code null} if buffers of this size are not pooled
+     */
+    @Nullable
+    public byte[] acquire(int size) {
+        if ((size < MIN_POOLED_SIZE) || (size > MAX_POOLED_SIZE)) {
+            return null;
+        }
+
+        int sizeClassIndex = getSizeClassIndex(size);
+        byte[] buffer = freeBuffers[sizeClassIndex].poll();
+
+        if (buffer == null) {
+            buffer = new byte[MIN_POOLED_SIZE << sizeClassIndex];
+        }
+
+        leasedCount.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns buffer obtained from {@link #acquire(int)} to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer buffer to return
+     */
+    public void release(byte[] buffer) {
+        leasedCount.decrementAndGet();
+        // if the size class is full, the buffer is left for GC
+        freeBuffers[getSizeClassIndex(buffer.length)].offer(buffer);
+    }
+
+    /**
+     * Returns the number of buffers acquired but not released yet.
+     *
+     * @return number of leased buffers
+     */
+    public long getLeasedCount() {
+        return leasedCount.get();
+    }
+
+    /**
+     * Maps size to size class index: {@code ceil(log2(size / MIN_POOLED_SIZE))}.
+     *
+     * @param size size in bytes, from {@link #MIN_POOLED_SIZE} to {@link #MAX_POOLED_SIZE}
+     * @return size class index
+     */
+    private static int getSizeClassIndex(int size) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros((size - 1) / MIN_POOLED_SIZE);
+    }
+
+}
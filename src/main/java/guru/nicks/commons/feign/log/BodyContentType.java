@@ -0,0 +1,157 @@
+package guru.nicks.commons.feign.log;
+
+import guru.nicks.commons.feign.FeignHeaders;
+
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Body kind, as far as logging is concerned. Classification is based on {@value HttpHeaders#CONTENT_TYPE} and
+ * {@value HttpHeaders#CONTENT_ENCODING} headers and doesn't create intermediate strings.
+ */
+public enum BodyContentType {
+
+    /**
+     * JSON (such as {@code application/json}, {@code application/problem+json}), or unknown content type (it's treated
+     * as JSON to have sensitive fields masked, just in case). Logged with sensitive fields masked.
+     */
+    JSON,
+
+    /**
+     * Textual, but not JSON (such as {@code text/plain}, {@code application/xml}). Logged as-is, truncated.
+     */
+    TEXT,
+
+    /**
+     * {@code application/x-www-form-urlencoded}. Logged truncated, like {@link #TEXT}, with values of sensitive
+     * parameters masked (see {@link QueryRedactor#redactForm(String)}).
+     */
+    FORM,
+
+    /**
+     * Everything else (such as images, PDFs, protobuf, compressed content). Only body size and content type are logged.
+     */
+    BINARY;
+
+    private static final String CHARSET_PARAMETER = "charset=";
+
+    /**
+     * Classifies body by its headers.
+     *
+     * @param headers request or response headers
+     * @return body content type
+     */
+    public static BodyContentType of(@Nullable Map<String, Collection<String>> headers) {
+        return classify(FeignHeaders.findFirst(headers, HttpHeaders.CONTENT_TYPE),
+                FeignHeaders.findFirst(headers, HttpHeaders.CONTENT_ENCODING));
+    }
+
+    /**
+     * Classifies body by its content type and content encoding.
+     *
+     * @param contentType     {@value HttpHeaders#CONTENT_TYPE} header value, such as
+     *                        {@code application/json; charset=UTF-8}
+     * @param contentEncoding {@value HttpHeaders#CONTENT_ENCODING} header value, such as {@code gzip}
+     * @return body content type
+     */
+    public static BodyContentType classify(@Nullable String contentType, @Nullable String contentEncoding) {
+        // compressed content is binary whatever the content type is
+        if ((contentEncoding != null) && !contentEncoding.isBlank()
+                && !"identity".equalsIgnoreCase(contentEncoding.strip())) {
+            return BINARY;
+        }
+
+        if ((contentType == null) || contentType.isBlank()) {
+            return JSON;
+        }
+
+        int start = 0;
+        while ((start < contentType.length()) && Character.isWhitespace(contentType.charAt(start))) {
+            start++;
+        }
+
+        int end = contentType.indexOf(';');
+        if (end < 0) {
+            end = contentType.length();
+        }
+
+        while ((end > start) && Character.isWhitespace(contentType.charAt(end - 1))) {
+            end--;
+        }
+
+        if (endsWith(contentType, start, end, "/json")
+                || endsWith(contentType, start, end, "+json")
+                || endsWith(contentType, start, end, "/x-ndjson")) {
+            return JSON;
+        }
+
+        if (endsWith(contentType, start, end, "/x-www-form-urlencoded")) {
+            return FORM;
+        }
+
+        if (contentType.regionMatches(true, start, "text/", 0, 5)
+                || endsWith(contentType, start, end, "/xml")
+                || endsWith(contentType, start, end, "+xml")
+                || endsWith(contentType, start, end, "/javascript")
+                || endsWith(contentType, start, end, "/yaml")
+                || endsWith(contentType, start, end, "/x-yaml")) {
+            return TEXT;
+        }
+
+        return BINARY;
+    }
+
+    /**
+     * Retrieves charset from content type.
+     *
+     * @param contentType     content type, such as {@code text/plain; charset=UTF-8}
+     * @param fallbackCharset returned if there's no (supported) charset in content type
+     * @return charset
+     */
+    public static Charset findCharset(@Nullable String contentType, Charset fallbackCharset) {
+        if (contentType == null) {
+            return fallbackCharset;
+        }
+
+        int index = indexOfIgnoreCase(contentType, CHARSET_PARAMETER);
+        if (index < 0) {
+            return fallbackCharset;
+        }
+
+        int start = index + CHARSET_PARAMETER.length();
+        int end = contentType.indexOf(';', start);
+        if (end < 0) {
+            end = contentType.length();
+        }
+
+        String charsetName = contentType.substring(start, end).strip().replace("\"", "");
+
+        try {
+            return Charset.forName(charsetName);
+        }
+        // IllegalCharsetNameException, UnsupportedCharsetException
+        catch (IllegalArgumentException e) {
+            return fallbackCharset;
+        }
+    }
+
+    private static boolean endsWith(String str, int start, int end, String suffix) {
+        return ((end - start) >= suffix.length())
+                && str.regionMatches(true, end - suffix.length(), suffix, 0, suffix.length());
+    }
+
+    private static int indexOfIgnoreCase(String str, String substring) {
+        for (int i = 0; i <= (str.length() - substring.length()); i++) {
+            if (str.regionMatches(true, i, substring, 0, substring.length())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+}
@@ -0,0 +1,116 @@
+package guru.nicks.commons.feign.log;
+
+import jakarta.annotation.Nullable;
+
+import java.nio.charset.Charset;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Renders request/response bodies for logging, according to their {@link BodyContentType}.
+ */
+public class BodyFormatter {
+
+    /**
+     * Max. number of {@link BodyContentType#TEXT} and {@link BodyContentType#FORM} body bytes to log,
+     * {@link CapturedResponse#UNLIMITED} means no limit (other than the general one).
+     */
+    private final int maxTextBodyBytes;
+
+    /**
+     * Masks {@link BodyContentType#JSON} bodies.
+     */
+    private final StreamingJsonMasker jsonMasker;
+
+    /**
+     * Whether truncated {@link BodyContentType#JSON} bodies are logged (masked up to the point where they break).
+     */
+    private final boolean truncatedJsonLogged;
+
+    /**
+     * Constructor.
+     *
+     * @param maxTextBodyBytes    max. number of {@link BodyContentType#TEXT} and {@link BodyContentType#FORM} body
+     *                            bytes to log, {@code null} means no limit (other than the general one)
+     * @param jsonMasker          masks JSON bodies
+     * @param truncatedJsonLogged whether truncated JSON bodies are logged, otherwise only their size is
+     */
+    public BodyFormatter(@Nullable Integer maxTextBodyBytes, StreamingJsonMasker jsonMasker,
+            boolean truncatedJsonLogged) {
+        this.maxTextBodyBytes = (maxTextBodyBytes == null)
+                ? CapturedResponse.UNLIMITED
+                : maxTextBodyBytes;
+        this.jsonMasker = checkNotNull(jsonMasker, "jsonMasker");
+        this.truncatedJsonLogged = truncatedJsonLogged;
+    }
+
+    /**
+     * Calculates how many body bytes should be read for logging.
+     *
+     * @param contentType  body content type
+     * @param maxBodyBytes general limit, {@link CapturedResponse#UNLIMITED} means no limit
+     * @return number of body bytes to read
+     */
+    public int getLoggableLength(BodyContentType contentType, int maxBodyBytes) {
+        return switch (contentType) {
+            case JSON -> maxBodyBytes;
+            case TEXT, FORM -> Math.min(maxBodyBytes, maxTextBodyBytes);
+            case BINARY -> 0;
+        };
+    }
+
+    /**
+     * Checks if a truncated body of the given type can be appended. {@link StreamingJsonMasker} tolerates incomplete
+     * JSON, but whether truncated JSON is logged is up to the settings; if it's not, only the body size should be
+     * logged.
+     *
+     * @param contentType body content type
+     * @return {@code true} if a truncated body can be passed to
+     *         {@link #appendBody(StringBuilder, BodyContentType, byte[], int, Charset, QueryRedactor)}
+     */
+    public boolean canAppendTruncated(BodyContentType contentType) {
+        return (contentType != BodyContentType.JSON) || truncatedJsonLogged;
+    }
+
+    /**
+     * Appends body (JSON and form values are masked, text is appended as-is).
+     *
+     * @param builder       builder to append to
+     * @param contentType   body content type, must not be {@link BodyContentType#BINARY}
+     * @param body          body bytes
+     * @param length        number of bytes to append
+     * @param charset       body charset
+     * @param queryRedactor masks sensitive {@link BodyContentType#FORM} parameters
+     */
+    public void appendBody(StringBuilder builder, BodyContentType contentType, byte[] body, int length,
+            Charset charset, QueryRedactor queryRedactor) {
+        if (contentType == BodyContentType.TEXT) {
+            builder.append(new String(body, 0, length, charset));
+        } else if (contentType == BodyContentType.FORM) {
+            builder.append(queryRedactor.redactForm(new String(body, 0, length, charset)));
+        } else {
+            jsonMasker.mask(body, length, builder);
+        }
+    }
+
+    /**
+     * Appends binary body description instead of the body itself.
+     *
+     * @param builder           builder to append to
+     * @param contentTypeHeader content type header value
+     * @param length            body length, {@code null} if unknown
+     */
+    public void appendBinaryBody(StringBuilder builder, @Nullable String contentTypeHeader,
+            @Nullable Integer length) {
+        builder.append("[binary body, ")
+                .append((contentTypeHeader == null) ? "unknown content type" : contentTypeHeader)
+                .append(", ");
+
+        if (length == null) {
+            builder.append("size unknown]");
+        } else {
+            builder.append(length).append(" bytes]");
+        }
+    }
+
+}
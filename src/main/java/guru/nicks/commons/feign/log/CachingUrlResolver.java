@@ -0,0 +1,132 @@
+package guru.nicks.commons.feign.log;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.Function;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Memoizes a service-name-to-URL resolver (which may go through service discovery and URI parsing) for logging
+ * purposes. Only the base of a URL - scheme and authority, such as {@code http://user-service} - is resolved (and
+ * cached), the rest of the URL (path, query, fragment) is appended to the resolved base as-is. Cache entries expire
+ * shortly, so that changes of service instances still show up.
+ * <p>
+ * Therefore the resolver must depend on scheme and authority alone, and it never sees paths. A trailing '/' of a
+ * resolved base is dropped, since the path appended starts with one.
+ */
+public class CachingUrlResolver {
+
+    /**
+     * Default for {@link #CachingUrlResolver(Function, Duration, long)}.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+
+    /**
+     * Default for {@link #CachingUrlResolver(Function, Duration, long)}.
+     */
+    public static final long DEFAULT_MAX_SIZE = 1000;
+
+    private static final String SCHEME_SEPARATOR = "://";
+
+    private final Function<String, URI> delegate;
+
+    /**
+     * Keys are URL bases, values are resolved URL bases (without trailing '/').
+     */
+    private final Cache<String, String> cache;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate resolver to memoize
+     * @param ttl      how long resolved URL bases are cached
+     * @param maxSize  max. number of resolved URL bases cached
+     */
+    public CachingUrlResolver(Function<String, URI> delegate, Duration ttl, long maxSize) {
+        this.delegate = checkNotNull(delegate, "delegate");
+        checkNotNull(ttl, "ttl");
+        check(maxSize, "maxSize").positiveOrZero();
+
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Resolves URL. Relative URLs (without scheme) are passed to the delegate as-is, without caching.
+     *
+     * @param url URL to resolve
+     * @return resolved URL (the original URL base is kept if the delegate returned {@code null} for it)
+     */
+    public String resolve(String url) {
+        int pathStart = findPathStart(url);
+
+        if (pathStart < 0) {
+            return String.valueOf(delegate.apply(url));
+        }
+
+        String resolvedBase = cache.get(url.substring(0, pathStart), this::resolveBase);
+
+        return (pathStart == url.length())
+                ? resolvedBase
+                : resolvedBase.concat(url.substring(pathStart));
+    }
+
+    /**
+     * Registers cache metrics (hits, misses, evictions, size) named {@code cache.*} with tag {@code cache=cacheName}.
+     *
+     * @param registry  meter registry
+     * @param cacheName cache name to tag metrics with
+     */
+    public void bindMetrics(MeterRegistry registry, String cacheName) {
+        CaffeineCacheMetrics.monitor(registry, cache, cacheName);
+    }
+
+    private String resolveBase(String base) {
+        URI resolvedUri = delegate.apply(base);
+
+        if (resolvedUri == null) {
+            return base;
+        }
+
+        String resolvedBase = resolvedUri.toString();
+        return resolvedBase.endsWith("/")
+                ? resolvedBase.substring(0, resolvedBase.length() - 1)
+                : resolvedBase;
+    }
+
+    /**
+     * Finds where URL base (scheme and authority) ends.
+     *
+     * @param url URL
+     * @return index of the first character after URL base (URL length if there's nothing after it), -1 if the URL has
+     *         no scheme
+     */
+    private static int findPathStart(String url) {
+        int schemeEnd = url.indexOf(SCHEME_SEPARATOR);
+
+        if (schemeEnd < 0) {
+            return -1;
+        }
+
+        for (int i = schemeEnd + SCHEME_SEPARATOR.length(); i < url.length(); i++) {
+            char c = url.charAt(i);
+
+            if ((c == '/') || (c == '?') || (c == '#')) {
+                return i;
+            }
+        }
+
+        return url.length();
+    }
+
+}
@@ -0,0 +1,169 @@
+package guru.nicks.commons.feign.log;
+
+import feign.Response;
+import feign.Util;
+import jakarta.annotation.Nullable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Response whose body has been (partially) read for logging purposes, and the bytes read. See
+ * {@link #capture(Response, int)}.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CapturedResponse {
+
+    /**
+     * Means no limit for {@link #capture(Response, int)}.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    /**
+     * Response to be returned to the caller: its body can be read from the very beginning.
+     */
+    Response response;
+
+    /**
+     * Bytes read (possibly a pooled buffer longer than the body). Only the first {@link #getLoggableLength()} of them
+     * should be logged.
+     */
+    byte[] body;
+
+    int loggableLength;
+
+    /**
+     * Whether the body is longer than {@link #getLoggableLength()}.
+     */
+    boolean truncated;
+
+    /**
+     * Total body length, {@code null} if unknown (only possible if {@link #isTruncated()} is {@code true}).
+     */
+    @Nullable
+    Integer totalLength;
+
+    /**
+     * Reads response body, but not more than {@code maxBodyBytes} (plus one byte to find out if there's more data):
+     * <ul>
+     *  <li>if the body fits, the response is rebuilt around the bytes read (exactly as {@link feign.Logger} does)</li>
+     *  <li>otherwise, the response is rebuilt around a stream which replays the bytes read and then continues with the
+     *      original body, so peak heap usage doesn't depend on the body size</li>
+     * </ul>
+     * {@link IOException} is not rethrown: it may be an {@link java.io.InterruptedIOException}, and rethrowing it would
+     * break retries. Instead, the original response is returned as-is, with nothing captured.
+     *
+     * @param response     response to read body of
+     * @param maxBodyBytes max. number of bytes to log, {@link #UNLIMITED} means the whole body
+     * @return captured response
+     */
+    public static CapturedResponse capture(Response response, int maxBodyBytes) {
+        // body is null e.g. if HTTP status is 401 Unauthorized
+        if (response.body() == null) {
+            return new CapturedResponse(response, NO_BYTES, 0, false, 0);
+        }
+
+        try {
+            if (maxBodyBytes == UNLIMITED) {
+                byte[] bytes = Util.toByteArray(response.body().asInputStream());
+                // once response has been read, response MUST be rebuilt for further (re)reading by caller
+                return new CapturedResponse(response.toBuilder().body(bytes).build(), bytes, bytes.length, false,
+                        bytes.length);
+            }
+
+            InputStream inputStream = response.body().asInputStream();
+            byte[] bytes = inputStream.readNBytes(maxBodyBytes + 1);
+
+            if (bytes.length <= maxBodyBytes) {
+                Util.ensureClosed(response.body());
+                return new CapturedResponse(response.toBuilder().body(bytes).build(), bytes, bytes.length, false,
+                        bytes.length);
+            }
+
+            return new CapturedResponse(
+                    response.toBuilder().body(new PrefixReplayingBody(bytes, response.body(), inputStream)).build(),
+                    bytes, maxBodyBytes, true, response.body().length());
+        } catch (IOException e) {
+            return new CapturedResponse(response, NO_BYTES, 0, false, 0);
+        }
+    }
+
+    /**
+     * Same as {@link #capture(Response, int)}, but if the whole body fits in {@code maxBodyBytes} and its length is
+     * known and suitable for {@link BodyBufferPool}, the body is read into a pooled buffer. The buffer is returned to
+     * the pool when the body of the rebuilt response is closed (see {@link PooledBody}), therefore the bytes captured
+     * must not be used afterwards.
+     * <p>
+     * If the body turns out to be longer than declared, and therefore is truncated, its total length is unknown.
+     *
+     * @param response     response to read body of
+     * @param maxBodyBytes max. number of bytes to log, {@link #UNLIMITED} means the whole body
+     * @param bufferPool   buffer pool, {@code null} means no pooling
+     * @return captured response
+     */
+    public static CapturedResponse capture(Response response, int maxBodyBytes, @Nullable BodyBufferPool bufferPool) {
+        Integer length = (response.body() == null)
+                ? null
+                : response.body().length();
+        byte[] buffer = ((bufferPool == null) || (length == null) || (length > maxBodyBytes))
+                ? null
+                : bufferPool.acquire(length);
+
+        if (buffer == null) {
+            return capture(response, maxBodyBytes);
+        }
+
+        try {
+            InputStream inputStream = response.body().asInputStream();
+            int bytesRead = inputStream.readNBytes(buffer, 0, length);
+            int nextByte = (bytesRead == length)
+                    ? inputStream.read()
+                    : -1;
+
+            if ((bytesRead == length) && (nextByte < 0)) {
+                Util.ensureClosed(response.body());
+                return new CapturedResponse(response.toBuilder().body(new PooledBody(buffer, length, bufferPool))
+                        .build(), buffer, length, false, length);
+            }
+
+            // body length differs from what was declared - continue without pooling
+            byte[] prefix = Arrays.copyOf(buffer, (nextByte < 0) ? bytesRead : (bytesRead + 1));
+            if (nextByte >= 0) {
+                prefix[bytesRead] = (byte) nextByte;
+            }
+
+            bufferPool.release(buffer);
+            CapturedResponse captured = capture(response.toBuilder()
+                    .body(new PrefixReplayingBody(prefix, response.body(), inputStream))
+                    .build(), maxBodyBytes);
+
+            // the body is longer than declared, and the rest of it hasn't been read
+            return captured.truncated
+                    ? new CapturedResponse(captured.response, captured.body, captured.loggableLength, true, null)
+                    : captured;
+        } catch (IOException e) {
+            bufferPool.release(buffer);
+            return new CapturedResponse(response, NO_BYTES, 0, false, 0);
+        }
+    }
+
+    /**
+     * Returns the loggable bytes (see {@link #getLoggableLength()}) as a separate array if they're not the whole
+     * {@link #getBody()} (the body has been truncated, or it's a pooled buffer).
+     *
+     * @return loggable bytes
+     */
+    public byte[] getLoggableBody() {
+        return (loggableLength == body.length)
+                ? body
+                : Arrays.copyOf(body, loggableLength);
+    }
+
+}
@@ -0,0 +1,307 @@
+package guru.nicks.commons.feign.log;
+
+import jakarta.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Limits the number of similar error lines logged: for each (config key, error kind) pair - an exception class or an
+ * HTTP status - only the first N errors per interval are logged in full, the rest are counted and reported once the
+ * interval is over: either by the first error logged in the next interval (see {@link #tryAcquire(String, Class)} and
+ * {@link #tryAcquire(String, int)}), or by a background timer (see {@link SuppressedErrorsReporter}), whichever comes
+ * first. Thus suppressed errors are reported even if no similar error follows. The timer thread is shared by all rate
+ * limiters.
+ * <p>
+ * Lock-free: intervals are rolled over by CAS on their start timestamps, suppressed errors are counted with
+ * {@link LongAdder}s. Counting is approximate when many threads roll over the same interval at the same time, which is
+ * fine for logging purposes.
+ * <p>
+ * {@link #shutdown()} must be called when the rate limiter is not needed anymore.
+ */
+public class ErrorLogRateLimiter {
+
+    /**
+     * Returned by {@link #tryAcquire(String, Class)} and {@link #tryAcquire(String, int)} if the error should not be
+     * logged.
+     */
+    public static final long SUPPRESSED = -1;
+
+    /**
+     * HTTP statuses are 3-digit numbers, so windows of statuses below this are kept in arrays indexed by status.
+     */
+    private static final int MAX_INDEXED_STATUS = 999;
+
+    private final int maxErrorsPerInterval;
+    private final long intervalNanos;
+    private final SuppressedErrorsReporter reporter;
+
+    /**
+     * Task of {@link SharedTimer} reporting intervals which are over, {@code null} if the interval is zero (nothing is
+     * ever suppressed then).
+     */
+    @Nullable
+    private final ScheduledFuture<?> reportingTask;
+
+    /**
+     * Keys are config keys. Nested maps/arrays don't require composite keys, so lookups don't allocate.
+     */
+    private final Map<String, ConfigKeyWindows> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxErrorsPerInterval max. number of errors logged per interval for each (config key, error kind) pair
+     * @param interval             interval
+     * @param reporter             reports errors suppressed in intervals which are over, called by the timer thread
+     *                             (must not block it, since it's shared)
+     */
+    public ErrorLogRateLimiter(int maxErrorsPerInterval, Duration interval, SuppressedErrorsReporter reporter) {
+        check(maxErrorsPerInterval, "maxErrorsPerInterval").positive();
+        checkNotNull(interval, "interval");
+        check(interval.toNanos(), "interval").positiveOrZero();
+        checkNotNull(reporter, "reporter");
+
+        this.maxErrorsPerInterval = maxErrorsPerInterval;
+        intervalNanos = interval.toNanos();
+        this.reporter = reporter;
+
+        reportingTask = (intervalNanos == 0)
+                ? null
+                : SharedTimer.INSTANCE.scheduleAtFixedRate(this::reportExpiredWindows, intervalNanos, intervalNanos,
+                        TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Decides whether an I/O error should be logged.
+     *
+     * @param configKey      Feign config key
+     * @param exceptionClass exception class
+     * @return {@link #SUPPRESSED} if the error should not be logged, otherwise the number of similar errors suppressed
+     *         in the previous interval (to be reported along with this error)
+     */
+    public long tryAcquire(String configKey, Class<? extends Throwable> exceptionClass) {
+        // method reference doesn't capture anything, so it's not allocated on each call
+        return tryAcquire(getWindows(configKey).exceptionWindows
+                .computeIfAbsent(exceptionClass, ErrorLogRateLimiter::createWindow));
+    }
+
+    /**
+     * Decides whether an error response should be logged. The status is not boxed.
+     *
+     * @param configKey Feign config key
+     * @param status    HTTP status
+     * @return {@link #SUPPRESSED} if the error should not be logged, otherwise the number of similar errors suppressed
+     *         in the previous interval (to be reported along with this error)
+     */
+    public long tryAcquire(String configKey, int status) {
+        ConfigKeyWindows configKeyWindows = getWindows(configKey);
+
+        // not a real HTTP status, boxing is fine
+        if ((status < 0) || (status > MAX_INDEXED_STATUS)) {
+            return tryAcquire(configKeyWindows.otherStatusWindows
+                    .computeIfAbsent(status, ErrorLogRateLimiter::createWindow));
+        }
+
+        Window window = configKeyWindows.statusWindows.get(status);
+
+        if (window == null) {
+            configKeyWindows.statusWindows.compareAndSet(status, null, new Window(System.nanoTime()));
+            window = configKeyWindows.statusWindows.get(status);
+            // after the window has been stored, so the timer never sees a bit without a window
+            configKeyWindows.markStatusInUse(status);
+        }
+
+        return tryAcquire(window);
+    }
+
+    /**
+     * Stops reporting. Errors suppressed in the current intervals are not reported.
+     */
+    public void shutdown() {
+        if (reportingTask != null) {
+            reportingTask.cancel(false);
+        }
+    }
+
+    private ConfigKeyWindows getWindows(String configKey) {
+        ConfigKeyWindows configKeyWindows = windows.get(configKey);
+
+        return (configKeyWindows == null)
+                ? windows.computeIfAbsent(configKey, key -> new ConfigKeyWindows())
+                : configKeyWindows;
+    }
+
+    private long tryAcquire(Window window) {
+        long suppressedBefore = Math.max(rollOver(window, System.nanoTime()), 0);
+
+        if (window.acquired.incrementAndGet() <= maxErrorsPerInterval) {
+            return suppressedBefore;
+        }
+
+        window.suppressed.increment();
+        return SUPPRESSED;
+    }
+
+    private static Window createWindow(Object errorKind) {
+        return new Window(System.nanoTime());
+    }
+
+    /**
+     * Called by {@link SharedTimer}: rolls over the intervals which are over and reports what's been suppressed in
+     * them.
+     */
+    private void reportExpiredWindows() {
+        long now = System.nanoTime();
+
+        windows.forEach((configKey, configKeyWindows) -> {
+            configKeyWindows.exceptionWindows.forEach((exceptionClass, window) ->
+                    reportExpiredWindow(configKey, exceptionClass, window, now));
+
+            // only statuses seen so far, not all array slots
+            for (int wordIndex = 0; wordIndex < configKeyWindows.statusesInUse.length(); wordIndex++) {
+                long word = configKeyWindows.statusesInUse.get(wordIndex);
+
+                while (word != 0) {
+                    int status = (wordIndex * Long.SIZE) + Long.numberOfTrailingZeros(word);
+                    reportExpiredWindow(configKey, status, configKeyWindows.statusWindows.get(status), now);
+                    word &= word - 1;
+                }
+            }
+
+            configKeyWindows.otherStatusWindows.forEach((status, window) ->
+                    reportExpiredWindow(configKey, status, window, now));
+        });
+    }
+
+    private void reportExpiredWindow(String configKey, Object errorKind, Window window, long now) {
+        long suppressedCount = rollOver(window, now);
+
+        if (suppressedCount > 0) {
+            try {
+                reporter.report(configKey, errorKind, suppressedCount);
+            }
+            // an exception would cancel the reporting task
+            catch (RuntimeException e) {
+                // nowhere to report it to, the reporter is the logger
+            }
+        }
+    }
+
+    /**
+     * Starts a new interval if the current one is over. Only the thread which wins the race does this.
+     *
+     * @param window interval state
+     * @param now    {@link System#nanoTime()}
+     * @return number of errors suppressed in the interval which is over, -1 if the interval is not over or another
+     *         thread has rolled it over
+     */
+    private long rollOver(Window window, long now) {
+        long start = window.start.get();
+
+        if (((now - start) < intervalNanos) || !window.start.compareAndSet(start, now)) {
+            return -1;
+        }
+
+        window.acquired.set(0);
+        return window.suppressed.sumThenReset();
+    }
+
+    /**
+     * Reports errors suppressed in an interval which is over.
+     */
+    @FunctionalInterface
+    public interface SuppressedErrorsReporter {
+
+        /**
+         * Reports suppressed errors.
+         *
+         * @param configKey       Feign config key
+         * @param errorKind       error kind: exception class or HTTP status ({@link Integer})
+         * @param suppressedCount number of similar errors suppressed, always positive
+         */
+        void report(String configKey, Object errorKind, long suppressedCount);
+
+    }
+
+    /**
+     * Timer thread shared by all rate limiters, started when the first rate limiter is created.
+     */
+    private static final class SharedTimer {
+
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform()
+                        .name("feign-error-log-rate-limiter")
+                        .daemon()
+                        .factory());
+
+    }
+
+    /**
+     * Intervals of a config key, by error kind.
+     */
+    private static class ConfigKeyWindows {
+
+        private final Map<Class<? extends Throwable>, Window> exceptionWindows = new ConcurrentHashMap<>();
+
+        /**
+         * Indexes are HTTP statuses, filled on demand.
+         */
+        private final AtomicReferenceArray<Window> statusWindows = new AtomicReferenceArray<>(MAX_INDEXED_STATUS + 1);
+
+        /**
+         * Bitmap of the non-empty slots of {@link #statusWindows}, so the timer doesn't walk all of them: only a few
+         * statuses are ever seen.
+         */
+        private final AtomicLongArray statusesInUse =
+                new AtomicLongArray((MAX_INDEXED_STATUS + Long.SIZE) / Long.SIZE);
+
+        /**
+         * Statuses which don't fit in {@link #statusWindows}.
+         */
+        private final Map<Integer, Window> otherStatusWindows = new ConcurrentHashMap<>();
+
+        private void markStatusInUse(int status) {
+            // lambda doesn't capture anything, so it's not allocated on each call
+            statusesInUse.accumulateAndGet(status / Long.SIZE, 1L << (status % Long.SIZE), (a, b) -> a | b);
+        }
+
+    }
+
+    /**
+     * Interval state for a (config key, error kind) pair.
+     */
+    private static class Window {
+
+        /**
+         * {@link System#nanoTime()} when the interval started.
+         */
+        private final AtomicLong start;
+
+        /**
+         * Number of errors logged in the current interval (may exceed the limit, errors beyond it are suppressed).
+         */
+        private final AtomicInteger acquired = new AtomicInteger();
+
+        private final LongAdder suppressed = new LongAdder();
+
+        Window(long start) {
+            this.start = new AtomicLong(start);
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package guru.nicks.commons.feign.log;
+
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Records latency of each Feign exchange (each attempt, if requests are retried) with {@link FeignLatencyRecorder}.
+ * Feign doesn't call its {@link feign.Logger} at all if the log level is {@link feign.Logger.Level#NONE} (which is the
+ * default), therefore latencies are measured around the client, so that metrics don't depend on logging settings.
+ * <p>
+ * Nothing is recorded until {@link #bindTo(MeterRegistry)} is called (Spring Boot does this for beans). Requests
+ * without a Feign method (and therefore without a config key) are not recorded.
+ */
+public class FeignLatencyCapability implements Capability, MeterBinder {
+
+    private final FeignLatencyRecorder latencyRecorder;
+
+    public FeignLatencyCapability(FeignLatencyRecorder latencyRecorder) {
+        this.latencyRecorder = checkNotNull(latencyRecorder, "latencyRecorder");
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            String configKey = findConfigKey(request);
+
+            if (configKey == null) {
+                return client.execute(request, options);
+            }
+
+            long start = System.nanoTime();
+            Response response;
+
+            try {
+                response = client.execute(request, options);
+            } catch (IOException e) {
+                latencyRecorder.recordIoError(configKey, elapsedMillis(start));
+                throw e;
+            }
+
+            latencyRecorder.record(configKey, request.httpMethod().name(), request.url(), response.status(),
+                    elapsedMillis(start));
+            return response;
+        };
+    }
+
+    /**
+     * Starts recording exchange latencies.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        latencyRecorder.bindTo(registry);
+    }
+
+    @Nullable
+    private static String findConfigKey(Request request) {
+        RequestTemplate template = request.requestTemplate();
+
+        if (template == null) {
+            return null;
+        }
+
+        MethodMetadata methodMetadata = template.methodMetadata();
+
+        return (methodMetadata == null)
+                ? null
+                : methodMetadata.configKey();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+}
@@ -0,0 +1,235 @@
+package guru.nicks.commons.feign.log;
+
+import guru.nicks.commons.feign.FeignConfigKeys;
+import guru.nicks.commons.feign.FeignUrls;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Records latencies of Feign exchanges as Micrometer timers named {@value #METER_NAME}, with percentile histograms
+ * (and client-side percentiles if requested), tagged by client, config key, HTTP method, status class and service (the
+ * host of the request URL before service discovery resolution, such as {@code user-service}).
+ * <p>
+ * Timers are cached per config key, so the hot path doesn't allocate tags or look up timers in the registry (unless
+ * the method or the service differ from what's been cached for the config key, which is possible if the URL is passed
+ * as a method argument). Nothing is recorded until {@link #bindTo(MeterRegistry)} is called.
+ */
+public class FeignLatencyRecorder {
+
+    public static final String METER_NAME = "feign.client.exchange";
+
+    /**
+     * Status class tag value for I/O errors (when there's no response at all).
+     */
+    public static final String IO_ERROR_STATUS_CLASS = "IO_ERROR";
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    /**
+     * Indexes are those returned by {@link #getStatusClassIndex(int)}.
+     */
+    private static final String[] STATUS_CLASSES = {UNKNOWN, "1xx", "2xx", "3xx", "4xx", "5xx", IO_ERROR_STATUS_CLASS};
+
+    private static final int IO_ERROR_INDEX = STATUS_CLASSES.length - 1;
+
+    /**
+     * Keys are config keys.
+     */
+    private final Map<String, ConfigKeyTimers> timersByConfigKey = new ConcurrentHashMap<>();
+
+    /**
+     * Client-side percentiles, empty if none are published.
+     */
+    private final double[] percentiles;
+
+    @Nullable
+    private volatile MeterRegistry registry;
+
+    /**
+     * Constructor.
+     *
+     * @param percentiles client-side percentiles (such as {@code 0.5} and {@code 0.99}) to publish along with
+     *                    percentile histograms, {@code null} or empty for none
+     */
+    public FeignLatencyRecorder(@Nullable Collection<Double> percentiles) {
+        this.percentiles = (percentiles == null)
+                ? new double[0]
+                : percentiles.stream()
+                        .mapToDouble(Double::doubleValue)
+                        .toArray();
+    }
+
+    /**
+     * Starts recording to the given registry.
+     *
+     * @param registry meter registry
+     */
+    public void bindTo(MeterRegistry registry) {
+        this.registry = checkNotNull(registry, "registry");
+        timersByConfigKey.clear();
+    }
+
+    /**
+     * Records latency of an exchange which resulted in a response.
+     *
+     * @param configKey     Feign config key
+     * @param method        HTTP method
+     * @param url           request URL (before service discovery resolution)
+     * @param status        HTTP status
+     * @param elapsedMillis milliseconds elapsed between sending request and receiving response
+     */
+    public void record(String configKey, String method, String url, int status, long elapsedMillis) {
+        MeterRegistry meterRegistry = registry;
+
+        if (meterRegistry == null) {
+            return;
+        }
+
+        ConfigKeyTimers timers = timersByConfigKey.computeIfAbsent(configKey,
+                key -> new ConfigKeyTimers(key, method, extractService(url)));
+        int statusClassIndex = getStatusClassIndex(status);
+
+        // method or service differs from what's been cached for this config key
+        if (!timers.method.equals(method) || !timers.matchesService(url)) {
+            createTimer(meterRegistry, configKey, method, extractService(url), statusClassIndex)
+                    .record(elapsedMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        timers.get(meterRegistry, statusClassIndex).record(elapsedMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records latency of an exchange which failed with an I/O error. Method and service are taken from previous
+     * exchanges with the same config key ({@code UNKNOWN} if there were none).
+     *
+     * @param configKey     Feign config key
+     * @param elapsedMillis milliseconds elapsed between sending request and the error
+     */
+    public void recordIoError(String configKey, long elapsedMillis) {
+        MeterRegistry meterRegistry = registry;
+
+        if (meterRegistry == null) {
+            return;
+        }
+
+        ConfigKeyTimers timers = timersByConfigKey.get(configKey);
+
+        // not cached: method and service are unknown, and caching them as such would slow down successful exchanges
+        Timer timer = (timers == null)
+                ? createTimer(meterRegistry, configKey, UNKNOWN, UNKNOWN, IO_ERROR_INDEX)
+                : timers.get(meterRegistry, IO_ERROR_INDEX);
+        timer.record(elapsedMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Maps HTTP status to an index in {@link #STATUS_CLASSES}.
+     *
+     * @param status HTTP status
+     * @return index
+     */
+    private static int getStatusClassIndex(int status) {
+        int statusClass = status / 100;
+
+        return ((statusClass >= 1) && (statusClass <= 5))
+                ? statusClass
+                : 0;
+    }
+
+    /**
+     * Extracts host (which is service name for service discovery URLs) out of URL.
+     *
+     * @param url URL
+     * @return host, {@code UNKNOWN} if the URL has no scheme
+     */
+    private static String extractService(String url) {
+        String service = FeignUrls.getServiceName(url);
+
+        return (service == null)
+                ? UNKNOWN
+                : service;
+    }
+
+    private Timer createTimer(MeterRegistry registry, String configKey, String method, String service,
+            int statusClassIndex) {
+        return Timer.builder(METER_NAME)
+                .description("Feign client exchange latency")
+                .tags(Tags.of(
+                        "client", FeignConfigKeys.getClientName(configKey),
+                        "configKey", configKey,
+                        "method", method,
+                        "service", service,
+                        "status", STATUS_CLASSES[statusClassIndex]))
+                // server-side percentiles are computed from the histogram, client-side ones are opt-in
+                .publishPercentileHistogram()
+                .publishPercentiles(percentiles)
+                .register(registry);
+    }
+
+    /**
+     * Timers of a config key, one per status class, created lazily.
+     */
+    private class ConfigKeyTimers {
+
+        private final String configKey;
+        private final String method;
+        private final String service;
+        private final Timer[] timers = new Timer[STATUS_CLASSES.length];
+
+        ConfigKeyTimers(String configKey, String method, String service) {
+            this.configKey = configKey;
+            this.method = method;
+            this.service = service;
+        }
+
+        /**
+         * Checks if the URL's host is {@link #service}, without extracting it.
+         *
+         * @param url URL
+         * @return {@code true} if the URL's host is {@link #service}
+         */
+        boolean matchesService(String url) {
+            int hostStart = FeignUrls.findHostStart(url);
+
+            if (hostStart < 0) {
+                return UNKNOWN.equals(service);
+            }
+
+            int hostEnd = FeignUrls.findHostEnd(url, hostStart);
+
+            return ((hostEnd - hostStart) == service.length())
+                    && url.startsWith(service, hostStart);
+        }
+
+        /**
+         * Returns timer for the status class. Races are harmless: the registry returns the same timer for the same
+         * tags.
+         *
+         * @param registry         meter registry
+         * @param statusClassIndex index in {@link #STATUS_CLASSES}
+         * @return timer
+         */
+        Timer get(MeterRegistry registry, int statusClassIndex) {
+            Timer timer = timers[statusClassIndex];
+
+            if (timer == null) {
+                timer = createTimer(registry, configKey, method, service, statusClassIndex);
+                timers[statusClassIndex] = timer;
+            }
+
+            return timer;
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+package guru.nicks.commons.feign.log;
+
+import guru.nicks.commons.feign.domain.FeignLoggerProperties;
+
+/**
+ * Keys of SLF4J key-value pairs attached to log events in {@link FeignLoggerProperties.LogFormat#STRUCTURED} mode.
+ */
+public final class FeignLogKeys {
+
+    /**
+     * Feign config key, such as {@code UserClient#findById(String)}.
+     */
+    public static final String CONFIG_KEY = "configKey";
+
+    /**
+     * HTTP method, such as {@code GET}.
+     */
+    public static final String METHOD = "method";
+
+    /**
+     * URL with service name resolved to the actual host, URL-decoded.
+     */
+    public static final String RESOLVED_URL = "resolvedUrl";
+
+    /**
+     * HTTP status (responses only).
+     */
+    public static final String STATUS = "status";
+
+    /**
+     * HTTP status reason phrase (responses only, if any).
+     */
+    public static final String REASON = "reason";
+
+    /**
+     * Milliseconds elapsed between sending request and receiving response (responses only).
+     */
+    public static final String ELAPSED_MS = "elapsedMs";
+
+    /**
+     * Total body length in bytes (if known).
+     */
+    public static final String BODY_BYTES = "bodyBytes";
+
+    /**
+     * Whether the body logged is not complete.
+     */
+    public static final String TRUNCATED = "truncated";
+
+    private FeignLogKeys() {
+    }
+
+}
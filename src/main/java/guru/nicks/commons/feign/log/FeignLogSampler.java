@@ -0,0 +1,115 @@
+package guru.nicks.commons.feign.log;
+
+import guru.nicks.commons.feign.FeignConfigKeys;
+import guru.nicks.commons.feign.domain.FeignLogSamplingProperties;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Decides whether request/response bodies should be logged, according to {@link FeignLogSamplingProperties}. Sampling
+ * is random (based on {@link ThreadLocalRandom}, so there's no contention between threads), not strictly 1-in-N.
+ * <p>
+ * Settings can be replaced at runtime with {@link #update(FeignLogSamplingProperties)}.
+ */
+public class FeignLogSampler {
+
+    /**
+     * Replaced as a whole by {@link #update(FeignLogSamplingProperties)}, so readers never see partially updated
+     * settings.
+     */
+    private volatile Settings settings;
+
+    /**
+     * Constructor.
+     *
+     * @param properties sampling settings
+     */
+    public FeignLogSampler(FeignLogSamplingProperties properties) {
+        settings = new Settings(properties);
+    }
+
+    /**
+     * Creates sampler which logs all bodies.
+     *
+     * @return sampler
+     */
+    public static FeignLogSampler logAll() {
+        return new FeignLogSampler(FeignLogSamplingProperties.builder().build());
+    }
+
+    /**
+     * Replaces settings.
+     *
+     * @param properties new sampling settings
+     */
+    public void update(FeignLogSamplingProperties properties) {
+        settings = new Settings(properties);
+    }
+
+    /**
+     * Decides whether request body should be logged. Response status is not known yet, so the body is sampled.
+     *
+     * @param configKey Feign config key
+     * @return {@code true} if the body should be logged
+     */
+    public boolean shouldLogRequestBody(String configKey) {
+        return sample(configKey);
+    }
+
+    /**
+     * Decides whether response body should be logged. Bodies of 2xx responses are sampled, all others are always
+     * logged.
+     *
+     * @param configKey Feign config key
+     * @param status    HTTP status
+     * @return {@code true} if the body should be logged
+     */
+    public boolean shouldLogResponseBody(String configKey, int status) {
+        return (status < 200) || (status > 299) || sample(configKey);
+    }
+
+    private boolean sample(String configKey) {
+        int rate = settings.getRate(configKey);
+        return (rate <= 1) || (ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+    /**
+     * Sampling settings with rates resolved per config key.
+     */
+    private static class Settings {
+
+        private final int defaultRate;
+        private final Map<String, Integer> rates;
+
+        /**
+         * Keys are config keys, values are resolved rates.
+         */
+        private final Map<String, Integer> rateByConfigKey = new ConcurrentHashMap<>();
+
+        Settings(FeignLogSamplingProperties properties) {
+            checkNotNull(properties, "properties");
+
+            defaultRate = Optional.ofNullable(properties.getRate()).orElse(1);
+            check(defaultRate, "rate").constraint(rate -> rate >= 1, "must be at least 1");
+
+            rates = Optional.ofNullable(properties.getRates()).map(Map::copyOf).orElse(Map.of());
+            rates.forEach((key, rate) ->
+                    check(rate, "rate for '" + key + "'").constraint(value -> value >= 1, "must be at least 1"));
+        }
+
+        int getRate(String configKey) {
+            return rateByConfigKey.computeIfAbsent(configKey, key -> Optional
+                    .ofNullable(rates.get(key))
+                    .or(() -> Optional.ofNullable(rates.get(FeignConfigKeys.getClientName(key))))
+                    .orElse(defaultRate));
+        }
+
+    }
+
+}
@@ -0,0 +1,52 @@
+package guru.nicks.commons.feign.log;
+
+import guru.nicks.commons.feign.FeignUrls;
+
+import jakarta.annotation.Nullable;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+
+import java.net.URI;
+import java.util.function.Function;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Resolves service names in URLs (such as {@code user-service} in {@code http://user-service/users/1}) to URLs of
+ * service instances chosen by {@link LoadBalancerClient}, for logging purposes. The instance chosen is not necessarily
+ * the one the request has been sent to.
+ * <p>
+ * Depends on scheme and authority alone (the rest of the URL is kept as-is), so it can be memoized by
+ * {@link CachingUrlResolver}.
+ */
+public class LoadBalancerUrlResolver implements Function<String, URI> {
+
+    private final LoadBalancerClient loadBalancerClient;
+
+    public LoadBalancerUrlResolver(LoadBalancerClient loadBalancerClient) {
+        this.loadBalancerClient = checkNotNull(loadBalancerClient, "loadBalancerClient");
+    }
+
+    /**
+     * Resolves URL.
+     *
+     * @param url URL
+     * @return resolved URL, {@code null} if the URL has no service name or the service has no instances
+     */
+    @Nullable
+    @Override
+    public URI apply(String url) {
+        String serviceName = FeignUrls.getServiceName(url);
+
+        if (serviceName == null) {
+            return null;
+        }
+
+        ServiceInstance instance = loadBalancerClient.choose(serviceName);
+
+        return (instance == null)
+                ? null
+                : loadBalancerClient.reconstructURI(instance, URI.create(url));
+    }
+
+}
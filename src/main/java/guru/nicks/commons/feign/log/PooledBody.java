@@ -0,0 +1,128 @@
+package guru.nicks.commons.feign.log;
+
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Response body backed by a buffer from {@link BodyBufferPool}. Closing the body returns the buffer to the pool (once),
+ * therefore the body must not be read after it has been closed: streams obtained before that fail with
+ * {@link IOException} instead of reading the buffer, which may already hold another response.
+ */
+public class PooledBody implements Response.Body {
+
+    private final byte[] buffer;
+    private final int length;
+    private final BodyBufferPool bufferPool;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     *
+     * @param buffer     buffer obtained from {@code bufferPool}
+     * @param length     number of body bytes in {@code buffer}
+     * @param bufferPool pool to return {@code buffer} to
+     */
+    public PooledBody(byte[] buffer, int length, BodyBufferPool bufferPool) {
+        this.buffer = buffer;
+        this.length = length;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public Integer length() {
+        return length;
+    }
+
+    /**
+     * @return {@code true} until the body has been closed
+     */
+    @Override
+    public boolean isRepeatable() {
+        return !released.get();
+    }
+
+    @Override
+    public InputStream asInputStream() {
+        if (released.get()) {
+            throw new IllegalStateException("Body has been closed");
+        }
+
+        return new BufferInputStream();
+    }
+
+    @Override
+    public Reader asReader(Charset charset) {
+        Util.checkNotNull(charset, "charset should not be null");
+        return new InputStreamReader(asInputStream(), charset);
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Same as {@link java.io.ByteArrayInputStream}, but checks on each call that the buffer hasn't been released.
+     */
+    private class BufferInputStream extends InputStream {
+
+        private int position;
+
+        @Override
+        public int read() throws IOException {
+            checkNotReleased();
+
+            return (position < length)
+                    ? (buffer[position++] & 0xFF)
+                    : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            Objects.checkFromIndexSize(offset, count, bytes.length);
+            checkNotReleased();
+
+            if (position >= length) {
+                return -1;
+            }
+
+            int bytesRead = Math.min(count, length - position);
+            System.arraycopy(buffer, position, bytes, offset, bytesRead);
+            position += bytesRead;
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            checkNotReleased();
+
+            long skipped = Math.max(Math.min(count, length - position), 0);
+            position += (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            checkNotReleased();
+            return length - position;
+        }
+
+        private void checkNotReleased() throws IOException {
+            if (released.get()) {
+                throw new IOException("Body has been closed, its buffer may already hold another response");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package guru.nicks.commons.feign.log;
+
+import feign.Response;
+import feign.Util;
+import jakarta.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Response body whose beginning has already been read from the original body stream: replays the bytes read, then
+ * continues with the rest of the original stream. Closing this body closes the original one.
+ */
+public class PrefixReplayingBody implements Response.Body {
+
+    private final byte[] prefix;
+    private final Response.Body originalBody;
+    private final InputStream originalStream;
+
+    @Nullable
+    private InputStream stream;
+
+    /**
+     * Constructor.
+     *
+     * @param prefix         bytes already read from {@code originalStream}
+     * @param originalBody   body {@code originalStream} was obtained from
+     * @param originalStream the rest of the body
+     */
+    public PrefixReplayingBody(byte[] prefix, Response.Body originalBody, InputStream originalStream) {
+        this.prefix = prefix;
+        this.originalBody = originalBody;
+        this.originalStream = originalStream;
+    }
+
+    @Override
+    public Integer length() {
+        return originalBody.length();
+    }
+
+    /**
+     * @return {@code false}: the original stream can be read only once
+     */
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public InputStream asInputStream() {
+        if (stream == null) {
+            stream = new SequenceInputStream(new ByteArrayInputStream(prefix), originalStream);
+        }
+
+        return stream;
+    }
+
+    @Override
+    public Reader asReader(Charset charset) {
+        Util.checkNotNull(charset, "charset should not be null");
+        return new InputStreamReader(asInputStream(), charset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Util.ensureClosed(originalStream);
+        originalBody.close();
+    }
+
+}
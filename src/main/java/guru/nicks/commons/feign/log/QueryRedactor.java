@@ -0,0 +1,152 @@
+package guru.nicks.commons.feign.log;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Masks values of sensitive query parameters (such as API keys) in URLs and form-encoded bodies. The query is walked
+ * once, without regular expressions; if there's nothing to mask, the URL is returned as-is, without allocating
+ * anything. Values are masked as they are, that is, percent-encoded. Names are compared after percent-decoding, so
+ * encoded names (such as {@code %74oken}) are masked as well.
+ * <p>
+ * Parameters are split before decoding, so that encoded separators inside values (such as {@code %26}) don't split
+ * them - otherwise, the rest of a sensitive value would be logged as a separate parameter.
+ */
+public class QueryRedactor {
+
+    /**
+     * Replaces sensitive values.
+     */
+    public static final String MASK = "***";
+
+    /**
+     * Default for {@link #QueryRedactor(Collection)}. Names commonly used for non-secret values too (such as
+     * {@code code} or {@code sig}) are not included, so that logs stay useful; add them explicitly if needed.
+     */
+    public static final Set<String> DEFAULT_REDACTED_PARAMETERS = Set.of(
+            "access_token", "accessToken", "api_key", "apiKey", "client_secret", "clientSecret", "password",
+            "refresh_token", "secret", "signature", "token");
+
+    /**
+     * Array (not a set) because parameter names are compared in-place, without extracting them out of the URL.
+     */
+    private final String[] redactedParameters;
+
+    /**
+     * Constructor.
+     *
+     * @param redactedParameters names of query parameters (case-insensitive) whose values should be masked
+     */
+    public QueryRedactor(Collection<String> redactedParameters) {
+        this.redactedParameters = redactedParameters.toArray(String[]::new);
+    }
+
+    /**
+     * Masks values of sensitive query parameters.
+     *
+     * @param url URL
+     * @return URL with sensitive values masked (the same instance if there's nothing to mask)
+     */
+    public String redact(String url) {
+        int queryStart = url.indexOf('?');
+
+        if ((queryStart < 0) || (redactedParameters.length == 0)) {
+            return url;
+        }
+
+        int queryEnd = url.indexOf('#', queryStart);
+        if (queryEnd < 0) {
+            queryEnd = url.length();
+        }
+
+        return redact(url, queryStart + 1, queryEnd);
+    }
+
+    /**
+     * Masks values of sensitive parameters in an {@code application/x-www-form-urlencoded} body, which has the same
+     * syntax as a query. The body may be truncated: a value cut short is still masked, and a name cut short has no
+     * value to mask.
+     *
+     * @param form form body
+     * @return form body with sensitive values masked (the same instance if there's nothing to mask)
+     */
+    public String redactForm(String form) {
+        return (redactedParameters.length == 0)
+                ? form
+                : redact(form, 0, form.length());
+    }
+
+    /**
+     * Masks values of sensitive parameters in the given {@code name=value&name=value} region.
+     *
+     * @param str   string to mask values in
+     * @param start region start (inclusive)
+     * @param end   region end (exclusive)
+     * @return string with sensitive values masked (the same instance if there's nothing to mask)
+     */
+    private String redact(String str, int start, int end) {
+        StringBuilder result = null;
+        int copiedUpTo = 0;
+
+        for (int paramStart = start; paramStart < end; ) {
+            int paramEnd = str.indexOf('&', paramStart, end);
+            if (paramEnd < 0) {
+                paramEnd = end;
+            }
+
+            int valueStart = str.indexOf('=', paramStart, paramEnd) + 1;
+
+            // value is not empty, and parameter name is sensitive
+            if ((valueStart > 0) && (valueStart < paramEnd) && isRedacted(str, paramStart, valueStart - 1)) {
+                if (result == null) {
+                    result = new StringBuilder(str.length());
+                }
+
+                result.append(str, copiedUpTo, valueStart).append(MASK);
+                copiedUpTo = paramEnd;
+            }
+
+            paramStart = paramEnd + 1;
+        }
+
+        return (result == null)
+                ? str
+                : result.append(str, copiedUpTo, str.length()).toString();
+    }
+
+    private boolean isRedacted(String str, int nameStart, int nameEnd) {
+        // rare, therefore allocating is fine
+        if ((str.indexOf('%', nameStart, nameEnd) >= 0) || (str.indexOf('+', nameStart, nameEnd) >= 0)) {
+            String name = decode(str.substring(nameStart, nameEnd));
+            return matchesRedactedParameter(name, 0, name.length());
+        }
+
+        return matchesRedactedParameter(str, nameStart, nameEnd);
+    }
+
+    private boolean matchesRedactedParameter(String str, int nameStart, int nameEnd) {
+        int nameLength = nameEnd - nameStart;
+
+        for (String redactedParameter : redactedParameters) {
+            if ((redactedParameter.length() == nameLength)
+                    && str.regionMatches(true, nameStart, redactedParameter, 0, nameLength)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String decode(String name) {
+        try {
+            return URLDecoder.decode(name, StandardCharsets.UTF_8);
+        }
+        // malformed escape sequence - compare the name as-is
+        catch (IllegalArgumentException e) {
+            return name;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package guru.nicks.commons.feign.log;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.event.Level;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+
+/**
+ * Maps HTTP statuses to log levels with a single array lookup. The table is built once, out of defaults (4xx and 5xx
+ * are {@link Level#ERROR}, all others are {@link Level#INFO}) overridden by status classes (such as '4xx') overridden
+ * by exact statuses (such as '404').
+ */
+public class StatusLogLevelRouter {
+
+    /**
+     * Statuses outside the {@code [0, TABLE_SIZE)} range (such as -1 meaning the request wasn't sent) are not in the
+     * table.
+     */
+    private static final int TABLE_SIZE = 600;
+
+    private static final Level OUT_OF_RANGE_STATUS_LEVEL = Level.INFO;
+
+    /**
+     * Index is HTTP status.
+     */
+    private final Level[] levels = new Level[TABLE_SIZE];
+
+    /**
+     * Constructor.
+     *
+     * @param overrides keys are exact statuses ('404') or status classes ('4xx'), case-insensitive
+     * @throws IllegalArgumentException a key is neither a status nor a status class
+     */
+    public StatusLogLevelRouter(@Nullable Map<String, Level> overrides) {
+        Arrays.fill(levels, 0, 400, Level.INFO);
+        Arrays.fill(levels, 400, TABLE_SIZE, Level.ERROR);
+
+        if (overrides == null) {
+            return;
+        }
+
+        // status classes first, to let exact statuses override them
+        overrides.forEach((key, level) -> {
+            if (isStatusClass(key)) {
+                int from = (key.charAt(0) - '0') * 100;
+                Arrays.fill(levels, from, from + 100, level);
+            }
+        });
+
+        overrides.forEach((key, level) -> {
+            if (!isStatusClass(key)) {
+                check(key, "status log level key").constraint(this::isStatus,
+                        "must be an HTTP status (such as '404') or a status class (such as '4xx')");
+                levels[Integer.parseInt(key)] = level;
+            }
+        });
+    }
+
+    /**
+     * Returns the log level configured for the given HTTP status.
+     *
+     * @param status HTTP status
+     * @return log level
+     */
+    public Level route(int status) {
+        return ((status >= 0) && (status < TABLE_SIZE))
+                ? levels[status]
+                : OUT_OF_RANGE_STATUS_LEVEL;
+    }
+
+    private boolean isStatusClass(String key) {
+        return (key.length() == 3)
+                && (key.charAt(0) >= '1') && (key.charAt(0) <= '5')
+                && ((key.charAt(1) == 'x') || (key.charAt(1) == 'X'))
+                && ((key.charAt(2) == 'x') || (key.charAt(2) == 'X'));
+    }
+
+    private boolean isStatus(String key) {
+        return (key.length() == 3)
+                && (key.charAt(0) >= '1') && (key.charAt(0) <= '5')
+                && isAsciiDigit(key.charAt(1))
+                && isAsciiDigit(key.charAt(2));
+    }
+
+    private boolean isAsciiDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+}
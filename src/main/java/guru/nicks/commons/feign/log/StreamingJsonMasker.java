@@ -0,0 +1,205 @@
+package guru.nicks.commons.feign.log;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+
+/**
+ * Masks values of sensitive JSON fields in a single pass: copies JSON tokens from the input to the output, replacing
+ * values (scalars, objects, arrays) of sensitive fields with {@link #MASK}. Unlike parsing to a tree and serializing it
+ * back, never holds the whole document in memory, and stops as soon as the output reaches its size limit.
+ * <p>
+ * Incomplete JSON (such as a truncated body) is masked up to the point where it breaks. Input which is not JSON at all
+ * is copied as-is.
+ * <p>
+ * Output is compact JSON: original whitespace is not preserved.
+ */
+public class StreamingJsonMasker {
+
+    /**
+     * Replaces sensitive values.
+     */
+    public static final String MASK = "***";
+
+    /**
+     * Default for {@link #StreamingJsonMasker(Collection, int)}.
+     */
+    public static final Set<String> DEFAULT_MASKED_FIELDS = Set.of(
+            "password", "passwd", "pwd", "secret", "token",
+            "accessToken", "access_token", "refreshToken", "refresh_token", "idToken", "id_token",
+            "clientSecret", "client_secret", "apiKey", "api_key", "authorization",
+            "cardNumber", "card_number", "cvv", "cvc", "pin");
+
+    /**
+     * Thread-safe, shared by all instances. Doesn't close the output (it's not a stream) and doesn't auto-complete
+     * JSON (it's incomplete when output limit is reached).
+     */
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .build();
+
+    /**
+     * Case-insensitive; lookups don't create intermediate strings.
+     */
+    private final NavigableSet<String> maskedFields;
+
+    private final int maxOutputChars;
+
+    /**
+     * Constructor.
+     *
+     * @param maskedFields   names of fields whose values should be masked, case-insensitive
+     * @param maxOutputChars max. number of characters to append to the output
+     */
+    public StreamingJsonMasker(Collection<String> maskedFields, int maxOutputChars) {
+        check(maxOutputChars, "maxOutputChars").positiveOrZero();
+
+        NavigableSet<String> fields = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        fields.addAll(maskedFields);
+        this.maskedFields = Collections.unmodifiableNavigableSet(fields);
+        this.maxOutputChars = maxOutputChars;
+    }
+
+    /**
+     * Appends {@code json} with sensitive values masked to {@code output}.
+     *
+     * @param json   JSON (UTF-8 or any other encoding Jackson auto-detects)
+     * @param length number of {@code json} bytes to process
+     * @param output where to append the result to
+     * @return {@code true} if the whole input has been processed, {@code false} if the output limit has been reached
+     */
+    public boolean mask(byte[] json, int length, StringBuilder output) {
+        var writer = new BoundedStringBuilderWriter(output, maxOutputChars);
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json, 0, length);
+                JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            try {
+                copyMasked(parser, generator, writer);
+            }
+            // incomplete or not a JSON at all
+            catch (IOException e) {
+                generator.flush();
+
+                if (writer.getCharsWritten() == 0) {
+                    writer.write(new String(json, 0, length, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        // closing parser/generator over in-memory data doesn't throw
+        catch (IOException e) {
+            // do nothing
+        }
+
+        return !writer.isOverflown();
+    }
+
+    private void copyMasked(JsonParser parser, JsonGenerator generator, BoundedStringBuilderWriter writer)
+            throws IOException {
+        JsonToken token;
+
+        while ((token = parser.nextToken()) != null) {
+            // output buffered by generator counts as well
+            if ((writer.getCharsWritten() + generator.getOutputBuffered()) >= maxOutputChars) {
+                writer.markOverflown();
+                break;
+            }
+
+            generator.copyCurrentEvent(parser);
+
+            if ((token == JsonToken.FIELD_NAME) && maskedFields.contains(parser.currentName())) {
+                JsonToken valueToken = parser.nextToken();
+
+                if ((valueToken == JsonToken.START_OBJECT) || (valueToken == JsonToken.START_ARRAY)) {
+                    parser.skipChildren();
+                }
+
+                generator.writeString(MASK);
+            }
+        }
+
+        generator.flush();
+    }
+
+    /**
+     * Appends to {@link StringBuilder} (unlike {@link java.io.StringWriter}, which appends to a synchronized
+     * {@link StringBuffer}), silently dropping everything beyond the limit.
+     */
+    private static class BoundedStringBuilderWriter extends Writer {
+
+        private final StringBuilder target;
+        private final int limit;
+        private int charsWritten;
+        private boolean overflown;
+
+        BoundedStringBuilderWriter(StringBuilder target, int limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            int allowed = Math.min(length, limit - charsWritten);
+
+            if (allowed < length) {
+                overflown = true;
+            }
+
+            if (allowed > 0) {
+                target.append(buffer, offset, allowed);
+                charsWritten += allowed;
+            }
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            int allowed = Math.min(length, limit - charsWritten);
+
+            if (allowed < length) {
+                overflown = true;
+            }
+
+            if (allowed > 0) {
+                target.append(str, offset, offset + allowed);
+                charsWritten += allowed;
+            }
+        }
+
+        @Override
+        public void flush() {
+            // nothing is buffered
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+
+        int getCharsWritten() {
+            return charsWritten;
+        }
+
+        boolean isOverflown() {
+            return overflown;
+        }
+
+        void markOverflown() {
+            overflown = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,4 @@
+@NonNullApi
+package guru.nicks.commons.feign.log;
+
+import org.springframework.lang.NonNullApi;
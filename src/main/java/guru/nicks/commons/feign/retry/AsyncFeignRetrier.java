@@ -0,0 +1,180 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignRetryer;
+
+import feign.RetryableException;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Retries asynchronous calls (such as methods of {@link feign.AsyncFeign} clients returning {@link CompletableFuture})
+ * without parking any thread during backoff: failed attempts are re-submitted after the backoff by a scheduler.
+ * <p>
+ * Attempts are counted, delayed, and logged by {@link FeignRetryer} (see
+ * {@link FeignRetryer#prepareNextAttempt(RetryableException, FeignRetryer.CallState)}), so the retry policy, including
+ * the retry budget, is the same as for synchronous clients. Each attempt builds a new request, so calls are tracked
+ * here rather than by request templates, and the call deadline (if any) of the first attempt is carried to the next
+ * ones (see {@link CallDeadlines}).
+ * <p>
+ * Clients called via this class must not retry on their own, i.e. they must be built with
+ * {@link feign.Retryer#NEVER_RETRY}: {@link feign.AsyncFeign} builders default to {@link feign.Retryer.Default}, which
+ * would multiply attempts and park a thread during its backoff.
+ * <p>
+ * Retries are started on the scheduler thread, so suppliers of attempts must not block (asynchronous clients don't).
+ */
+@Slf4j
+public class AsyncFeignRetrier {
+
+    private final FeignRetryer retryer;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Whether {@link #scheduler} has been created here, and therefore should be shut down here.
+     */
+    private final boolean ownScheduler;
+
+    /**
+     * Constructor. Creates a scheduler with a single daemon thread (started on the first retry).
+     *
+     * @param retryer retryer to make decisions with
+     */
+    public AsyncFeignRetrier(FeignRetryer retryer) {
+        this(retryer, Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("feign-retry-scheduler")
+                .daemon()
+                .factory()), true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param retryer   retryer to make decisions with
+     * @param scheduler scheduler to start retries with (not shut down by this class)
+     */
+    public AsyncFeignRetrier(FeignRetryer retryer, ScheduledExecutorService scheduler) {
+        this(retryer, scheduler, false);
+    }
+
+    private AsyncFeignRetrier(FeignRetryer retryer, ScheduledExecutorService scheduler, boolean ownScheduler) {
+        this.retryer = checkNotNull(retryer, "retryer");
+        this.scheduler = checkNotNull(scheduler, "scheduler");
+        this.ownScheduler = ownScheduler;
+    }
+
+    /**
+     * Makes the first attempt on the calling thread, and retries if the attempt fails with {@link RetryableException}
+     * (possibly wrapped in {@link CompletionException} or {@link ExecutionException}).
+     *
+     * @param attempt makes an attempt (called once per attempt)
+     * @param <T>     result type
+     * @return future completed with the result of the first successful attempt, or with the exception of the last
+     *         attempt
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> attempt) {
+        checkNotNull(attempt, "attempt");
+
+        var result = new CompletableFuture<T>();
+        // retried call is created on the first failure only
+        makeAttempt(attempt, null, result);
+        return result;
+    }
+
+    /**
+     * Shuts down the scheduler if it has been created by this class. Retries scheduled so far are still made, new ones
+     * are not: their results complete with the exception of the previous attempt.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ownScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private <T> void makeAttempt(Supplier<CompletableFuture<T>> attempt, @Nullable RetriedCall call,
+            CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+
+        try {
+            future = (call == null)
+                    ? attempt.get()
+                    : CallDeadlines.continueCall(call.deadline(), attempt);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                onAttemptFailed(attempt, call, result, unwrap(error));
+            }
+        });
+    }
+
+    private <T> void onAttemptFailed(Supplier<CompletableFuture<T>> attempt, @Nullable RetriedCall call,
+            CompletableFuture<T> result, Throwable error) {
+        if (!(error instanceof RetryableException retryableException)) {
+            result.completeExceptionally(error);
+            return;
+        }
+
+        RetriedCall retriedCall = (call == null)
+                ? new RetriedCall(retryer.startCall(retryableException),
+                        CallDeadlines.findDeadline(retryableException.request()))
+                : call;
+        long delayMillis;
+
+        try {
+            delayMillis = retryer.prepareNextAttempt(retryableException, retriedCall.state());
+        } catch (RetryableException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        // recursion depth is limited by the number of attempts
+        if (delayMillis <= 0) {
+            makeAttempt(attempt, retriedCall, result);
+            return;
+        }
+
+        try {
+            scheduler.schedule(() -> makeAttempt(attempt, retriedCall, result), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Retry not scheduled (scheduler has been shut down): {}", e.getMessage());
+            result.completeExceptionally(error);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable unwrapped = error;
+
+        while (((unwrapped instanceof CompletionException) || (unwrapped instanceof ExecutionException))
+                && (unwrapped.getCause() != null)) {
+            unwrapped = unwrapped.getCause();
+        }
+
+        return unwrapped;
+    }
+
+    /**
+     * Call which has failed at least once.
+     *
+     * @param state    attempts made so far
+     * @param deadline call deadline (epoch milliseconds) set on the first attempt, {@code null} if the call has none
+     */
+    private record RetriedCall(FeignRetryer.CallState state, @Nullable Long deadline) {
+    }
+
+}
@@ -0,0 +1,81 @@
+package guru.nicks.commons.feign.retry;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces call deadlines (see {@link CallDeadlines}) on each attempt: the read timeout is shrunk to the time remaining
+ * until the deadline, and an optional header telling the remaining time (in milliseconds) is sent to the server, so it
+ * can drop work which is already too late.
+ * <p>
+ * Applies to synchronous clients only (asynchronous ones use {@link feign.AsyncClient}).
+ */
+public class CallDeadlineCapability implements Capability {
+
+    @Nullable
+    private final String remainingTimeHeader;
+
+    /**
+     * Constructor.
+     *
+     * @param remainingTimeHeader name of the header telling the remaining time to the server, {@code null} means the
+     *                            header is not sent
+     */
+    public CallDeadlineCapability(@Nullable String remainingTimeHeader) {
+        this.remainingTimeHeader = remainingTimeHeader;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            Long deadline = CallDeadlines.findDeadline(request);
+
+            if (deadline == null) {
+                return client.execute(request, options);
+            }
+
+            // the retryer doesn't start attempts past the deadline, but the clock goes on
+            long remainingMillis = Math.max(deadline - System.currentTimeMillis(), 1);
+            Request.Options attemptOptions = (remainingMillis < options.readTimeoutMillis())
+                    ? new Request.Options(options.connectTimeoutMillis(), TimeUnit.MILLISECONDS, remainingMillis,
+                    TimeUnit.MILLISECONDS, options.isFollowRedirects())
+                    : options;
+
+            if (remainingTimeHeader == null) {
+                return client.execute(request, attemptOptions);
+            }
+
+            Response response = client.execute(prepareRequest(request, remainingMillis), attemptOptions);
+            // the response refers to the request built by Feign, not to its copy with the extra header
+            return response.toBuilder()
+                    .request(request)
+                    .build();
+        };
+    }
+
+    /**
+     * Adds {@link #remainingTimeHeader} to the request.
+     *
+     * @param request         original request
+     * @param remainingMillis time remaining until the deadline
+     * @return request to send
+     */
+    private Request prepareRequest(Request request, long remainingMillis) {
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.headers());
+        headers.put(remainingTimeHeader, List.of(String.valueOf(remainingMillis)));
+
+        return Request.create(request.httpMethod(), request.url(), headers, request.body(), request.charset(),
+                request.requestTemplate());
+    }
+
+}
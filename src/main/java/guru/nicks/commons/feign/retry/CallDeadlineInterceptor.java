@@ -0,0 +1,74 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignConfigKeys;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import jakarta.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Attaches call deadline (see {@link CallDeadlines}) to the request template on the first attempt of a call. The
+ * deadline is the call start plus the client-specific timeout, if any, or the default one. Retries of asynchronous
+ * calls (see {@link AsyncFeignRetrier}) keep the deadline of the call's first attempt.
+ */
+public class CallDeadlineInterceptor implements RequestInterceptor {
+
+    @Nullable
+    private final Duration defaultTimeout;
+
+    /**
+     * Keys are client names - simple names of Feign client interfaces.
+     */
+    private final Map<String, Duration> clientTimeouts;
+
+    /**
+     * Constructor.
+     *
+     * @param defaultTimeout max. total duration of a call, {@code null} means calls are not limited
+     * @param clientTimeouts overrides of {@code defaultTimeout}, by client name
+     */
+    public CallDeadlineInterceptor(@Nullable Duration defaultTimeout, Map<String, Duration> clientTimeouts) {
+        this.defaultTimeout = defaultTimeout;
+        this.clientTimeouts = Map.copyOf(clientTimeouts);
+    }
+
+    @Override
+    public void apply(RequestTemplate template) {
+        // not the first attempt
+        if (CallDeadlines.findDeadline(template) != null) {
+            return;
+        }
+
+        Long continuedDeadline = CallDeadlines.findContinuedDeadline();
+
+        // not the first attempt of an asynchronous call, whose template is new
+        if (continuedDeadline != null) {
+            CallDeadlines.startCall(template, continuedDeadline);
+            return;
+        }
+
+        Duration timeout = findTimeout(template);
+
+        if (timeout != null) {
+            CallDeadlines.startCall(template, System.currentTimeMillis() + timeout.toMillis());
+        }
+    }
+
+    @Nullable
+    private Duration findTimeout(RequestTemplate template) {
+        if (clientTimeouts.isEmpty() || (template.methodMetadata() == null)) {
+            return defaultTimeout;
+        }
+
+        Duration clientTimeout = clientTimeouts.get(
+                FeignConfigKeys.getClientName(template.methodMetadata().configKey()));
+
+        return (clientTimeout == null)
+                ? defaultTimeout
+                : clientTimeout;
+    }
+
+}
@@ -0,0 +1,116 @@
+package guru.nicks.commons.feign.retry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.Request;
+import feign.RequestTemplate;
+import jakarta.annotation.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Helpers for call deadlines - the moment by which a Feign call, including all its attempts and sleeps between them,
+ * should be over. The deadline is attached to the request template by {@link CallDeadlineInterceptor} when the call
+ * starts; since the template is shared by all attempts of a call, so is the deadline.
+ * <p>
+ * Deadlines are kept here, not in request headers, so they never go over the wire - whatever client (synchronous or
+ * asynchronous, with or without {@link CallDeadlineCapability}) sends the request.
+ * <p>
+ * Attempts of asynchronous calls retried by {@link AsyncFeignRetrier} build new templates, so the deadline of such a
+ * call is carried from one attempt to another by {@link #continueCall(Long, Supplier)}.
+ */
+public final class CallDeadlines {
+
+    /**
+     * Values are deadlines (epoch milliseconds). Keys are request templates, compared by identity. Weak keys let
+     * deadlines of finished calls be garbage-collected along with their templates.
+     */
+    private static final Cache<RequestTemplate, Long> DEADLINES = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Deadline of the call whose next attempt is being made on the current thread (see
+     * {@link #continueCall(Long, Supplier)}).
+     */
+    private static final ThreadLocal<Long> CONTINUED_DEADLINE = new ThreadLocal<>();
+
+    private CallDeadlines() {
+    }
+
+    /**
+     * Sets the deadline of the call the template belongs to, unless it's been set already (on a previous attempt).
+     *
+     * @param template request template
+     * @param deadline deadline (epoch milliseconds)
+     */
+    public static void startCall(RequestTemplate template, long deadline) {
+        DEADLINES.asMap().putIfAbsent(template, deadline);
+    }
+
+    /**
+     * Finds the deadline of the call the template belongs to.
+     *
+     * @param template request template
+     * @return deadline (epoch milliseconds), {@code null} if the call has no deadline
+     */
+    @Nullable
+    public static Long findDeadline(@Nullable RequestTemplate template) {
+        return (template == null)
+                ? null
+                : DEADLINES.getIfPresent(template);
+    }
+
+    /**
+     * Finds the deadline of the call the request belongs to.
+     *
+     * @param request request
+     * @return deadline (epoch milliseconds), {@code null} if the call has no deadline
+     */
+    @Nullable
+    public static Long findDeadline(@Nullable Request request) {
+        return (request == null)
+                ? null
+                : findDeadline(request.requestTemplate());
+    }
+
+    /**
+     * Makes the next attempt of a call tracked by the caller rather than by a request template: templates built on the
+     * current thread during the attempt get {@code deadline} from {@link CallDeadlineInterceptor} instead of a new one.
+     * Feign runs request interceptors on the thread which invokes the client method, asynchronous clients included.
+     *
+     * @param deadline deadline of the call (epoch milliseconds), {@code null} if the call has no deadline
+     * @param attempt  makes the attempt
+     * @param <T>      attempt result type
+     * @return attempt result
+     */
+    static <T> T continueCall(@Nullable Long deadline, Supplier<T> attempt) {
+        if (deadline == null) {
+            return attempt.get();
+        }
+
+        Long outerDeadline = CONTINUED_DEADLINE.get();
+        CONTINUED_DEADLINE.set(deadline);
+
+        try {
+            return attempt.get();
+        } finally {
+            if (outerDeadline == null) {
+                CONTINUED_DEADLINE.remove();
+            } else {
+                CONTINUED_DEADLINE.set(outerDeadline);
+            }
+        }
+    }
+
+    /**
+     * Finds the deadline of the call whose next attempt is being made on the current thread.
+     *
+     * @return deadline (epoch milliseconds), {@code null} if no call is being continued
+     */
+    @Nullable
+    static Long findContinuedDeadline() {
+        return CONTINUED_DEADLINE.get();
+    }
+
+}
@@ -0,0 +1,87 @@
+package guru.nicks.commons.feign.retry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+
+/**
+ * Estimates the 95th percentile of recent latencies: they are kept in a ring buffer of
+ * {@value #WINDOW} samples, and the percentile is recalculated (by sorting a copy of the buffer) every
+ * {@value #RECALCULATION_INTERVAL} samples, so reading it costs a volatile read only. Latencies are kept in
+ * microseconds, so that fast methods (which respond within a millisecond) don't have a zero percentile.
+ * <p>
+ * Lock-free: concurrent samples may overwrite each other, which doesn't matter for an estimate.
+ */
+public class HedgeDelayEstimator {
+
+    /**
+     * Number of recent samples the percentile is calculated from.
+     */
+    public static final int WINDOW = 128;
+
+    /**
+     * Number of samples between recalculations of the percentile.
+     */
+    public static final int RECALCULATION_INTERVAL = 16;
+
+    private static final double PERCENTILE = 0.95;
+
+    private final int minSamples;
+
+    private final AtomicLongArray latenciesMicros = new AtomicLongArray(WINDOW);
+    private final AtomicLong samples = new AtomicLong();
+
+    /**
+     * -1 means not enough samples yet.
+     */
+    private volatile long percentileMicros = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param minSamples min. number of samples before the percentile is estimated (not more than {@value #WINDOW})
+     */
+    public HedgeDelayEstimator(int minSamples) {
+        check(minSamples, "minSamples").positive();
+        this.minSamples = Math.min(minSamples, WINDOW);
+    }
+
+    /**
+     * Records latency of a call.
+     *
+     * @param latencyMicros latency in microseconds
+     */
+    public void recordMicros(long latencyMicros) {
+        long sample = samples.getAndIncrement();
+        latenciesMicros.set((int) (sample % WINDOW), latencyMicros);
+
+        long count = sample + 1;
+
+        if ((count >= minSamples) && ((count == minSamples) || (count % RECALCULATION_INTERVAL == 0))) {
+            percentileMicros = calculatePercentile((int) Math.min(count, WINDOW));
+        }
+    }
+
+    /**
+     * Returns the estimated 95th percentile of recent latencies.
+     *
+     * @return percentile in microseconds, -1 if there are not enough samples yet
+     */
+    public long getPercentileMicros() {
+        return percentileMicros;
+    }
+
+    private long calculatePercentile(int count) {
+        long[] sorted = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            sorted[i] = latenciesMicros.get(i);
+        }
+
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(PERCENTILE * count) - 1];
+    }
+
+}
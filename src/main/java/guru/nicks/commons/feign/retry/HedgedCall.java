@@ -0,0 +1,264 @@
+package guru.nicks.commons.feign.retry;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.context.ContextSnapshot;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single hedged call (see {@link HedgingCapability}). The first attempt runs on the calling thread, so it sees all of
+ * the caller's thread-local context and costs no thread handoff. If it's still in progress after the hedge delay, the
+ * hedge is sent from a virtual thread with a snapshot of the caller's context (see {@link ContextSnapshot}: tracing
+ * scopes, security context, etc.) and the caller's MDC.
+ * <p>
+ * If the hedge responds first, it interrupts the calling thread to abort the first attempt: a virtual thread blocked in
+ * socket I/O is unblocked by that at once, a platform thread - only when its I/O completes (the hedge's response is
+ * returned then anyway). The interrupt is cleared before the hedge's response is returned.
+ * <p>
+ * {@link #execute(long, ScheduledExecutorService, ExecutorService, ContextSnapshot) execute()} must be called once, by
+ * the calling thread.
+ */
+@Slf4j
+class HedgedCall {
+
+    /**
+     * First attempt in progress, no hedge sent.
+     */
+    private static final int WAITING = 0;
+
+    /**
+     * First attempt and hedge in progress.
+     */
+    private static final int HEDGING = 1;
+
+    /**
+     * First attempt completed (successfully or not), hedge - if any - is discarded.
+     */
+    private static final int FIRST_DONE = 2;
+
+    /**
+     * First attempt failed while the hedge was in progress, the caller waits for the hedge.
+     */
+    private static final int FIRST_FAILED = 3;
+
+    /**
+     * Hedge responded while the first attempt was in progress.
+     */
+    private static final int HEDGE_WON = 4;
+
+    private final Client client;
+    private final Request request;
+    private final Request.Options options;
+    private final RetryBudget budget;
+
+    /**
+     * Records the first attempt's latency, {@code null} if it shouldn't be recorded (the hedge delay is fixed).
+     */
+    @Nullable
+    private final HedgeDelayEstimator delayEstimator;
+
+    private final Thread caller = Thread.currentThread();
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+
+    /**
+     * Completed by the hedge. Only awaited in {@link #FIRST_FAILED} and {@link #HEDGE_WON} states.
+     */
+    private final CompletableFuture<Response> hedgeResult = new CompletableFuture<>();
+
+    /**
+     * Hedge in progress, {@code null} if it hasn't been sent.
+     */
+    @Nullable
+    private volatile Future<?> hedge;
+
+    HedgedCall(Client client, Request request, Request.Options options, RetryBudget budget,
+            @Nullable HedgeDelayEstimator delayEstimator) {
+        this.client = client;
+        this.request = request;
+        this.options = options;
+        this.budget = budget;
+        this.delayEstimator = delayEstimator;
+    }
+
+    /**
+     * Sends the first attempt from the calling thread and schedules the hedge.
+     *
+     * @param delayMicros hedge delay
+     * @param timer       schedules the hedge
+     * @param executor    sends the hedge
+     * @param context     caller's context, restored for the hedge
+     * @return response of the winning attempt
+     * @throws IOException error of the first attempt, if all attempts fail
+     */
+    Response execute(long delayMicros, ScheduledExecutorService timer, ExecutorService executor,
+            ContextSnapshot context) throws IOException {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        ScheduledFuture<?> hedgeTimer;
+
+        try {
+            hedgeTimer = timer.schedule(() -> sendHedge(executor, context, mdc, delayMicros), delayMicros,
+                    TimeUnit.MICROSECONDS);
+        }
+        // timer has been shut down - not hedged
+        catch (RejectedExecutionException e) {
+            return client.execute(request, options);
+        }
+
+        long start = System.nanoTime();
+        Response response;
+
+        try {
+            response = client.execute(request, options);
+        } catch (IOException | RuntimeException e) {
+            hedgeTimer.cancel(false);
+            return onFirstAttemptFailed(e, start);
+        }
+
+        hedgeTimer.cancel(false);
+        return onFirstAttemptResponded(response, start);
+    }
+
+    /**
+     * Called by the timer thread, so it must not block.
+     */
+    private void sendHedge(ExecutorService executor, ContextSnapshot context, @Nullable Map<String, String> mdc,
+            long delayMicros) {
+        if ((state.get() != WAITING) || !budget.tryAcquire() || !state.compareAndSet(WAITING, HEDGING)) {
+            return;
+        }
+
+        log.debug("No response from [{}] in {} us., sending hedged request", request.url(), delayMicros);
+
+        try {
+            hedge = executor.submit(context.wrap(() -> executeHedge(mdc)));
+        }
+        // executor has been shut down - nothing will complete the hedge otherwise
+        catch (RuntimeException e) {
+            hedgeResult.completeExceptionally(e);
+        }
+    }
+
+    private void executeHedge(@Nullable Map<String, String> mdc) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+
+        try {
+            Response response = client.execute(request, options);
+
+            // interrupt first: the caller clears the interrupt once the result is there
+            if (state.compareAndSet(HEDGING, HEDGE_WON)) {
+                caller.interrupt();
+                hedgeResult.complete(response);
+            } else if (state.get() == FIRST_FAILED) {
+                hedgeResult.complete(response);
+            } else {
+                response.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            hedgeResult.completeExceptionally(e);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private Response onFirstAttemptResponded(Response response, long start) {
+        recordLatency(start);
+
+        if (state.compareAndSet(WAITING, FIRST_DONE) || state.compareAndSet(HEDGING, FIRST_DONE)) {
+            cancelHedge();
+            return response;
+        }
+
+        // the hedge has already won
+        response.close();
+        return awaitWinningHedge();
+    }
+
+    private Response onFirstAttemptFailed(Exception firstError, long start) throws IOException {
+        if (state.compareAndSet(WAITING, FIRST_DONE)) {
+            throw rethrow(firstError);
+        }
+
+        if (state.compareAndSet(HEDGING, FIRST_FAILED)) {
+            return awaitHedge(firstError);
+        }
+
+        // the first attempt has been aborted by the winning hedge
+        recordLatency(start);
+        return awaitWinningHedge();
+    }
+
+    /**
+     * Waits for the hedge after the first attempt has failed.
+     *
+     * @throws IOException {@code firstError}, if the hedge has failed too
+     */
+    private Response awaitHedge(Exception firstError) throws IOException {
+        try {
+            return hedgeResult.get();
+        } catch (ExecutionException e) {
+            throw rethrow(firstError);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelHedge();
+            hedgeResult.thenAccept(Response::close);
+            throw new InterruptedIOException("Interrupted while waiting for response from " + request.url());
+        }
+    }
+
+    /**
+     * The hedge interrupts the caller before completing {@link #hedgeResult}, so the interrupt is always cleared here.
+     */
+    private Response awaitWinningHedge() {
+        Response response = hedgeResult.join();
+        Thread.interrupted();
+        return response;
+    }
+
+    /**
+     * Interrupting a virtual thread blocked in socket I/O aborts the I/O. If the hedge has already responded, it closes
+     * its response itself.
+     */
+    private void cancelHedge() {
+        Future<?> sentHedge = hedge;
+
+        if (sentHedge != null) {
+            sentHedge.cancel(true);
+        }
+    }
+
+    /**
+     * A first attempt which has lost took at least as long as it ran until aborted.
+     */
+    private void recordLatency(long start) {
+        if (delayEstimator != null) {
+            delayEstimator.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    private static IOException rethrow(Exception e) {
+        if (e instanceof IOException ioException) {
+            return ioException;
+        }
+
+        throw (RuntimeException) e;
+    }
+
+}
@@ -0,0 +1,241 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignConfigKeys;
+import guru.nicks.commons.feign.decoder.FeignErrorDecoder;
+import guru.nicks.commons.feign.domain.FeignRetryProperties;
+
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Hedges idempotent requests (see {@link FeignErrorDecoder#isIdempotent(Request)}): if no response arrives within the
+ * hedge delay, a second copy of the request is sent, the first response wins, and the other attempt is cancelled (its
+ * response, if any, is closed). The copy goes through the same load-balancing client, which normally picks another
+ * instance, so a single slow instance doesn't set the tail latency.
+ * <p>
+ * The hedge delay is either fixed (per client) or the observed 95th percentile of latencies of the Feign method (see
+ * {@link HedgeDelayEstimator}, but not less than {@link FeignRetryProperties.Hedging#getMinDelay()}, so that methods
+ * responding within a millisecond aren't hedged on every call); in the latter case, methods are not hedged until
+ * enough calls have been observed.
+ * Hedges are limited by a budget (see {@link RetryBudget}) per client: each hedged request deposits a fraction of a
+ * token, each hedge withdraws a whole one, so hedges don't exceed a percentage of requests.
+ * <p>
+ * Only latencies of first attempts are fed to the estimator: a hedged call completes no later than its hedge, so
+ * recording the winner's latency would drag the percentile - and therefore the hedge delay - down with each hedge. A
+ * first attempt which has lost is recorded with the time it took until it was cancelled.
+ * <p>
+ * The first attempt runs on the calling thread; only the hedge runs on a virtual thread, with a snapshot of the
+ * caller's context (see {@link HedgedCall}). Requests which are not hedged are passed to the client as-is. Applies to
+ * synchronous clients only (asynchronous ones use {@link feign.AsyncClient}).
+ */
+public class HedgingCapability implements Capability {
+
+    /**
+     * Default for {@link FeignRetryProperties.Hedging#getMinSamples()}.
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+
+    /**
+     * Default for {@link FeignRetryProperties.Hedging#getMinDelay()}.
+     */
+    public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(5);
+
+    /**
+     * Default for {@link FeignRetryProperties.Hedging#getBudgetPercent()}.
+     */
+    public static final int DEFAULT_BUDGET_PERCENT = 10;
+
+    /**
+     * Default for {@link FeignRetryProperties.Hedging#getMaxTokens()}.
+     */
+    public static final int DEFAULT_MAX_TOKENS = 10;
+
+    /**
+     * Stands for methods which are not hedged (concurrent maps don't hold {@code null}).
+     */
+    private static final MethodHedging NOT_HEDGED = new MethodHedging(null, 0, null, null);
+
+    private final FeignRetryProperties properties;
+
+    /**
+     * Sends hedges, a virtual thread per hedge.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Schedules hedges. Hedges not needed (because the first attempt has completed in time) are removed from its queue
+     * at once.
+     */
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final ContextSnapshotFactory contextSnapshotFactory = ContextSnapshotFactory.builder().build();
+
+    /**
+     * Keys are client names. Budgets are shared by all methods of a client.
+     */
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * Keys are config keys.
+     */
+    private final Map<String, MethodHedging> methodHedgings = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor. Creates an executor starting a virtual thread per hedge and a timer thread scheduling hedges.
+     *
+     * @param properties retry settings ({@link FeignRetryProperties#getHedging()} and its per-client overrides)
+     */
+    public HedgingCapability(FeignRetryProperties properties) {
+        this.properties = checkNotNull(properties, "properties");
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("feign-hedge-", 0)
+                .factory());
+        timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform()
+                .name("feign-hedge-timer")
+                .daemon()
+                .factory());
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            MethodHedging hedging = findHedging(request);
+
+            if (hedging == NOT_HEDGED) {
+                return client.execute(request, options);
+            }
+
+            long delayMicros = hedging.getDelayMicros();
+            hedging.budget.recordSuccess();
+
+            if (delayMicros >= 0) {
+                return new HedgedCall(client, request, options, hedging.budget, hedging.delayEstimator)
+                        .execute(delayMicros, timer, executor, contextSnapshotFactory.captureAll());
+            }
+
+            // not enough latencies observed yet
+            long start = System.nanoTime();
+            Response response = client.execute(request, options);
+            hedging.delayEstimator.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return response;
+        };
+    }
+
+    /**
+     * Stops the executor and the timer. Hedges in progress are completed, scheduled ones are not sent.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        executor.shutdown();
+    }
+
+    private MethodHedging findHedging(Request request) {
+        // POST is never hedged, and its config key is not even looked up
+        if (!FeignErrorDecoder.isIdempotent(request)) {
+            return NOT_HEDGED;
+        }
+
+        String configKey = Optional.ofNullable(request.requestTemplate())
+                .map(RequestTemplate::methodMetadata)
+                .map(MethodMetadata::configKey)
+                .orElse(null);
+
+        if (configKey == null) {
+            return NOT_HEDGED;
+        }
+
+        MethodHedging hedging = methodHedgings.get(configKey);
+
+        return (hedging == null)
+                ? methodHedgings.computeIfAbsent(configKey, this::createHedging)
+                : hedging;
+    }
+
+    /**
+     * Merges client settings (if any) with the top-level ones.
+     */
+    private MethodHedging createHedging(String configKey) {
+        String clientName = FeignConfigKeys.getClientName(configKey);
+        FeignRetryProperties.Hedging defaults = Optional.ofNullable(properties.getHedging())
+                .orElseGet(() -> FeignRetryProperties.Hedging.builder().build());
+        FeignRetryProperties.Hedging overrides = Optional.ofNullable(properties.getClients())
+                .map(clients -> clients.get(clientName))
+                .map(FeignRetryProperties.Client::getHedging)
+                .orElseGet(() -> FeignRetryProperties.Hedging.builder().build());
+
+        boolean enabled = Optional.ofNullable(overrides.getEnabled())
+                .or(() -> Optional.ofNullable(defaults.getEnabled()))
+                .orElse(false);
+
+        if (!enabled) {
+            return NOT_HEDGED;
+        }
+
+        Duration delay = Optional.ofNullable(overrides.getDelay()).orElse(defaults.getDelay());
+        RetryBudget budget = budgets.computeIfAbsent(clientName, name -> new RetryBudget(
+                Optional.ofNullable(overrides.getBudgetPercent())
+                        .or(() -> Optional.ofNullable(defaults.getBudgetPercent()))
+                        .orElse(DEFAULT_BUDGET_PERCENT),
+                Optional.ofNullable(overrides.getMaxTokens())
+                        .or(() -> Optional.ofNullable(defaults.getMaxTokens()))
+                        .orElse(DEFAULT_MAX_TOKENS)));
+
+        if (delay != null) {
+            return new MethodHedging(TimeUnit.NANOSECONDS.toMicros(delay.toNanos()), 0, budget, null);
+        }
+
+        int minSamples = Optional.ofNullable(overrides.getMinSamples())
+                .or(() -> Optional.ofNullable(defaults.getMinSamples()))
+                .orElse(DEFAULT_MIN_SAMPLES);
+        Duration minDelay = Optional.ofNullable(overrides.getMinDelay())
+                .or(() -> Optional.ofNullable(defaults.getMinDelay()))
+                .orElse(DEFAULT_MIN_DELAY);
+        return new MethodHedging(null, TimeUnit.NANOSECONDS.toMicros(minDelay.toNanos()), budget,
+                new HedgeDelayEstimator(minSamples));
+    }
+
+    /**
+     * Hedging settings of a Feign method: either a fixed delay or a delay estimator (with the min. delay applying to
+     * the estimate).
+     */
+    private record MethodHedging(@Nullable Long fixedDelayMicros, long minDelayMicros, RetryBudget budget,
+            @Nullable HedgeDelayEstimator delayEstimator) {
+
+        /**
+         * @return hedge delay in microseconds, -1 if it's unknown yet
+         */
+        long getDelayMicros() {
+            if (fixedDelayMicros != null) {
+                return fixedDelayMicros;
+            }
+
+            long percentileMicros = delayEstimator.getPercentileMicros();
+
+            return (percentileMicros < 0)
+                    ? percentileMicros
+                    : Math.max(percentileMicros, minDelayMicros);
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+package guru.nicks.commons.feign.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+
+/**
+ * Token bucket limiting retries to a percentage of successful requests: each success deposits a fraction of a token,
+ * each retry withdraws a whole token. The bucket holds not more than a fixed number of tokens, so only recent
+ * successes count, and it's full initially, so retries are possible before any success.
+ * <p>
+ * Lock-free: the balance is kept in thousandths of a token in an {@link AtomicLong}.
+ */
+public class RetryBudget {
+
+    private static final long MILLITOKENS_PER_TOKEN = 1000;
+
+    /**
+     * Deposited by each success.
+     */
+    private final long depositMillitokens;
+
+    private final long capacityMillitokens;
+    private final AtomicLong balanceMillitokens;
+
+    private final LongAdder permittedRetries = new LongAdder();
+    private final LongAdder rejectedRetries = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param retryPercent max. number of retries as a percentage of successful requests
+     * @param maxTokens    max. number of retries possible in a burst
+     */
+    public RetryBudget(int retryPercent, int maxTokens) {
+        check(retryPercent, "retryPercent").positiveOrZero();
+        check(maxTokens, "maxTokens").positive();
+
+        depositMillitokens = retryPercent * MILLITOKENS_PER_TOKEN / 100;
+        capacityMillitokens = maxTokens * MILLITOKENS_PER_TOKEN;
+        balanceMillitokens = new AtomicLong(capacityMillitokens);
+    }
+
+    /**
+     * Deposits a fraction of a token (unless the bucket is full).
+     */
+    public void recordSuccess() {
+        // the common case for a healthy service: no CAS contention on a full bucket
+        if (balanceMillitokens.get() >= capacityMillitokens) {
+            return;
+        }
+
+        balanceMillitokens.accumulateAndGet(depositMillitokens,
+                (balance, deposit) -> Math.min(balance + deposit, capacityMillitokens));
+    }
+
+    /**
+     * Withdraws a token if there is one.
+     *
+     * @return {@code true} if the retry is permitted
+     */
+    public boolean tryAcquire() {
+        long balance;
+
+        do {
+            balance = balanceMillitokens.get();
+
+            if (balance < MILLITOKENS_PER_TOKEN) {
+                rejectedRetries.increment();
+                return false;
+            }
+        } while (!balanceMillitokens.compareAndSet(balance, balance - MILLITOKENS_PER_TOKEN));
+
+        permittedRetries.increment();
+        return true;
+    }
+
+    /**
+     * Returns the number of tokens (retries possible right now).
+     *
+     * @return number of tokens, possibly fractional
+     */
+    public double getTokens() {
+        return (double) balanceMillitokens.get() / MILLITOKENS_PER_TOKEN;
+    }
+
+    public long getPermittedRetries() {
+        return permittedRetries.sum();
+    }
+
+    public long getRejectedRetries() {
+        return rejectedRetries.sum();
+    }
+
+}
@@ -0,0 +1,40 @@
+package guru.nicks.commons.feign.retry;
+
+import feign.Capability;
+import feign.Client;
+import feign.Response;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Feeds {@link RetryBudgetRegistry} with successful requests, which is something a {@link feign.Retryer} never sees.
+ * Any response with a status below 500 counts as a success: it means the service is up, and such responses are not
+ * retried anyway.
+ * <p>
+ * The budget of the target service is looked up once per enriched client (see {@link TargetLookupCache}). Requests
+ * without a fixed target (such as those with a URL passed as a method argument) are matched to budgets by their URLs.
+ */
+public class RetryBudgetCapability implements Capability {
+
+    private final RetryBudgetRegistry retryBudgets;
+
+    public RetryBudgetCapability(RetryBudgetRegistry retryBudgets) {
+        this.retryBudgets = checkNotNull(retryBudgets, "retryBudgets");
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        var budgetLookup = new TargetLookupCache<>(retryBudgets::getBudget);
+
+        return (request, options) -> {
+            Response response = client.execute(request, options);
+
+            if (response.status() < 500) {
+                budgetLookup.get(request).recordSuccess();
+            }
+
+            return response;
+        };
+    }
+
+}
@@ -0,0 +1,143 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignUrls;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * {@link RetryBudget}s shared by all Feign clients of the process, one per target service (the host of the request URL
+ * before service discovery resolution, such as {@code user-service}), created lazily.
+ * <p>
+ * Metrics, tagged by service: {@value #TOKENS_METER_NAME} (gauge) and {@value #RETRIES_METER_NAME} (counter, tagged by
+ * {@code outcome}: {@code permitted} / {@code rejected}).
+ */
+public class RetryBudgetRegistry implements MeterBinder {
+
+    public static final String TOKENS_METER_NAME = "feign.retry.budget.tokens";
+    public static final String RETRIES_METER_NAME = "feign.retry.budget.retries";
+
+    /**
+     * Default for {@link #RetryBudgetRegistry(int, int)}.
+     */
+    public static final int DEFAULT_RETRY_PERCENT = 20;
+
+    /**
+     * Default for {@link #RetryBudgetRegistry(int, int)}.
+     */
+    public static final int DEFAULT_MAX_TOKENS = 10;
+
+    private static final String UNKNOWN_SERVICE = "UNKNOWN";
+
+    private final int retryPercent;
+    private final int maxTokens;
+
+    /**
+     * Keys are service names.
+     */
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    @Nullable
+    private volatile MeterRegistry meterRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param retryPercent max. number of retries as a percentage of successful requests, per service
+     * @param maxTokens    max. number of retries possible in a burst, per service
+     */
+    public RetryBudgetRegistry(int retryPercent, int maxTokens) {
+        check(retryPercent, "retryPercent").positiveOrZero();
+        check(maxTokens, "maxTokens").positive();
+
+        this.retryPercent = retryPercent;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Registers metrics of the budgets created so far and of those created later.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = checkNotNull(registry, "registry");
+        // meters are idempotent, so a budget created concurrently and registered twice is not a problem
+        budgets.forEach((service, budget) -> registerMeters(registry, service, budget));
+    }
+
+    /**
+     * Records a successful request to the service the URL points to.
+     *
+     * @param url request URL (before service discovery resolution)
+     */
+    public void recordSuccess(String url) {
+        getBudget(url).recordSuccess();
+    }
+
+    /**
+     * Withdraws a retry from the budget of the service the URL points to.
+     *
+     * @param url request URL (before service discovery resolution)
+     * @return {@code true} if the retry is permitted
+     */
+    public boolean tryAcquire(String url) {
+        return getBudget(url).tryAcquire();
+    }
+
+    /**
+     * Returns the budget of the service the URL points to, creating it if needed.
+     *
+     * @param url request URL (before service discovery resolution)
+     * @return retry budget
+     */
+    public RetryBudget getBudget(String url) {
+        String service = Optional.ofNullable(FeignUrls.getServiceName(url)).orElse(UNKNOWN_SERVICE);
+        RetryBudget budget = budgets.get(service);
+
+        return (budget == null)
+                ? budgets.computeIfAbsent(service, this::createBudget)
+                : budget;
+    }
+
+    private RetryBudget createBudget(String service) {
+        var budget = new RetryBudget(retryPercent, maxTokens);
+        MeterRegistry registry = meterRegistry;
+
+        if (registry != null) {
+            registerMeters(registry, service, budget);
+        }
+
+        return budget;
+    }
+
+    private static void registerMeters(MeterRegistry registry, String service, RetryBudget budget) {
+        Gauge.builder(TOKENS_METER_NAME, budget, RetryBudget::getTokens)
+                .description("Feign retries possible right now")
+                .tag("service", service)
+                .register(registry);
+
+        FunctionCounter.builder(RETRIES_METER_NAME, budget, RetryBudget::getPermittedRetries)
+                .description("Feign retries checked against retry budget")
+                .tag("service", service)
+                .tag("outcome", "permitted")
+                .register(registry);
+
+        FunctionCounter.builder(RETRIES_METER_NAME, budget, RetryBudget::getRejectedRetries)
+                .description("Feign retries checked against retry budget")
+                .tag("service", service)
+                .tag("outcome", "rejected")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,32 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignRetryer;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Retry policy of a Feign method, resolved by {@link RetryPolicyRegistry}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+    /**
+     * Initial interval between attempts in milliseconds.
+     */
+    long period;
+
+    /**
+     * Max. interval between attempts in milliseconds.
+     */
+    long maxPeriod;
+
+    /**
+     * Max. number of attempts, including the first one.
+     */
+    int maxAttempts;
+
+    FeignRetryer.Jitter jitter;
+
+}
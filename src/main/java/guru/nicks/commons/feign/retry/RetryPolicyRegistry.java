@@ -0,0 +1,221 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignConfigKeys;
+import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.domain.FeignRetryProperties;
+
+import jakarta.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Resolves {@link RetryPolicy} of Feign methods out of {@link FeignRetryProperties}: method overrides take precedence
+ * over client overrides, which take precedence over the top-level settings. Policies of all clients and methods
+ * mentioned in settings are created (and therefore validated) up front, each config key is then resolved once.
+ * <p>
+ * Settings can be replaced at runtime with {@link #update(FeignRetryProperties)}.
+ */
+public class RetryPolicyRegistry {
+
+    /**
+     * Replaced as a whole by {@link #update(FeignRetryProperties)}, so readers never see partially updated settings.
+     */
+    private volatile Policies policies;
+
+    /**
+     * Constructor.
+     *
+     * @param properties retry settings
+     */
+    public RetryPolicyRegistry(FeignRetryProperties properties) {
+        policies = new Policies(properties);
+    }
+
+    /**
+     * Replaces settings.
+     *
+     * @param properties new retry settings
+     */
+    public void update(FeignRetryProperties properties) {
+        policies = new Policies(properties);
+    }
+
+    /**
+     * Returns the top-level policy.
+     *
+     * @return retry policy
+     */
+    public RetryPolicy getDefaultPolicy() {
+        return policies.defaultPolicy;
+    }
+
+    /**
+     * Returns the policy of a Feign method.
+     *
+     * @param configKey Feign config key, such as {@code UserClient#findById(String)}; {@code null} means the top-level
+     *                  policy
+     * @return retry policy
+     */
+    public RetryPolicy getPolicy(@Nullable String configKey) {
+        return (configKey == null)
+                ? getDefaultPolicy()
+                : policies.getPolicy(configKey);
+    }
+
+    /**
+     * Policies created out of immutable settings, plus policies resolved out of them by config key so far.
+     */
+    private static class Policies {
+
+        private final RetryPolicy defaultPolicy;
+
+        /**
+         * Keys are client names.
+         */
+        private final Map<String, ClientPolicies> clientPolicies;
+
+        /**
+         * Keys are config keys.
+         */
+        private final Map<String, RetryPolicy> policiesByConfigKey = new ConcurrentHashMap<>();
+
+        /**
+         * Creates policies of all clients and methods mentioned in settings right away, so invalid settings are
+         * rejected here (at startup, or when settings are refreshed) and not when a method is called for the first
+         * time.
+         *
+         * @param properties retry settings
+         */
+        Policies(FeignRetryProperties properties) {
+            checkNotNull(properties, "properties");
+            defaultPolicy = createPolicy(RetryPolicy.builder()
+                            .jitter(FeignRetryer.Jitter.NONE)
+                            .build(),
+                    properties.getInitialDelayBetweenAttempts(), properties.getMaxDelayBetweenAttempts(),
+                    properties.getMaxAttempts(), properties.getJitter());
+
+            clientPolicies = new HashMap<>();
+            Optional.ofNullable(properties.getClients())
+                    .orElseGet(Map::of)
+                    .forEach((clientName, client) -> clientPolicies.put(clientName, createClientPolicies(client)));
+        }
+
+        RetryPolicy getPolicy(String configKey) {
+            RetryPolicy policy = policiesByConfigKey.get(configKey);
+
+            return (policy == null)
+                    ? policiesByConfigKey.computeIfAbsent(configKey, this::resolvePolicy)
+                    : policy;
+        }
+
+        private ClientPolicies createClientPolicies(FeignRetryProperties.Client client) {
+            checkNotNull(client, "client");
+            RetryPolicy clientPolicy = createPolicy(defaultPolicy,
+                    client.getInitialDelayBetweenAttempts(), client.getMaxDelayBetweenAttempts(),
+                    client.getMaxAttempts(), client.getJitter());
+
+            Map<String, RetryPolicy> methodPolicies = new HashMap<>();
+            Optional.ofNullable(client.getMethods())
+                    .orElseGet(Map::of)
+                    .forEach((methodName, method) -> {
+                        checkNotNull(method, "method");
+                        methodPolicies.put(methodName, createPolicy(clientPolicy,
+                                method.getInitialDelayBetweenAttempts(), method.getMaxDelayBetweenAttempts(),
+                                method.getMaxAttempts(), method.getJitter()));
+                    });
+
+            return new ClientPolicies(clientPolicy, methodPolicies);
+        }
+
+        private RetryPolicy resolvePolicy(String configKey) {
+            ClientPolicies client = clientPolicies.get(FeignConfigKeys.getClientName(configKey));
+
+            if (client == null) {
+                return defaultPolicy;
+            }
+
+            RetryPolicy methodPolicy = findMethodPolicy(client.methodPolicies, configKey);
+
+            return (methodPolicy == null)
+                    ? client.policy
+                    : methodPolicy;
+        }
+
+        /**
+         * Finds method policy by method signature (such as {@code findById(String)}), then by method name (such as
+         * {@code findById}).
+         *
+         * @param methodPolicies method policies of a client
+         * @param configKey      config key
+         * @return method policy, {@code null} if there's none
+         */
+        @Nullable
+        private static RetryPolicy findMethodPolicy(Map<String, RetryPolicy> methodPolicies, String configKey) {
+            int hashIndex = configKey.indexOf('#');
+
+            if (methodPolicies.isEmpty() || (hashIndex < 0)) {
+                return null;
+            }
+
+            String signature = configKey.substring(hashIndex + 1);
+            RetryPolicy policy = methodPolicies.get(signature);
+
+            if (policy != null) {
+                return policy;
+            }
+
+            int parenthesisIndex = signature.indexOf('(');
+            return (parenthesisIndex < 0)
+                    ? null
+                    : methodPolicies.get(signature.substring(0, parenthesisIndex));
+        }
+
+        /**
+         * Overrides policy settings with those which are not {@code null}.
+         */
+        private static RetryPolicy createPolicy(RetryPolicy base, @Nullable Duration initialDelay,
+                @Nullable Duration maxDelay, @Nullable Integer maxAttempts, @Nullable FeignRetryer.Jitter jitter) {
+            RetryPolicy.RetryPolicyBuilder builder = base.toBuilder();
+
+            if (initialDelay != null) {
+                check(initialDelay.toMillis(), "initialDelayBetweenAttempts").positiveOrZero();
+                builder.period(initialDelay.toMillis());
+            }
+
+            if (maxDelay != null) {
+                check(maxDelay.toMillis(), "maxDelayBetweenAttempts").positiveOrZero();
+                builder.maxPeriod(maxDelay.toMillis());
+            }
+
+            if (maxAttempts != null) {
+                check(maxAttempts, "maxAttempts").positiveOrZero();
+                builder.maxAttempts(maxAttempts);
+            }
+
+            if (jitter != null) {
+                builder.jitter(jitter);
+            }
+
+            return builder.build();
+        }
+
+    }
+
+    /**
+     * Policies of a client.
+     *
+     * @param policy         client policy
+     * @param methodPolicies keys are method signatures (such as {@code findById(String)}) or method names (such as
+     *                       {@code findById}), as in {@link FeignRetryProperties.Client#getMethods()}
+     */
+    private record ClientPolicies(RetryPolicy policy, Map<String, RetryPolicy> methodPolicies) {
+    }
+
+}
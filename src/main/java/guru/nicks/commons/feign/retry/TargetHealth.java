@@ -0,0 +1,86 @@
+package guru.nicks.commons.feign.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+
+/**
+ * Exponentially weighted moving averages (EWMA) of latency and error rate of recent calls to a service. The weight of
+ * each new call is {@code 2 / (window + 1)}, so the averages mostly reflect the last {@code window} calls; the first
+ * call seeds the averages.
+ * <p>
+ * Lock-free: the averages are kept as {@code double} bits in {@link AtomicLong}s. The two averages are updated
+ * independently, so a reader may see one of them one call ahead of the other, which doesn't matter for averages.
+ */
+public class TargetHealth {
+
+    private final double weight;
+
+    private final AtomicLong latencyMillisBits = new AtomicLong(Double.doubleToRawLongBits(0));
+    private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0));
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param window number of recent calls the averages mostly reflect
+     */
+    public TargetHealth(int window) {
+        check(window, "window").positive();
+        weight = 2.0 / (window + 1);
+    }
+
+    /**
+     * Records a finished call.
+     *
+     * @param latencyMillis call latency in milliseconds
+     * @param error         whether the call has failed (I/O error or 5xx status)
+     */
+    public void recordCall(long latencyMillis, boolean error) {
+        boolean first = (calls.incrementAndGet() == 1);
+
+        updateAverage(latencyMillisBits, latencyMillis, first);
+        updateAverage(errorRateBits, error ? 1 : 0, first);
+    }
+
+    /**
+     * Returns the average latency of recent calls.
+     *
+     * @return latency in milliseconds, 0 if there were no calls
+     */
+    public double getLatencyMillis() {
+        return Double.longBitsToDouble(latencyMillisBits.get());
+    }
+
+    /**
+     * Returns the average error rate of recent calls.
+     *
+     * @return error rate, from 0 to 1
+     */
+    public double getErrorRate() {
+        return Double.longBitsToDouble(errorRateBits.get());
+    }
+
+    /**
+     * Returns the number of calls recorded so far.
+     *
+     * @return number of calls
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    private void updateAverage(AtomicLong averageBits, double sample, boolean first) {
+        long oldBits;
+        long newBits;
+
+        do {
+            oldBits = averageBits.get();
+            double average = first
+                    ? sample
+                    : Double.longBitsToDouble(oldBits) + weight * (sample - Double.longBitsToDouble(oldBits));
+            newBits = Double.doubleToRawLongBits(average);
+        } while (!averageBits.compareAndSet(oldBits, newBits));
+    }
+
+}
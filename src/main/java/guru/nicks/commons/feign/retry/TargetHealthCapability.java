@@ -0,0 +1,46 @@
+package guru.nicks.commons.feign.retry;
+
+import feign.Capability;
+import feign.Client;
+import feign.Response;
+
+import java.io.IOException;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * Feeds {@link TargetHealthRegistry} with every attempt, successful or not. I/O errors and responses with a status of
+ * 500 or above count as errors.
+ * <p>
+ * Like {@link RetryBudgetCapability}, the health of the target service is looked up once per enriched client (see
+ * {@link TargetLookupCache}). Requests without a fixed target are matched to healths by their URLs.
+ */
+public class TargetHealthCapability implements Capability {
+
+    private final TargetHealthRegistry targetHealths;
+
+    public TargetHealthCapability(TargetHealthRegistry targetHealths) {
+        this.targetHealths = checkNotNull(targetHealths, "targetHealths");
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        var healthLookup = new TargetLookupCache<>(targetHealths::getHealth);
+
+        return (request, options) -> {
+            long start = System.nanoTime();
+            Response response;
+
+            try {
+                response = client.execute(request, options);
+            } catch (IOException e) {
+                healthLookup.get(request).recordCall((System.nanoTime() - start) / 1_000_000, true);
+                throw e;
+            }
+
+            healthLookup.get(request).recordCall((System.nanoTime() - start) / 1_000_000, response.status() >= 500);
+            return response;
+        };
+    }
+
+}
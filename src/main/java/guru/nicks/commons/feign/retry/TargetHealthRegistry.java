@@ -0,0 +1,148 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignUrls;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nullable;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static guru.nicks.commons.validation.dsl.ValiDsl.check;
+import static guru.nicks.commons.validation.dsl.ValiDsl.checkNotNull;
+
+/**
+ * {@link TargetHealth} of each target service (the host of the request URL before service discovery resolution, such
+ * as {@code user-service}), created lazily, plus the thresholds {@link guru.nicks.commons.feign.FeignRetryer} adapts
+ * its backoff with.
+ * <p>
+ * Metrics, tagged by service: {@value #LATENCY_METER_NAME} and {@value #ERROR_RATE_METER_NAME} (gauges).
+ */
+public class TargetHealthRegistry implements MeterBinder {
+
+    public static final String LATENCY_METER_NAME = "feign.retry.target.latency";
+    public static final String ERROR_RATE_METER_NAME = "feign.retry.target.error.rate";
+
+    /**
+     * Default for {@link #TargetHealthRegistry(int, int, int)}.
+     */
+    public static final int DEFAULT_WINDOW = 50;
+
+    /**
+     * Default for {@link #TargetHealthRegistry(int, int, int)}.
+     */
+    public static final int DEFAULT_MIN_CALLS = 10;
+
+    /**
+     * Default for {@link #TargetHealthRegistry(int, int, int)}.
+     */
+    public static final int DEFAULT_MAX_ERROR_PERCENT = 50;
+
+    private static final String UNKNOWN_SERVICE = "UNKNOWN";
+
+    private final int window;
+
+    /**
+     * Min. number of calls to a service before its averages are trusted.
+     */
+    @Getter
+    private final int minCalls;
+
+    /**
+     * Error rate (in percent) above which retries to a service are not made.
+     */
+    @Getter
+    private final int maxErrorPercent;
+
+    /**
+     * Keys are service names.
+     */
+    private final Map<String, TargetHealth> healths = new ConcurrentHashMap<>();
+
+    @Nullable
+    private volatile MeterRegistry meterRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param window          number of recent calls the averages mostly reflect
+     * @param minCalls        min. number of calls to a service before its averages are trusted
+     * @param maxErrorPercent error rate (in percent) above which retries to a service are not made
+     */
+    public TargetHealthRegistry(int window, int minCalls, int maxErrorPercent) {
+        check(window, "window").positive();
+        check(minCalls, "minCalls").positive();
+        check(maxErrorPercent, "maxErrorPercent").positiveOrZero();
+
+        this.window = window;
+        this.minCalls = minCalls;
+        this.maxErrorPercent = maxErrorPercent;
+    }
+
+    /**
+     * Registers metrics of the services seen so far and of those seen later.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = checkNotNull(registry, "registry");
+        // meters are idempotent, so a health created concurrently and registered twice is not a problem
+        healths.forEach((service, health) -> registerMeters(registry, service, health));
+    }
+
+    /**
+     * Records a finished call to the service the URL points to.
+     *
+     * @param url           request URL (before service discovery resolution)
+     * @param latencyMillis call latency in milliseconds
+     * @param error         whether the call has failed (I/O error or 5xx status)
+     */
+    public void recordCall(String url, long latencyMillis, boolean error) {
+        getHealth(url).recordCall(latencyMillis, error);
+    }
+
+    /**
+     * Returns the health of the service the URL points to, creating it if needed.
+     *
+     * @param url request URL (before service discovery resolution)
+     * @return target health
+     */
+    public TargetHealth getHealth(String url) {
+        String service = Optional.ofNullable(FeignUrls.getServiceName(url)).orElse(UNKNOWN_SERVICE);
+        TargetHealth health = healths.get(service);
+
+        return (health == null)
+                ? healths.computeIfAbsent(service, this::createHealth)
+                : health;
+    }
+
+    private TargetHealth createHealth(String service) {
+        var health = new TargetHealth(window);
+        MeterRegistry registry = meterRegistry;
+
+        if (registry != null) {
+            registerMeters(registry, service, health);
+        }
+
+        return health;
+    }
+
+    private static void registerMeters(MeterRegistry registry, String service, TargetHealth health) {
+        Gauge.builder(LATENCY_METER_NAME, health, TargetHealth::getLatencyMillis)
+                .description("Average latency of recent Feign calls")
+                .baseUnit("milliseconds")
+                .tag("service", service)
+                .register(registry);
+
+        Gauge.builder(ERROR_RATE_METER_NAME, health, TargetHealth::getErrorRate)
+                .description("Average error rate of recent Feign calls")
+                .tag("service", service)
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,73 @@
+package guru.nicks.commons.feign.retry;
+
+import guru.nicks.commons.feign.FeignUrls;
+
+import feign.Request;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Looks up per-service state (such as {@link RetryBudget} or {@link TargetHealth}) of requests sent by a single
+ * enriched {@link feign.Client}.
+ * <p>
+ * Feign enriches the client of each Feign client separately, and all requests of a Feign client normally go to the
+ * same target, so the state of the target service is looked up once and kept until the target URL changes (for
+ * example, if it has been refreshed). Requests without a fixed target (such as those with a URL passed as a method
+ * argument) are looked up by their URLs every time.
+ *
+ * @param <T> state type
+ */
+class TargetLookupCache<T> {
+
+    private final Function<String, T> lookup;
+
+    /**
+     * State of the target last seen, {@code null} if no request with a fixed target has been seen yet.
+     */
+    private final AtomicReference<TargetEntry<T>> lastTarget = new AtomicReference<>();
+
+    /**
+     * Constructor.
+     *
+     * @param lookup looks up state by URL
+     */
+    TargetLookupCache(Function<String, T> lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * Finds the state of the service the request has been sent to.
+     *
+     * @param request request
+     * @return state
+     */
+    T get(Request request) {
+        String targetUrl = FeignUrls.findTargetUrl(request);
+
+        if (targetUrl == null) {
+            return lookup.apply(request.url());
+        }
+
+        TargetEntry<T> entry = lastTarget.get();
+
+        // same instance unless the target URL has been refreshed
+        if ((entry != null) && entry.url().equals(targetUrl)) {
+            return entry.value();
+        }
+
+        T value = lookup.apply(targetUrl);
+        lastTarget.set(new TargetEntry<>(targetUrl, value));
+        return value;
+    }
+
+    /**
+     * State of a Feign target.
+     *
+     * @param url   target URL
+     * @param value state of the service the URL points to
+     */
+    private record TargetEntry<T>(String url, T value) {
+    }
+
+}
@@ -0,0 +1,4 @@
+@NonNullApi
+package guru.nicks.commons.feign.retry;
+
+import org.springframework.lang.NonNullApi;
@@ -0,0 +1,156 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.retry.AsyncFeignRetrier;
+import guru.nicks.commons.feign.retry.CallDeadlineInterceptor;
+import guru.nicks.commons.feign.retry.CallDeadlines;
+
+import feign.Request;
+import feign.RequestTemplate;
+import feign.RetryableException;
+import io.cucumber.java.After;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Step definitions for testing {@link AsyncFeignRetrier}.
+ */
+@RequiredArgsConstructor
+public class AsyncFeignRetrierSteps {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /**
+     * Names of threads attempts have been made on.
+     */
+    private final List<String> attemptThreads = new CopyOnWriteArrayList<>();
+
+    /**
+     * Call deadlines of requests built by attempts.
+     */
+    private final List<Long> attemptDeadlines = new CopyOnWriteArrayList<>();
+
+    private CallDeadlineInterceptor callDeadlineInterceptor;
+
+    private AsyncFeignRetrier retrier;
+    private CompletableFuture<String> result;
+
+    @After
+    public void afterEachScenario() {
+        if (retrier != null) {
+            retrier.shutdown();
+        }
+    }
+
+    @Given("an async Feign retrier with period {long} ms and maxAttempts {int}")
+    public void anAsyncFeignRetrierWithPeriodMsAndMaxAttempts(long period, int maxAttempts) {
+        retrier = new AsyncFeignRetrier(new FeignRetryer(period, period * 10, maxAttempts));
+    }
+
+    @When("an async call which fails {int} time(s) with {string} is executed")
+    public void anAsyncCallWhichFailsTimesWithIsExecuted(int failures, String exceptionClass) {
+        result = retrier.execute(() -> {
+            attemptThreads.add(Thread.currentThread().getName());
+
+            return (attemptThreads.size() <= failures)
+                    ? CompletableFuture.failedFuture(createException(exceptionClass))
+                    : CompletableFuture.completedFuture("OK");
+        });
+    }
+
+    @Given("call deadline interceptor with deadline {long} ms")
+    public void callDeadlineInterceptorWithDeadlineMs(long deadlineMillis) {
+        callDeadlineInterceptor = new CallDeadlineInterceptor(Duration.ofMillis(deadlineMillis), Map.of());
+    }
+
+    @When("an async call whose attempts build new requests and fail {int} time(s) is executed")
+    public void anAsyncCallWhoseAttemptsBuildNewRequestsAndFailTimesIsExecuted(int failures) {
+        result = retrier.execute(() -> {
+            attemptThreads.add(Thread.currentThread().getName());
+
+            // like AsyncFeign, which builds a new template for each attempt and applies interceptors to it
+            var template = new RequestTemplate();
+            callDeadlineInterceptor.apply(template);
+            // retries are delayed by the backoff, so a new deadline would differ
+            attemptDeadlines.add(CallDeadlines.findDeadline(template));
+
+            if (attemptThreads.size() > failures) {
+                return CompletableFuture.completedFuture("OK");
+            }
+
+            Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                    StandardCharsets.UTF_8, template);
+            return CompletableFuture.failedFuture(new RetryableException(503, "Simulated server error",
+                    Request.HttpMethod.GET, null, (Long) null, request));
+        });
+    }
+
+    @Then("all attempts should have had the same call deadline")
+    public void allAttemptsShouldHaveHadTheSameCallDeadline() {
+        assertThat(attemptDeadlines)
+                .as("attempt deadlines")
+                .doesNotContainNull()
+                .containsOnly(attemptDeadlines.getFirst());
+    }
+
+    @Then("the async call should return {string}")
+    public void theAsyncCallShouldReturn(String expectedResult) throws Exception {
+        assertThat(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .as("result")
+                .isEqualTo(expectedResult);
+    }
+
+    @Then("the async call should fail with {string}")
+    public void theAsyncCallShouldFailWith(String expectedExceptionClass) {
+        Throwable throwable = catchThrowable(() -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertThat(throwable)
+                .as("exception")
+                .isInstanceOf(ExecutionException.class);
+        assertThat(throwable.getCause())
+                .as("cause")
+                .extracting(cause -> cause.getClass().getSimpleName())
+                .isEqualTo(expectedExceptionClass);
+    }
+
+    @Then("{int} attempt(s) should have been made")
+    public void attemptsShouldHaveBeenMade(int expectedCount) {
+        assertThat(attemptThreads)
+                .as("attempts")
+                .hasSize(expectedCount);
+    }
+
+    @Then("retries should have been made on thread {string}")
+    public void retriesShouldHaveBeenMadeOnThread(String expectedThreadName) {
+        assertThat(attemptThreads.subList(1, attemptThreads.size()))
+                .as("retry threads")
+                .isNotEmpty()
+                .containsOnly(expectedThreadName);
+    }
+
+    private static RuntimeException createException(String exceptionClass) {
+        if (!"RetryableException".equals(exceptionClass)) {
+            return new IllegalStateException("Simulated failure");
+        }
+
+        Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return new RetryableException(503, "Simulated server error", Request.HttpMethod.GET, null, (Long) null,
+                request);
+    }
+
+}
@@ -0,0 +1,140 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.log.BodyBufferPool;
+import guru.nicks.commons.feign.log.CapturedResponse;
+
+import feign.Request;
+import feign.Response;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Step definitions for testing {@link BodyBufferPool}.
+ */
+@RequiredArgsConstructor
+public class BodyBufferPoolSteps {
+
+    private BodyBufferPool bufferPool;
+    private byte[] originalBody;
+    private CapturedResponse capturedResponse;
+    private byte[] firstBuffer;
+    private InputStream streamObtainedBeforeClose;
+
+    @Given("a body buffer pool with {int} buffers per size class")
+    public void aBodyBufferPoolWithBuffersPerSizeClass(int maxBuffersPerSizeClass) {
+        bufferPool = new BodyBufferPool(maxBuffersPerSizeClass);
+    }
+
+    @When("a response with a body of {int} bytes is captured")
+    public void aResponseWithABodyOfBytesIsCaptured(int bodyLength) {
+        aResponseWithABodyOfBytesAndDeclaredLengthIsCaptured(bodyLength, bodyLength);
+    }
+
+    @When("a response with a body of {int} bytes and declared length {int} is captured")
+    public void aResponseWithABodyOfBytesAndDeclaredLengthIsCaptured(int bodyLength, int declaredLength) {
+        aResponseWithABodyOfBytesAndDeclaredLengthIsCapturedWithMaxBodyBytes(bodyLength, declaredLength,
+                CapturedResponse.UNLIMITED);
+    }
+
+    @When("a response with a body of {int} bytes and declared length {int} is captured with max. {int} body bytes")
+    public void aResponseWithABodyOfBytesAndDeclaredLengthIsCapturedWithMaxBodyBytes(int bodyLength,
+            int declaredLength, int maxBodyBytes) {
+        originalBody = new byte[bodyLength];
+        new Random(bodyLength).nextBytes(originalBody);
+
+        Request request = Request.create(Request.HttpMethod.GET, "https://example.com", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        Response response = Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .body(new ByteArrayInputStream(originalBody), declaredLength)
+                .build();
+
+        capturedResponse = CapturedResponse.capture(response, maxBodyBytes, bufferPool);
+
+        if (firstBuffer == null) {
+            firstBuffer = capturedResponse.getBody();
+        }
+    }
+
+    @When("a stream of the captured response body is obtained")
+    public void aStreamOfTheCapturedResponseBodyIsObtained() throws IOException {
+        streamObtainedBeforeClose = capturedResponse.getResponse().body().asInputStream();
+    }
+
+    @When("the captured response body is closed")
+    public void theCapturedResponseBodyIsClosed() throws IOException {
+        capturedResponse.getResponse().body().close();
+    }
+
+    @Then("the captured body should be the same as the original one")
+    public void theCapturedBodyShouldBeTheSameAsTheOriginalOne() throws IOException {
+        assertThat(capturedResponse.getLoggableBody())
+                .as("loggable body")
+                .isEqualTo(originalBody);
+
+        try (InputStream inputStream = capturedResponse.getResponse().body().asInputStream()) {
+            assertThat(inputStream.readAllBytes())
+                    .as("rebuffered body")
+                    .isEqualTo(originalBody);
+        }
+    }
+
+    @Then("the captured body should be truncated to {int} bytes with total length {string}")
+    public void theCapturedBodyShouldBeTruncatedToBytesWithTotalLength(int loggableLength, String totalLength) {
+        // format: number of bytes, 'unknown' for null
+        assertThat(capturedResponse.isTruncated())
+                .as("truncated")
+                .isTrue();
+        assertThat(capturedResponse.getLoggableLength())
+                .as("loggable length")
+                .isEqualTo(loggableLength);
+        assertThat(capturedResponse.getTotalLength())
+                .as("total length")
+                .isEqualTo("unknown".equals(totalLength) ? null : Integer.valueOf(totalLength));
+    }
+
+    @Then("{int} body buffer(s) should be leased")
+    public void bodyBuffersShouldBeLeased(int expectedCount) {
+        assertThat(bufferPool.getLeasedCount())
+                .as("leased buffers")
+                .isEqualTo(expectedCount);
+    }
+
+    @Then("reading the stream obtained before close should fail")
+    public void readingTheStreamObtainedBeforeCloseShouldFail() {
+        assertThatThrownBy(() -> streamObtainedBeforeClose.read())
+                .as("read()")
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> streamObtainedBeforeClose.readAllBytes())
+                .as("readAllBytes()")
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> streamObtainedBeforeClose.skip(1))
+                .as("skip()")
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> streamObtainedBeforeClose.available())
+                .as("available()")
+                .isInstanceOf(IOException.class);
+    }
+
+    @Then("the pooled buffer should have been reused")
+    public void thePooledBufferShouldHaveBeenReused() {
+        assertThat(capturedResponse.getBody())
+                .as("pooled buffer")
+                .isSameAs(firstBuffer);
+    }
+
+}
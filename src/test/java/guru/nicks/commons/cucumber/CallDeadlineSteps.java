@@ -0,0 +1,163 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.FeignHeaders;
+import guru.nicks.commons.feign.retry.CallDeadlineCapability;
+import guru.nicks.commons.feign.retry.CallDeadlineInterceptor;
+import guru.nicks.commons.feign.retry.CallDeadlines;
+
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Step definitions for testing {@link CallDeadlineInterceptor} and {@link CallDeadlineCapability}.
+ */
+@RequiredArgsConstructor
+public class CallDeadlineSteps {
+
+    private CallDeadlineInterceptor interceptor;
+    private CallDeadlineCapability capability;
+
+    private RequestTemplate template;
+    private long startMillis;
+
+    private Request originalRequest;
+    private Request sentRequest;
+    private Request.Options sentOptions;
+    private Response returnedResponse;
+
+    @Given("a call deadline interceptor with default timeout {long} ms and timeout {long} ms for {string}")
+    public void aCallDeadlineInterceptorWithDefaultTimeoutMsAndTimeoutMsFor(long defaultTimeout, long clientTimeout,
+            String clientName) {
+        interceptor = new CallDeadlineInterceptor(Duration.ofMillis(defaultTimeout),
+                Map.of(clientName, Duration.ofMillis(clientTimeout)));
+    }
+
+    @When("the call deadline interceptor is applied {int} times to a request of {string}")
+    public void theCallDeadlineInterceptorIsAppliedTimesToARequestOf(int times, String configKey) throws Exception {
+        MethodMetadata methodMetadata = mock(MethodMetadata.class);
+        when(methodMetadata.configKey()).thenReturn(configKey);
+
+        template = new RequestTemplate();
+        template.methodMetadata(methodMetadata);
+        startMillis = System.currentTimeMillis();
+
+        for (int i = 0; i < times; i++) {
+            interceptor.apply(template);
+            // a later attempt must not move the deadline
+            Thread.sleep(10);
+        }
+    }
+
+    @Then("the call deadline should be in {long} to {long} ms")
+    public void theCallDeadlineShouldBeInToMs(long min, long max) {
+        Long deadline = CallDeadlines.findDeadline(template);
+
+        assertThat(deadline)
+                .as("deadline")
+                .isNotNull();
+        assertThat(deadline - startMillis)
+                .as("deadline")
+                .isBetween(min, max);
+    }
+
+    @Then("the request template should have no headers")
+    public void theRequestTemplateShouldHaveNoHeaders() {
+        assertThat(template.headers())
+                .as("template headers")
+                .isEmpty();
+    }
+
+    @Given("a call deadline capability with remaining time header {string}")
+    public void aCallDeadlineCapabilityWithRemainingTimeHeader(String headerName) {
+        capability = new CallDeadlineCapability(headerName);
+    }
+
+    @When("a request with call deadline in {long} ms and read timeout {long} ms is executed")
+    public void aRequestWithCallDeadlineInMsAndReadTimeoutMsIsExecuted(long deadlineMillis, long readTimeout)
+            throws IOException {
+        executeRequest(System.currentTimeMillis() + deadlineMillis, readTimeout);
+    }
+
+    @When("a request without call deadline and read timeout {long} ms is executed")
+    public void aRequestWithoutCallDeadlineAndReadTimeoutMsIsExecuted(long readTimeout) throws IOException {
+        executeRequest(null, readTimeout);
+    }
+
+    @Then("the read timeout of the attempt should be between {long} and {long} ms")
+    public void theReadTimeoutOfTheAttemptShouldBeBetweenMs(long min, long max) {
+        assertThat(sentOptions.readTimeoutMillis())
+                .as("read timeout")
+                .isBetween((int) min, (int) max);
+    }
+
+    @Then("header {string} of the sent request should be between {long} and {long}")
+    public void headerOfTheSentRequestShouldBeBetween(String headerName, long min, long max) {
+        String value = FeignHeaders.findFirst(sentRequest.headers(), headerName);
+
+        assertThat(value)
+                .as(headerName)
+                .isNotNull();
+        assertThat(Long.parseLong(value))
+                .as(headerName)
+                .isBetween(min, max);
+    }
+
+    @Then("the sent request should not have header {string}")
+    public void theSentRequestShouldNotHaveHeader(String headerName) {
+        assertThat(FeignHeaders.findFirst(sentRequest.headers(), headerName))
+                .as(headerName)
+                .isNull();
+    }
+
+    @Then("the returned response should refer to the original request")
+    public void theReturnedResponseShouldReferToTheOriginalRequest() {
+        assertThat(returnedResponse.request())
+                .as("response request")
+                .isSameAs(originalRequest);
+    }
+
+    private void executeRequest(@Nullable Long deadline, long readTimeout) throws IOException {
+        var requestTemplate = new RequestTemplate();
+
+        if (deadline != null) {
+            CallDeadlines.startCall(requestTemplate, deadline);
+        }
+
+        originalRequest = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, requestTemplate);
+
+        Client client = capability.enrich((request, options) -> {
+            sentRequest = request;
+            sentOptions = options;
+
+            return Response.builder()
+                    .status(200)
+                    .reason("OK")
+                    .request(request)
+                    .headers(Map.of())
+                    .build();
+        });
+
+        returnedResponse = client.execute(originalRequest, new Request.Options(1000, TimeUnit.MILLISECONDS,
+                readTimeout, TimeUnit.MILLISECONDS, true));
+    }
+
+}
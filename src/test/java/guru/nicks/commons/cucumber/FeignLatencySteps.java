@@ -0,0 +1,151 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.log.FeignLatencyCapability;
+import guru.nicks.commons.feign.log.FeignLatencyRecorder;
+
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Step definitions for testing {@link FeignLatencyCapability} and {@link FeignLatencyRecorder}.
+ */
+public class FeignLatencySteps {
+
+    private static final String IO_ERROR = "IO error";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FeignLatencyCapability latencyCapability;
+
+    @Given("a Feign latency capability is bound to a meter registry")
+    public void aFeignLatencyCapabilityIsBoundToAMeterRegistry() {
+        aFeignLatencyCapabilityWithLatencyPercentilesIsBoundToAMeterRegistry("");
+    }
+
+    @Given("a Feign latency capability with latency percentiles {string} is bound to a meter registry")
+    public void aFeignLatencyCapabilityWithLatencyPercentilesIsBoundToAMeterRegistry(String latencyPercentiles) {
+        // format: '0.5,0.99', empty for none
+        latencyCapability = new FeignLatencyCapability(new FeignLatencyRecorder(parsePercentiles(latencyPercentiles)));
+        latencyCapability.bindTo(meterRegistry);
+    }
+
+    @When("exchanges of {string} with {string} end with {string}")
+    public void exchangesOfWithEndWith(String configKey, String methodAndUrl, String outcomes) {
+        MethodMetadata methodMetadata = mock(MethodMetadata.class);
+        when(methodMetadata.configKey()).thenReturn(configKey);
+
+        var template = new RequestTemplate();
+        template.methodMetadata(methodMetadata);
+        executeExchanges(template, methodAndUrl, outcomes);
+    }
+
+    @When("exchanges without Feign method with {string} end with {string}")
+    public void exchangesWithoutFeignMethodWithEndWith(String methodAndUrl, String outcomes) {
+        executeExchanges(null, methodAndUrl, outcomes);
+    }
+
+    @Then("exchange latency should have been recorded {int} time(s) with tags:")
+    public void exchangeLatencyShouldHaveBeenRecordedTimesWithTags(int count, Map<String, String> tags) {
+        var search = meterRegistry.find(FeignLatencyRecorder.METER_NAME);
+        tags.forEach(search::tag);
+
+        Timer timer = search.timer();
+        assertThat(timer)
+                .as("timer")
+                .isNotNull();
+        assertThat(timer.count())
+                .as("timer count")
+                .isEqualTo(count);
+    }
+
+    @Then("no exchange latency should have been recorded")
+    public void noExchangeLatencyShouldHaveBeenRecorded() {
+        assertThat(meterRegistry.find(FeignLatencyRecorder.METER_NAME).timers())
+                .as("timers")
+                .isEmpty();
+    }
+
+    @Then("exchange latency with status {string} should have client-side percentiles {string}")
+    public void exchangeLatencyWithStatusShouldHaveClientSidePercentiles(String status, String percentiles) {
+        Timer timer = meterRegistry.find(FeignLatencyRecorder.METER_NAME)
+                .tag("status", status)
+                .timer();
+        assertThat(timer)
+                .as("timer")
+                .isNotNull();
+
+        assertThat(Arrays.stream(timer.takeSnapshot().percentileValues())
+                .map(ValueAtPercentile::percentile)
+                .toList())
+                .as("client-side percentiles")
+                .isEqualTo(parsePercentiles(percentiles));
+    }
+
+    /**
+     * Sends requests through {@link #latencyCapability}, one per outcome.
+     *
+     * @param template     request template, {@code null} for requests without Feign method
+     * @param methodAndUrl format: 'GET http://user-service/users/1'
+     * @param outcomes     format: '200, 503, IO error'
+     */
+    private void executeExchanges(RequestTemplate template, String methodAndUrl, String outcomes) {
+        String[] parts = methodAndUrl.split(" ");
+        Request request = Request.create(Request.HttpMethod.valueOf(parts[0]), parts[1], Map.of(), null,
+                StandardCharsets.UTF_8, template);
+
+        for (String outcome : outcomes.split(",")) {
+            Client client = latencyCapability.enrich((req, options) -> {
+                if (IO_ERROR.equals(outcome.trim())) {
+                    throw new IOException("Connection reset");
+                }
+
+                return Response.builder()
+                        .status(Integer.parseInt(outcome.trim()))
+                        .request(req)
+                        .headers(Map.of())
+                        .build();
+            });
+
+            if (IO_ERROR.equals(outcome.trim())) {
+                assertThatThrownBy(() -> client.execute(request, new Request.Options()))
+                        .as("I/O error")
+                        .isInstanceOf(IOException.class);
+            } else {
+                try {
+                    client.execute(request, new Request.Options());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static List<Double> parsePercentiles(String percentiles) {
+        return percentiles.isBlank()
+                ? List.of()
+                : Arrays.stream(percentiles.split(","))
+                        .map(percentile -> Double.valueOf(percentile.trim()))
+                        .toList();
+    }
+
+}
@@ -2,8 +2,12 @@ package guru.nicks.commons.cucumber;
 
 import guru.nicks.commons.ApplicationContextHolder;
 import guru.nicks.commons.feign.FeignLogger;
+import guru.nicks.commons.feign.domain.FeignLogSamplingProperties;
+import guru.nicks.commons.feign.domain.FeignLoggerProperties;
+import guru.nicks.commons.feign.log.AsyncFeignLogWriter;
+import guru.nicks.commons.feign.log.FeignLogSampler;
+import guru.nicks.commons.log.domain.LogContext;
 import guru.nicks.commons.utils.ExceptionUtils;
-import guru.nicks.commons.utils.json.JsonUtils;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -11,6 +15,7 @@ import ch.qos.logback.core.read.ListAppender;
 import feign.Logger;
 import feign.Request;
 import feign.Response;
+import feign.Util;
 import io.cucumber.java.After;
 import io.cucumber.java.Before;
 import io.cucumber.java.en.Given;
@@ -20,7 +25,10 @@ import lombok.RequiredArgsConstructor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
+import org.slf4j.MDC;
+import org.slf4j.event.KeyValuePair;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.env.Environment;
 
 import java.io.ByteArrayInputStream;
@@ -28,14 +36,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -44,6 +61,8 @@ import static org.mockito.Mockito.when;
 @RequiredArgsConstructor
 public class FeignLoggerSteps {
 
+    private static final Duration AWAIT_TIMEOUT = Duration.ofSeconds(5);
+
     // DI
     private final ListAppender<ILoggingEvent> logAppender;
 
@@ -55,12 +74,13 @@ public class FeignLoggerSteps {
     private Environment environment;
     private AutoCloseable closeableMocks;
     private MockedStatic<ApplicationContextHolder> applicationContextHolderMock;
-    private MockedStatic<JsonUtils> jsonUtilsMock;
     private MockedStatic<ExceptionUtils> exceptionUtilsMock;
 
     private FeignLogger feignLogger;
+    private FeignLogSampler logSampler;
     private Request request;
     private Response response;
+    private Response returnedResponse;
 
     @Before
     public void beforeEachScenario() {
@@ -74,16 +94,8 @@ public class FeignLoggerSteps {
                 .thenReturn(environment);
         when(environment.getProperty(ApplicationContextHolder.SPRING_APPLICATION_NAME_PROPERTY))
                 .thenReturn("test-app");
-
-        // for masking sensitive request/response fields
-        jsonUtilsMock = mockStatic(JsonUtils.class);
-        jsonUtilsMock.when(() -> JsonUtils.maskSensitiveJsonFields(any(byte[].class)))
-                .thenAnswer(invocation -> {
-                    byte[] bytes = invocation.getArgument(0);
-                    return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
-                });
-        jsonUtilsMock.when(() -> JsonUtils.maskSensitiveJsonFields(anyString()))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        applicationContextHolderMock.when(ApplicationContextHolder::findApplicationName)
+                .thenReturn(Optional.of("test-app"));
 
         // for logging exception stack traces
         exceptionUtilsMock = mockStatic(ExceptionUtils.class);
@@ -96,12 +108,14 @@ public class FeignLoggerSteps {
 
     @After
     public void afterEachScenario() throws Exception {
-        if (applicationContextHolderMock != null) {
-            applicationContextHolderMock.close();
+        if (feignLogger != null) {
+            feignLogger.shutdown();
         }
 
-        if (jsonUtilsMock != null) {
-            jsonUtilsMock.close();
+        MDC.clear();
+
+        if (applicationContextHolderMock != null) {
+            applicationContextHolderMock.close();
         }
 
         if (exceptionUtilsMock != null) {
@@ -113,10 +127,72 @@ public class FeignLoggerSteps {
 
     @Given("a Feign Logger is created")
     public void aFeignLoggerIsCreated() {
-        when(urlResolver.apply(anyString()))
-                .thenAnswer(invocation -> URI.create(invocation.getArgument(0)));
+        createFeignLogger(UnaryOperator.identity());
+    }
+
+    /**
+     * Creates a {@link FeignLogger} with the given settings. Property names are those of
+     * {@code spring.cloud.openfeign.logger.*}, values of durations are in milliseconds.
+     *
+     * @param properties property names and values
+     */
+    @Given("a Feign Logger is created with:")
+    public void aFeignLoggerIsCreatedWith(Map<String, String> properties) {
+        createFeignLogger(builder -> {
+            properties.forEach((name, value) -> setProperty(builder, name, value));
+            return builder;
+        });
+    }
+
+    @Given("a Feign Logger is created with URL {string} resolved to {string}")
+    public void aFeignLoggerIsCreatedWithUrlResolvedTo(String url, String resolvedUrl) {
+        createFeignLogger(UnaryOperator.identity());
+        when(urlResolver.apply(url))
+                .thenReturn(URI.create(resolvedUrl));
+    }
 
-        feignLogger = new FeignLogger(urlResolver);
+    @Given("a Feign Logger caching resolved URL bases is created with service URL {string} resolved to {string}")
+    public void aFeignLoggerCachingResolvedUrlBasesIsCreatedWithServiceUrlResolvedTo(String serviceUrl,
+            String resolvedUrl) {
+        createFeignLogger(builder -> builder.resolvedUrlCacheEnabled(true));
+        when(urlResolver.apply(serviceUrl))
+                .thenReturn(URI.create(resolvedUrl));
+    }
+
+    @Given("a Feign Logger is created with body sample rate {int}")
+    public void aFeignLoggerIsCreatedWithBodySampleRate(int rate) {
+        logSampler = new FeignLogSampler(FeignLogSamplingProperties.builder()
+                .rate(rate)
+                .build());
+        createFeignLogger(UnaryOperator.identity());
+    }
+
+    @Given("body sample rate is changed to {int}")
+    public void bodySampleRateIsChangedTo(int rate) {
+        logSampler.update(FeignLogSamplingProperties.builder()
+                .rate(rate)
+                .build());
+    }
+
+    @Given("MDC contains {string} = {string}")
+    public void mdcContains(String key, String value) {
+        MDC.put(key, value);
+    }
+
+    @Given("the application name is changed to {string}")
+    public void theApplicationNameIsChangedTo(String applicationName) {
+        applicationContextHolderMock.when(ApplicationContextHolder::findApplicationName)
+                .thenReturn(Optional.of(applicationName));
+    }
+
+    @When("the application context is refreshed")
+    public void theApplicationContextIsRefreshed() {
+        feignLogger.onApplicationEvent(new ContextRefreshedEvent(applicationContext));
+    }
+
+    @When("the Feign Logger is shut down")
+    public void theFeignLoggerIsShutDown() {
+        feignLogger.shutdown();
     }
 
     @When("a request with method {string} to URL {string} with body {string} is logged")
@@ -167,7 +243,40 @@ public class FeignLoggerSteps {
 
         response = responseBuilder.build();
         // the 1st argument (config key) must contain a '(', otherwise 'feign.logger.methodTag(tag)' fails
-        feignLogger.logAndRebufferResponse("testMethod()", Logger.Level.FULL, response, 1L);
+        returnedResponse = feignLogger.logAndRebufferResponse("testMethod()", Logger.Level.FULL, response, 1L);
+    }
+
+    @When("a response with content type {string} and body {string} is logged")
+    public void aResponseWithContentTypeAndBodyIsLogged(String contentType, String body) {
+        request = Request.create(Request.HttpMethod.GET, "https://example.com", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        response = Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .headers(Map.of("Content-Type", List.of(contentType)))
+                .body(new ByteArrayInputStream(bodyBytes), bodyBytes.length)
+                .build();
+
+        // the 1st argument (config key) must contain a '(', otherwise 'feign.logger.methodTag(tag)' fails
+        returnedResponse = feignLogger.logAndRebufferResponse("testMethod()", Logger.Level.FULL, response, 1L);
+    }
+
+    @When("a response with content type {string} and body of {int} {string} characters is logged")
+    public void aResponseWithContentTypeAndBodyOfCharactersIsLogged(String contentType, int length, String character) {
+        aResponseWithContentTypeAndBodyIsLogged(contentType, character.repeat(length));
+    }
+
+    @When("a request with content type {string} and body {string} is logged")
+    public void aRequestWithContentTypeAndBodyIsLogged(String contentType, String body) {
+        request = Request.create(Request.HttpMethod.POST, "https://example.com",
+                Map.of("Content-Type", List.of(contentType)), body.getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8, null);
+
+        // the 1st argument (config key) must contain a '(', otherwise 'feign.logger.methodTag(tag)' fails
+        feignLogger.logRequest("testMethod()", Logger.Level.FULL, request);
     }
 
     @When("an IOException occurs")
@@ -177,6 +286,59 @@ public class FeignLoggerSteps {
         feignLogger.logIOException("testMethod()", Logger.Level.FULL, ioException, 1L);
     }
 
+    @When("the parent logger logs {string} with argument {string}")
+    public void theParentLoggerLogsWithArgument(String format, String argument) {
+        when(urlResolver.apply(anyString()))
+                .thenAnswer(invocation -> URI.create(invocation.getArgument(0)));
+
+        var parentLineLogger = new ParentLineFeignLogger(urlResolver);
+
+        if (argument.isEmpty()) {
+            parentLineLogger.logParentLine("testMethod()", format);
+        } else {
+            parentLineLogger.logParentLine("testMethod()", format, argument);
+        }
+    }
+
+    @When("{int} IOExceptions occur")
+    public void ioExceptionsOccur(int count) {
+        for (int i = 0; i < count; i++) {
+            anIOExceptionOccurs();
+        }
+    }
+
+    @When("{int} responses with status {int} are logged")
+    public void responsesWithStatusAreLogged(int count, int status) {
+        for (int i = 0; i < count; i++) {
+            aResponseWithStatusAndReasonFromRequestToWithBodyIsLogged(String.valueOf(status), "Error", "GET",
+                    "https://example.com", "oops");
+        }
+    }
+
+    /**
+     * Waits for a log message which may be logged by a background thread, such as errors suppressed by the error rate
+     * limiter, which are reported once its interval is over.
+     */
+    @When("a log message containing {string} has been awaited")
+    public void aLogMessageContainingHasBeenAwaited(String text) {
+        await().atMost(AWAIT_TIMEOUT)
+                .until(() -> {
+                    // ListAppender appends while holding its own lock
+                    synchronized (logAppender) {
+                        return logAppender.list.stream()
+                                .anyMatch(event -> event.getFormattedMessage().contains(text));
+                    }
+                });
+    }
+
+    @Then("{int} log message(s) should contain {string}")
+    public void logMessagesShouldContain(int count, String text) {
+        assertThat(logAppender.list)
+                .as("log events containing '%s'", text)
+                .filteredOn(event -> event.getFormattedMessage().contains(text))
+                .hasSize(count);
+    }
+
     @Then("the request should be logged at info level")
     public void theRequestShouldBeLoggedAtInfoLevel() {
         List<ILoggingEvent> logEvents = logAppender.list;
@@ -254,6 +416,91 @@ public class FeignLoggerSteps {
         }
     }
 
+    @Then("the last log message should contain {string}")
+    public void theLastLogMessageShouldContain(String text) {
+        List<ILoggingEvent> logEvents = logAppender.list;
+        assertThat(logEvents)
+                .as("log events")
+                .isNotEmpty();
+
+        assertThat(logEvents.getLast().getFormattedMessage())
+                .as("log message")
+                .contains(text);
+    }
+
+    @Then("the last log message should not contain {string}")
+    public void theLastLogMessageShouldNotContain(String text) {
+        List<ILoggingEvent> logEvents = logAppender.list;
+        assertThat(logEvents)
+                .as("log events")
+                .isNotEmpty();
+
+        assertThat(logEvents.getLast().getFormattedMessage())
+                .as("log message")
+                .doesNotContain(text);
+    }
+
+    @Then("MDC should contain application name {string}")
+    public void mdcShouldContainApplicationName(String applicationName) {
+        assertThat(LogContext.APP_NAME.get())
+                .as("application name in MDC")
+                .isEqualTo(applicationName);
+    }
+
+    @Then("the last log message should have been logged on thread {string} with MDC {string} = {string}")
+    public void theLastLogMessageShouldHaveBeenLoggedOnThreadWithMdc(String threadName, String mdcKey,
+            String mdcValue) {
+        List<ILoggingEvent> logEvents = logAppender.list;
+        assertThat(logEvents)
+                .as("log events")
+                .isNotEmpty();
+
+        ILoggingEvent lastEvent = logEvents.getLast();
+        assertThat(lastEvent.getThreadName())
+                .as("thread name")
+                .isEqualTo(threadName);
+        assertThat(lastEvent.getMDCPropertyMap())
+                .as("MDC")
+                .containsEntry(mdcKey, mdcValue);
+    }
+
+    @Then("the last log event should have key-value pairs:")
+    public void theLastLogEventShouldHaveKeyValuePairs(Map<String, String> expectedKeyValues) {
+        List<ILoggingEvent> logEvents = logAppender.list;
+        assertThat(logEvents)
+                .as("log events")
+                .isNotEmpty();
+
+        List<KeyValuePair> keyValuePairs = logEvents.getLast().getKeyValuePairs();
+        assertThat(keyValuePairs)
+                .as("key-value pairs")
+                .isNotNull();
+
+        Map<String, String> actualKeyValues = keyValuePairs.stream()
+                .collect(Collectors.toMap(pair -> pair.key, pair -> String.valueOf(pair.value)));
+        assertThat(actualKeyValues)
+                .as("key-value pairs")
+                .containsAllEntriesOf(expectedKeyValues);
+    }
+
+    @Then("URL {string} should have been resolved {int} time(s)")
+    public void urlShouldHaveBeenResolvedTimes(String url, int count) {
+        verify(urlResolver, times(count)).apply(eq(url));
+    }
+
+    @Then("the returned response body should be {string}")
+    public void theReturnedResponseBodyShouldBe(String expectedBody) throws IOException {
+        assertThat(returnedResponse)
+                .as("returned response")
+                .isNotNull();
+
+        try (InputStream inputStream = returnedResponse.body().asInputStream()) {
+            assertThat(new String(Util.toByteArray(inputStream), StandardCharsets.UTF_8))
+                    .as("returned response body")
+                    .isEqualTo(expectedBody);
+        }
+    }
+
     @Then("the log should contain the stack trace")
     public void theLogShouldContainTheStackTrace() {
         List<ILoggingEvent> logEvents = logAppender.list;
@@ -315,4 +562,86 @@ public class FeignLoggerSteps {
         }
     }
 
+    /**
+     * Exposes {@link FeignLogger#log(String, String, Object...)}, which is called by the parent class only.
+     */
+    private static class ParentLineFeignLogger extends FeignLogger {
+
+        ParentLineFeignLogger(Function<String, URI> urlResolver) {
+            super(urlResolver);
+        }
+
+        void logParentLine(String configKey, String format, Object... args) {
+            log(configKey, format, args);
+        }
+
+    }
+
+    /**
+     * Creates {@link #feignLogger} whose URL resolver returns URLs as-is (unless stubbed otherwise afterwards) and
+     * whose log sampler is {@link #logSampler}, if set.
+     *
+     * @param customizer customizes default settings
+     */
+    private void createFeignLogger(UnaryOperator<FeignLoggerProperties.FeignLoggerPropertiesBuilder> customizer) {
+        when(urlResolver.apply(anyString()))
+                .thenAnswer(invocation -> URI.create(invocation.getArgument(0)));
+
+        FeignLoggerProperties properties = customizer.apply(FeignLoggerProperties.builder()).build();
+        feignLogger = (logSampler == null)
+                ? new FeignLogger(urlResolver, properties)
+                : new FeignLogger(urlResolver, properties, logSampler);
+    }
+
+    private static void setProperty(FeignLoggerProperties.FeignLoggerPropertiesBuilder builder, String name,
+            String value) {
+        switch (name) {
+            // format: '404=DEBUG,5xx=WARN'
+            case "status-log-levels" -> builder.statusLogLevels(Arrays.stream(value.split(","))
+                    .map(entry -> entry.split("="))
+                    .collect(Collectors.toMap(
+                            parts -> parts[0].trim(),
+                            parts -> org.slf4j.event.Level.valueOf(parts[1].trim()))));
+            case "max-body-bytes" -> builder.maxBodyBytes(Integer.valueOf(value));
+            case "max-text-body-bytes" -> builder.maxTextBodyBytes(Integer.valueOf(value));
+            case "json-masker" -> builder.jsonMasker(FeignLoggerProperties.JsonMasker.valueOf(value));
+            case "log-format" -> builder.logFormat(FeignLoggerProperties.LogFormat.valueOf(value));
+            case "async.queue-capacity" -> builder.async(getAsync(builder)
+                    .queueCapacity(Integer.valueOf(value))
+                    .build());
+            case "async.overflow-policy" -> builder.async(getAsync(builder)
+                    .overflowPolicy(AsyncFeignLogWriter.OverflowPolicy.valueOf(value))
+                    .build());
+            case "error-rate-limit.max-errors" -> builder.errorRateLimit(getErrorRateLimit(builder)
+                    .maxErrors(Integer.valueOf(value))
+                    .build());
+            case "error-rate-limit.interval" -> builder.errorRateLimit(getErrorRateLimit(builder)
+                    .interval(Duration.ofMillis(Long.parseLong(value)))
+                    .build());
+            default -> throw new IllegalArgumentException("Unknown property: " + name);
+        }
+    }
+
+    /**
+     * @return builder of asynchronous logging settings set so far, enabled
+     */
+    private static FeignLoggerProperties.Async.AsyncBuilder getAsync(
+            FeignLoggerProperties.FeignLoggerPropertiesBuilder builder) {
+        return Optional.ofNullable(builder.build().getAsync())
+                .map(FeignLoggerProperties.Async::toBuilder)
+                .orElseGet(FeignLoggerProperties.Async::builder)
+                .enabled(true);
+    }
+
+    /**
+     * @return builder of error rate limit settings set so far, enabled
+     */
+    private static FeignLoggerProperties.ErrorRateLimit.ErrorRateLimitBuilder getErrorRateLimit(
+            FeignLoggerProperties.FeignLoggerPropertiesBuilder builder) {
+        return Optional.ofNullable(builder.build().getErrorRateLimit())
+                .map(FeignLoggerProperties.ErrorRateLimit::toBuilder)
+                .orElseGet(FeignLoggerProperties.ErrorRateLimit::builder)
+                .enabled(true);
+    }
+
 }
@@ -2,8 +2,11 @@ package guru.nicks.commons.cucumber;
 
 import guru.nicks.commons.cucumber.world.TextWorld;
 import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.retry.CallDeadlines;
+import guru.nicks.commons.feign.retry.RetryBudgetRegistry;
 
 import feign.Request;
+import feign.RequestTemplate;
 import feign.RetryableException;
 import feign.Retryer;
 import io.cucumber.java.en.Given;
@@ -12,6 +15,11 @@ import io.cucumber.java.en.When;
 import lombok.RequiredArgsConstructor;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -28,6 +36,7 @@ public class FeignRetryerSteps {
 
     private FeignRetryer feignRetryer;
     private FeignRetryer clonedRetryer;
+    private final List<Long> sleeps = new ArrayList<>();
 
     private long period;
     private long maxPeriod;
@@ -48,6 +57,26 @@ public class FeignRetryerSteps {
         feignRetryer = new FeignRetryer(period, maxPeriod, maxAttempts);
     }
 
+    /**
+     * Creates a {@link FeignRetryer} instance which records sleeps instead of actually sleeping.
+     */
+    @Given("a FeignRetryer is created with period {long}, maxPeriod {long}, maxAttempts {int} and jitter {string}")
+    public void aFeignRetryerIsCreatedWithPeriodMaxPeriodMaxAttemptsAndJitter(long period, long maxPeriod,
+            int maxAttempts, String jitter) {
+        feignRetryer = new FeignRetryer(period, maxPeriod, maxAttempts, FeignRetryer.Jitter.valueOf(jitter)) {
+            @Override
+            protected void sleep(long millis) {
+                sleeps.add(millis);
+            }
+        };
+    }
+
+    @Given("a FeignRetryer is created with maxAttempts {int} and a retry budget of {int} token(s)")
+    public void aFeignRetryerIsCreatedWithMaxAttemptsAndARetryBudgetOfTokens(int maxAttempts, int maxTokens) {
+        feignRetryer = new FeignRetryer(10, 100, maxAttempts, FeignRetryer.Jitter.NONE,
+                new RetryBudgetRegistry(0, maxTokens));
+    }
+
     /**
      * Calls the {@link FeignRetryer#continueOrPropagate(RetryableException)} method a specified number of times.
      * Captures the last exception thrown.
@@ -56,6 +85,91 @@ public class FeignRetryerSteps {
      */
     @When("continueOrPropagate is called {int} times with a RetryableException")
     public void continueOrPropagateIsCalledTimesWithARetryableException(int calls) {
+        // retry immediately: 'retry after' is in the past
+        callContinueOrPropagate(calls, 0L);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException without Retry-After")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionWithoutRetryAfter(int calls) {
+        callContinueOrPropagate(calls, null);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException with Retry-After in {long} ms")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionWithRetryAfterInMs(int calls,
+            long retryAfterMillis) {
+        callContinueOrPropagate(calls, System.currentTimeMillis() + retryAfterMillis);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException and call deadline in {long} ms")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionAndCallDeadlineInMs(int calls,
+            long deadlineMillis) {
+        var template = new RequestTemplate();
+        CallDeadlines.startCall(template, System.currentTimeMillis() + deadlineMillis);
+        Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, template);
+
+        callContinueOrPropagate(calls, null, request);
+    }
+
+    @Then("the sleeps should be {string} ms")
+    public void theSleepsShouldBeMs(String expectedSleeps) {
+        assertThat(sleeps)
+                .as("sleeps")
+                .isEqualTo(Arrays.stream(expectedSleeps.split(","))
+                        .map(String::trim)
+                        .map(Long::valueOf)
+                        .toList());
+    }
+
+    @Then("sleep {int} should be between {long} and {long} ms")
+    public void sleepShouldBeBetweenMs(int sleepNumber, long min, long max) {
+        assertThat(sleeps)
+                .as("sleeps")
+                .hasSizeGreaterThanOrEqualTo(sleepNumber);
+        assertThat(sleeps.get(sleepNumber - 1))
+                .as("sleep #%d", sleepNumber)
+                .isBetween(min, max);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException of a new request without template")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionOfANewRequestWithoutTemplate(int calls) {
+        // Feign clones the retryer for every call
+        Retryer retryer = feignRetryer.clone();
+        Throwable caughtException = null;
+
+        for (int i = 0; i < calls; i++) {
+            // each attempt is a new object, so attempts are counted by the clone
+            Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                    StandardCharsets.UTF_8, null);
+            var retryableException = new RetryableException(500, "Simulated server error", Request.HttpMethod.GET,
+                    null, null, request);
+
+            try {
+                retryer.continueOrPropagate(retryableException);
+            } catch (Exception e) {
+                caughtException = e;
+                break;
+            }
+        }
+
+        textWorld.setLastException(caughtException);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException of a request with template")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionOfARequestWithTemplate(int calls) {
+        // Feign reuses the request template across all attempts of a call
+        Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, new RequestTemplate());
+        callContinueOrPropagate(calls, null, request);
+    }
+
+    private void callContinueOrPropagate(int calls, Long retryAfter) {
+        callContinueOrPropagate(calls, retryAfter, mock(Request.class));
+    }
+
+    private void callContinueOrPropagate(int calls, Long retryAfter, Request request) {
+        // Feign clones the retryer for every call
+        Retryer retryer = feignRetryer.clone();
         Throwable caughtException = null;
 
         for (int i = 0; i < calls; i++) {
@@ -65,12 +179,33 @@ public class FeignRetryerSteps {
                     "Simulated server error",
                     Request.HttpMethod.GET,
                     null, // cause
-                    0L,   // retryAfter
-                    mock(Request.class)
+                    retryAfter,
+                    request
             );
 
             try {
-                feignRetryer.continueOrPropagate(retryableException);
+                retryer.continueOrPropagate(retryableException);
+            } catch (Exception e) {
+                caughtException = e;
+                break;
+            }
+        }
+
+        textWorld.setLastException(caughtException);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException of a request with template without "
+            + "cloning the FeignRetryer")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionOfARequestWithTemplateWithoutCloning(
+            int calls) {
+        Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, new RequestTemplate());
+        Throwable caughtException = null;
+
+        for (int i = 0; i < calls; i++) {
+            try {
+                feignRetryer.continueOrPropagate(new RetryableException(500, "Simulated server error",
+                        Request.HttpMethod.GET, null, null, request));
             } catch (Exception e) {
                 caughtException = e;
                 break;
@@ -92,22 +227,21 @@ public class FeignRetryerSteps {
     }
 
     /**
-     * Verifies that the cloned {@link FeignRetryer} is a different instance from the original.
+     * Verifies that cloning {@link FeignRetryer} creates a new instance of the same class, which counts attempts of
+     * requests without a template on its own.
      */
-    @Then("the cloned FeignRetryer should be a new instance")
-    public void theClonedFeignRetryerShouldBeANewInstance() {
+    @Then("the cloned FeignRetryer should be a new instance of the same class")
+    public void theClonedFeignRetryerShouldBeANewInstanceOfTheSameClass() {
         assertThat(clonedRetryer)
                 .as("cloned FeignRetryer")
-                .isNotNull()
-                .isNotSameAs(feignRetryer);
+                .isNotSameAs(feignRetryer)
+                .hasSameClassAs(feignRetryer);
     }
 
     /**
      * Verifies that the cloned {@link FeignRetryer} retains the configuration of the original.
-     * Note: This relies on the clone implementation correctly creating a new instance
-     * with the original constructor parameters, as the fields themselves are private
-     * and not directly accessible for comparison. We test this indirectly by cloning
-     * the clone and ensuring it's also a FeignRetryer.
+     * Note: the fields are private and not directly accessible for comparison, so reflection is used. We also clone
+     * the clone and ensure it's a new FeignRetryer.
      */
     @Then("the cloned FeignRetryer should have the same period, maxPeriod, and maxAttempts")
     public void theClonedFeignRetryerShouldHaveTheSamePeriodMaxPeriodAndMaxAttempts() throws Exception {
@@ -0,0 +1,226 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.domain.FeignRetryProperties;
+import guru.nicks.commons.feign.retry.HedgeDelayEstimator;
+import guru.nicks.commons.feign.retry.HedgingCapability;
+
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import io.cucumber.java.After;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Step definitions for testing {@link HedgingCapability} and {@link HedgeDelayEstimator}.
+ */
+@RequiredArgsConstructor
+public class HedgingSteps {
+
+    private HedgeDelayEstimator delayEstimator;
+
+    private HedgingCapability hedgingCapability;
+    private List<Long> attemptDurations;
+    private final AtomicInteger clientCalls = new AtomicInteger();
+    private final CountDownLatch attemptCancelled = new CountDownLatch(1);
+    private final Map<Integer, Map<String, String>> mdcByAttempt = new ConcurrentHashMap<>();
+    private final Map<Integer, Thread> threadByAttempt = new ConcurrentHashMap<>();
+    private int failingAttempt;
+    private Response response;
+
+    @After
+    public void afterEachScenario() {
+        if (hedgingCapability != null) {
+            hedgingCapability.shutdown();
+        }
+
+        MDC.clear();
+    }
+
+    @Given("a hedge delay estimator with min. samples {int}")
+    public void aHedgeDelayEstimatorWithMinSamples(int minSamples) {
+        delayEstimator = new HedgeDelayEstimator(minSamples);
+    }
+
+    @When("latencies from {long} to {long} us are recorded")
+    public void latenciesFromToUsAreRecorded(long from, long to) {
+        for (long latency = from; latency <= to; latency++) {
+            delayEstimator.recordMicros(latency);
+        }
+    }
+
+    @Then("the estimated latency percentile should be {long} us")
+    public void theEstimatedLatencyPercentileShouldBeUs(long expected) {
+        assertThat(delayEstimator.getPercentileMicros())
+                .as("percentile")
+                .isEqualTo(expected);
+    }
+
+    @Given("a hedging capability with delay {long} ms, budget percent {int} and max tokens {int}")
+    public void aHedgingCapabilityWithDelayMsBudgetPercentAndMaxTokens(long delay, int budgetPercent,
+            int maxTokens) {
+        hedgingCapability = new HedgingCapability(createProperties(delay, budgetPercent, maxTokens)
+                .build());
+    }
+
+    @Given("a hedging capability with delay {long} ms, budget percent {int} and max tokens {int}, disabled for {string}")
+    public void aHedgingCapabilityDisabledForClient(long delay, int budgetPercent, int maxTokens, String clientName) {
+        hedgingCapability = new HedgingCapability(createProperties(delay, budgetPercent, maxTokens)
+                .clients(Map.of(clientName, FeignRetryProperties.Client.builder()
+                        .hedging(FeignRetryProperties.Hedging.builder()
+                                .enabled(false)
+                                .build())
+                        .build()))
+                .build());
+    }
+
+    @Given("a hedging capability with estimated delay, min. samples {int} and min. delay {long} ms")
+    public void aHedgingCapabilityWithEstimatedDelayMinSamplesAndMinDelayMs(int minSamples, long minDelay) {
+        hedgingCapability = new HedgingCapability(FeignRetryProperties.builder()
+                .hedging(FeignRetryProperties.Hedging.builder()
+                        .enabled(true)
+                        .minSamples(minSamples)
+                        .minDelay(Duration.ofMillis(minDelay))
+                        .budgetPercent(100)
+                        .maxTokens(10)
+                        .build())
+                .build());
+    }
+
+    @Given("attempts of the client take {string} ms")
+    public void attemptsOfTheClientTakeMs(String durations) {
+        attemptDurations = Arrays.stream(durations.split(","))
+                .map(String::trim)
+                .map(Long::valueOf)
+                .toList();
+    }
+
+    @Given("attempts of the client take {string} ms, attempt {int} failing")
+    public void attemptsOfTheClientTakeMsAttemptFailing(String durations, int attempt) {
+        attemptsOfTheClientTakeMs(durations);
+        failingAttempt = attempt;
+    }
+
+    @Given("the caller's MDC contains {string} = {string}")
+    public void theCallersMdcContains(String key, String value) {
+        MDC.put(key, value);
+    }
+
+    @When("a {string} request of {string} is sent through the hedging capability")
+    public void aRequestOfIsSentThroughTheHedgingCapability(String method, String configKey) throws IOException {
+        MethodMetadata methodMetadata = mock(MethodMetadata.class);
+        when(methodMetadata.configKey()).thenReturn(configKey);
+
+        var template = new RequestTemplate();
+        template.methodMetadata(methodMetadata);
+
+        Request request = Request.create(Request.HttpMethod.valueOf(method), "http://user-service/users/1",
+                Map.of(), null, StandardCharsets.UTF_8, template);
+        Client client = hedgingCapability.enrich(this::executeAttempt);
+
+        response = client.execute(request, new Request.Options());
+    }
+
+    @Then("the response should come from attempt {int}")
+    public void theResponseShouldComeFromAttempt(int attempt) {
+        assertThat(response.reason())
+                .as("response reason")
+                .isEqualTo("attempt " + attempt);
+    }
+
+    @Then("the client should have been called {int} time(s)")
+    public void theClientShouldHaveBeenCalledTimes(int expectedCalls) {
+        assertThat(clientCalls.get())
+                .as("client calls")
+                .isEqualTo(expectedCalls);
+    }
+
+    @Then("attempt {int} should have seen MDC {string} = {string}")
+    public void attemptShouldHaveSeenMdc(int attempt, String key, String value) {
+        assertThat(mdcByAttempt.get(attempt))
+                .as("MDC of attempt %d", attempt)
+                .containsEntry(key, value);
+    }
+
+    @Then("attempt {int} should have run on the caller's thread")
+    public void attemptShouldHaveRunOnTheCallersThread(int attempt) {
+        assertThat(threadByAttempt.get(attempt))
+                .as("thread of attempt %d", attempt)
+                .isSameAs(Thread.currentThread());
+    }
+
+    @Then("the caller's thread should not be interrupted")
+    public void theCallersThreadShouldNotBeInterrupted() {
+        assertThat(Thread.currentThread().isInterrupted())
+                .as("caller interrupted")
+                .isFalse();
+    }
+
+    @Then("the slower attempt should have been cancelled")
+    public void theSlowerAttemptShouldHaveBeenCancelled() throws InterruptedException {
+        assertThat(attemptCancelled.await(1, TimeUnit.SECONDS))
+                .as("slower attempt cancelled")
+                .isTrue();
+    }
+
+    private static FeignRetryProperties.FeignRetryPropertiesBuilder createProperties(long delay, int budgetPercent,
+            int maxTokens) {
+        return FeignRetryProperties.builder()
+                .hedging(FeignRetryProperties.Hedging.builder()
+                        .enabled(true)
+                        .delay(Duration.ofMillis(delay))
+                        .budgetPercent(budgetPercent)
+                        .maxTokens(maxTokens)
+                        .build());
+    }
+
+    /**
+     * Sleeps for the next duration from {@link #attemptDurations}.
+     */
+    private Response executeAttempt(Request request, Request.Options options) throws IOException {
+        int attempt = clientCalls.incrementAndGet();
+        mdcByAttempt.put(attempt, Optional.ofNullable(MDC.getCopyOfContextMap()).orElseGet(Map::of));
+        threadByAttempt.put(attempt, Thread.currentThread());
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(attemptDurations.get(attempt - 1));
+        } catch (InterruptedException e) {
+            attemptCancelled.countDown();
+            throw new InterruptedIOException("attempt " + attempt + " cancelled");
+        }
+
+        if (attempt == failingAttempt) {
+            throw new IOException("attempt " + attempt + " failed");
+        }
+
+        return Response.builder()
+                .status(200)
+                .reason("attempt " + attempt)
+                .request(request)
+                .headers(Map.of())
+                .build();
+    }
+
+}
@@ -0,0 +1,137 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.exception.BusinessException;
+import guru.nicks.commons.feign.decoder.FeignErrorDecoder;
+import guru.nicks.commons.feign.injector.IdempotencyKeyInjector;
+
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.RetryableException;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Step definitions for testing {@link IdempotencyKeyInjector} and how {@link FeignErrorDecoder} treats idempotency
+ * keys.
+ */
+@RequiredArgsConstructor
+public class IdempotencyKeySteps {
+
+    private final AtomicInteger generatedKeys = new AtomicInteger();
+
+    private IdempotencyKeyInjector injector;
+    private RequestTemplate template;
+    private Exception decodedException;
+
+    @Given("an idempotency key injector")
+    public void anIdempotencyKeyInjector() {
+        injector = new IdempotencyKeyInjector() {
+            @Override
+            public String getHeaderValue() {
+                generatedKeys.incrementAndGet();
+                return super.getHeaderValue();
+            }
+        };
+    }
+
+    @Given("a {string} request template with header {string} set to {string}")
+    public void aRequestTemplateWithHeaderSetTo(String method, String headerName, String headerValue) {
+        template = createTemplate(method);
+        template.header(headerName, headerValue);
+    }
+
+    @When("the idempotency key injector is applied {int} time(s) to a {string} request template")
+    public void theIdempotencyKeyInjectorIsAppliedTimesToARequestTemplate(int times, String method) {
+        template = createTemplate(method);
+        theIdempotencyKeyInjectorIsAppliedTimesToTheRequestTemplate(times);
+    }
+
+    /**
+     * Feign applies interceptors to the same template on each attempt of a call.
+     */
+    @When("the idempotency key injector is applied {int} time(s) to the request template")
+    public void theIdempotencyKeyInjectorIsAppliedTimesToTheRequestTemplate(int times) {
+        for (int i = 0; i < times; i++) {
+            injector.apply(template);
+        }
+    }
+
+    @When("a POST request with idempotency key {string} fails with status {int}, decoder idempotency key header {string}")
+    public void aPostRequestWithIdempotencyKeyFails(String key, int status, String decoderHeader) {
+        Map<String, Collection<String>> headers = "null".equals(key)
+                ? Map.of()
+                : Map.of(IdempotencyKeyInjector.DEFAULT_HEADER_NAME, List.of(key));
+        Request request = Request.create(Request.HttpMethod.POST, "https://example.com", headers, null,
+                StandardCharsets.UTF_8, null);
+
+        Response response = Response.builder()
+                .status(status)
+                .reason("Error")
+                .request(request)
+                .headers(Map.of())
+                .build();
+
+        var decoder = new FeignErrorDecoder((httpStatus, cause) -> mock(BusinessException.class),
+                "null".equals(decoderHeader) ? null : decoderHeader);
+        decodedException = decoder.decode("OrderClient#create(Order)", response);
+    }
+
+    @Then("the request template should have a UUID idempotency key")
+    public void theRequestTemplateShouldHaveAUuidIdempotencyKey() {
+        Collection<String> values = template.headers().get(IdempotencyKeyInjector.DEFAULT_HEADER_NAME);
+
+        assertThat(values)
+                .as("idempotency key")
+                .hasSize(1);
+        assertThat(UUID.fromString(values.iterator().next()).version())
+                .as("UUID version")
+                .isEqualTo(4);
+    }
+
+    @Then("the idempotency key should have been generated once")
+    public void theIdempotencyKeyShouldHaveBeenGeneratedOnce() {
+        assertThat(generatedKeys.get())
+                .as("generated keys")
+                .isEqualTo(1);
+    }
+
+    @Then("the request template should have no idempotency key")
+    public void theRequestTemplateShouldHaveNoIdempotencyKey() {
+        assertThat(template.headers())
+                .as("headers")
+                .doesNotContainKey(IdempotencyKeyInjector.DEFAULT_HEADER_NAME);
+    }
+
+    @Then("the request template should have idempotency key {string}")
+    public void theRequestTemplateShouldHaveIdempotencyKey(String expectedKey) {
+        assertThat(template.headers().get(IdempotencyKeyInjector.DEFAULT_HEADER_NAME))
+                .as("idempotency key")
+                .containsExactly(expectedKey);
+    }
+
+    @Then("the error decoder should treat the request as retryable: {word}")
+    public void theErrorDecoderShouldTreatTheRequestAsRetryable(String retryable) {
+        assertThat(decodedException instanceof RetryableException)
+                .as("retryable")
+                .isEqualTo(Boolean.parseBoolean(retryable));
+    }
+
+    private static RequestTemplate createTemplate(String method) {
+        return new RequestTemplate()
+                .method(Request.HttpMethod.valueOf(method));
+    }
+
+}
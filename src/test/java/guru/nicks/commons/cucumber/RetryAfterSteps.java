@@ -0,0 +1,79 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.exception.BusinessException;
+import guru.nicks.commons.feign.decoder.FeignErrorDecoder;
+import guru.nicks.commons.feign.decoder.RetryAfterParser;
+
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Step definitions for testing {@link RetryAfterParser} and how {@link FeignErrorDecoder} uses it.
+ */
+@RequiredArgsConstructor
+public class RetryAfterSteps {
+
+    private Long parsedRetryAfter;
+    private Exception decodedException;
+
+    @When("Retry-After {string} is parsed at {long} epoch millis")
+    public void retryAfterIsParsedAtEpochMillis(String value, long nowMillis) {
+        parsedRetryAfter = RetryAfterParser.parse("null".equals(value) ? null : value, nowMillis);
+    }
+
+    @Then("the parsed Retry-After should be {string}")
+    public void theParsedRetryAfterShouldBe(String expectedEpochMillis) {
+        assertThat(parsedRetryAfter)
+                .as("parsed Retry-After")
+                .isEqualTo("null".equals(expectedEpochMillis) ? null : Long.valueOf(expectedEpochMillis));
+    }
+
+    @When("a {string} request fails with status {int} and Retry-After {string}")
+    public void aRequestFailsWithStatusAndRetryAfter(String method, int status, String retryAfter) {
+        Request request = Request.create(Request.HttpMethod.valueOf(method), "https://example.com", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        Map<String, Collection<String>> headers = "null".equals(retryAfter)
+                ? Map.of()
+                : Map.of("retry-after", List.of(retryAfter));
+
+        Response response = Response.builder()
+                .status(status)
+                .reason("Error")
+                .request(request)
+                .headers(headers)
+                .build();
+
+        var decoder = new FeignErrorDecoder((httpStatus, cause) -> mock(BusinessException.class));
+        decodedException = decoder.decode("testMethod()", response);
+    }
+
+    @Then("the decoded exception should be retryable with retry after {string}")
+    public void theDecodedExceptionShouldBeRetryableWithRetryAfter(String expectedRetryAfter) {
+        assertThat(decodedException)
+                .as("decoded exception")
+                .isInstanceOf(RetryableException.class);
+        assertThat(((RetryableException) decodedException).retryAfter())
+                .as("retry after")
+                .isEqualTo("null".equals(expectedRetryAfter) ? null : Long.valueOf(expectedRetryAfter));
+    }
+
+    @Then("the decoded exception should not be retryable")
+    public void theDecodedExceptionShouldNotBeRetryable() {
+        assertThat(decodedException)
+                .as("decoded exception")
+                .isNotInstanceOf(RetryableException.class);
+    }
+
+}
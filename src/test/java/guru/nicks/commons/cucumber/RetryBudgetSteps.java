@@ -0,0 +1,111 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.retry.RetryBudgetCapability;
+import guru.nicks.commons.feign.retry.RetryBudgetRegistry;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Target;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Step definitions for testing {@link RetryBudgetRegistry}.
+ */
+@RequiredArgsConstructor
+public class RetryBudgetSteps {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RetryBudgetRegistry retryBudgets;
+    private int permittedRetries;
+
+    @Given("a retry budget registry with retry percent {int} and max tokens {int}")
+    public void aRetryBudgetRegistryWithRetryPercentAndMaxTokens(int retryPercent, int maxTokens) {
+        retryBudgets = new RetryBudgetRegistry(retryPercent, maxTokens);
+        retryBudgets.bindTo(meterRegistry);
+    }
+
+    @Given("{int} successful request(s) to {string} is/are recorded")
+    public void successfulRequestsToAreRecorded(int count, String url) {
+        for (int i = 0; i < count; i++) {
+            retryBudgets.recordSuccess(url);
+        }
+    }
+
+    @Given("{int} successful response(s) from target {string} pass(es) through the retry budget capability")
+    public void successfulResponsesFromTargetPassThroughTheRetryBudgetCapability(int count, String targetUrl)
+            throws IOException {
+        Client client = new RetryBudgetCapability(retryBudgets).enrich((request, options) -> Response.builder()
+                .status(200)
+                .request(request)
+                .headers(Map.of())
+                .build());
+
+        var template = new RequestTemplate();
+        template.feignTarget(new Target.HardCodedTarget<>(Runnable.class, targetUrl));
+
+        for (int i = 0; i < count; i++) {
+            Request request = Request.create(Request.HttpMethod.GET, targetUrl + "/users/" + i, Map.of(), null,
+                    StandardCharsets.UTF_8, template);
+            client.execute(request, new Request.Options());
+        }
+    }
+
+    @When("{int} retry/retries to {string} is/are requested")
+    public void retriesToAreRequested(int count, String url) {
+        permittedRetries = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (retryBudgets.tryAcquire(url)) {
+                permittedRetries++;
+            }
+        }
+    }
+
+    @Then("{int} retry/retries should have been permitted")
+    public void retriesShouldHaveBeenPermitted(int expectedCount) {
+        assertThat(permittedRetries)
+                .as("permitted retries")
+                .isEqualTo(expectedCount);
+    }
+
+    @Then("retry budget of service {string} should have {double} tokens, {long} permitted and {long} rejected retries")
+    public void retryBudgetOfServiceShouldHaveTokensPermittedAndRejectedRetries(String service, double tokens,
+            long permitted, long rejected) {
+        assertThat(meterRegistry.get(RetryBudgetRegistry.TOKENS_METER_NAME)
+                .tag("service", service)
+                .gauge()
+                .value())
+                .as("tokens")
+                .isEqualTo(tokens);
+
+        assertThat(meterRegistry.get(RetryBudgetRegistry.RETRIES_METER_NAME)
+                .tag("service", service)
+                .tag("outcome", "permitted")
+                .functionCounter()
+                .count())
+                .as("permitted retries")
+                .isEqualTo(permitted);
+
+        assertThat(meterRegistry.get(RetryBudgetRegistry.RETRIES_METER_NAME)
+                .tag("service", service)
+                .tag("outcome", "rejected")
+                .functionCounter()
+                .count())
+                .as("rejected retries")
+                .isEqualTo(rejected);
+    }
+
+}
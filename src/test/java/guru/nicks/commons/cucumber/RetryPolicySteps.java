@@ -0,0 +1,179 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.cucumber.world.TextWorld;
+import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.domain.FeignRetryProperties;
+import guru.nicks.commons.feign.retry.RetryPolicy;
+import guru.nicks.commons.feign.retry.RetryPolicyRegistry;
+
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.RetryableException;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Step definitions for testing {@link RetryPolicyRegistry}.
+ */
+@RequiredArgsConstructor
+public class RetryPolicySteps {
+
+    // DI
+    private final TextWorld textWorld;
+
+    private FeignRetryProperties.FeignRetryPropertiesBuilder propertiesBuilder;
+    private final Map<String, FeignRetryProperties.Client.ClientBuilder> clientBuilders = new HashMap<>();
+    private final Map<String, Map<String, FeignRetryProperties.Method>> clientMethods = new HashMap<>();
+
+    private RetryPolicyRegistry retryPolicyRegistry;
+    private RetryPolicy retryPolicy;
+    private FeignRetryer feignRetryer;
+
+    @Given("retry settings with initial delay {long} ms, max. delay {long} ms and {int} max. attempts")
+    public void retrySettingsWithInitialDelayMsMaxDelayMsAndMaxAttempts(long initialDelay, long maxDelay,
+            int maxAttempts) {
+        propertiesBuilder = FeignRetryProperties.builder()
+                .initialDelayBetweenAttempts(Duration.ofMillis(initialDelay))
+                .maxDelayBetweenAttempts(Duration.ofMillis(maxDelay))
+                .maxAttempts(maxAttempts);
+    }
+
+    @Given("client {string} retry settings with initial delay {long} ms and {int} max. attempts")
+    public void clientRetrySettingsWithInitialDelayMsAndMaxAttempts(String clientName, long initialDelay,
+            int maxAttempts) {
+        clientBuilders.put(clientName, FeignRetryProperties.Client.builder()
+                .initialDelayBetweenAttempts(Duration.ofMillis(initialDelay))
+                .maxAttempts(maxAttempts));
+    }
+
+    @Given("method {string} retry settings of client {string} with {int} max. attempts")
+    public void methodRetrySettingsOfClientWithMaxAttempts(String method, String clientName, int maxAttempts) {
+        clientMethods.computeIfAbsent(clientName, key -> new HashMap<>())
+                .put(method, FeignRetryProperties.Method.builder()
+                        .maxAttempts(maxAttempts)
+                        .build());
+    }
+
+    @Given("method {string} retry settings of client {string} with max. delay {long} ms")
+    public void methodRetrySettingsOfClientWithMaxDelayMs(String method, String clientName, long maxDelay) {
+        clientMethods.computeIfAbsent(clientName, key -> new HashMap<>())
+                .put(method, FeignRetryProperties.Method.builder()
+                        .maxDelayBetweenAttempts(Duration.ofMillis(maxDelay))
+                        .build());
+    }
+
+    @Given("a retry policy registry is created")
+    public void aRetryPolicyRegistryIsCreated() {
+        Map<String, FeignRetryProperties.Client> clients = new HashMap<>();
+        clientBuilders.forEach((clientName, clientBuilder) -> clients.put(clientName, clientBuilder
+                .methods(clientMethods.get(clientName))
+                .build()));
+
+        retryPolicyRegistry = new RetryPolicyRegistry(propertiesBuilder
+                .clients(clients)
+                .build());
+    }
+
+    @Given("a FeignRetryer is created with the retry policy registry")
+    public void aFeignRetryerIsCreatedWithTheRetryPolicyRegistry() {
+        feignRetryer = new FeignRetryer(retryPolicyRegistry, null) {
+            @Override
+            protected void sleep(long millis) {
+                // don't slow down tests
+            }
+        };
+    }
+
+    @When("retry settings are updated to initial delay {long} ms, max. delay {long} ms and {int} max. attempts")
+    public void retrySettingsAreUpdatedToInitialDelayMsMaxDelayMsAndMaxAttempts(long initialDelay, long maxDelay,
+            int maxAttempts) {
+        retryPolicyRegistry.update(FeignRetryProperties.builder()
+                .initialDelayBetweenAttempts(Duration.ofMillis(initialDelay))
+                .maxDelayBetweenAttempts(Duration.ofMillis(maxDelay))
+                .maxAttempts(maxAttempts)
+                .build());
+    }
+
+    @When("retry settings are updated with {int} max. attempts of method {string} of client {string}")
+    public void retrySettingsAreUpdatedWithMaxAttemptsOfMethodOfClient(int maxAttempts, String method,
+            String clientName) {
+        Throwable caughtException = null;
+
+        try {
+            retryPolicyRegistry.update(FeignRetryProperties.builder()
+                    .clients(Map.of(clientName, FeignRetryProperties.Client.builder()
+                            .methods(Map.of(method, FeignRetryProperties.Method.builder()
+                                    .maxAttempts(maxAttempts)
+                                    .build()))
+                            .build()))
+                    .build());
+        } catch (Exception e) {
+            caughtException = e;
+        }
+
+        textWorld.setLastException(caughtException);
+    }
+
+    @When("retry policy of {string} is resolved")
+    public void retryPolicyOfIsResolved(String configKey) {
+        retryPolicy = retryPolicyRegistry.getPolicy(configKey);
+    }
+
+    @When("retry policy of an unknown config key is resolved")
+    public void retryPolicyOfAnUnknownConfigKeyIsResolved() {
+        retryPolicy = retryPolicyRegistry.getPolicy(null);
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException of {string}")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionOf(int calls, String configKey) {
+        MethodMetadata methodMetadata = mock(MethodMetadata.class);
+        when(methodMetadata.configKey()).thenReturn(configKey);
+
+        var template = new RequestTemplate();
+        template.methodMetadata(methodMetadata);
+
+        Request request = Request.create(Request.HttpMethod.GET, "http://user-service/users/1", Map.of(), null,
+                StandardCharsets.UTF_8, template);
+        Throwable caughtException = null;
+
+        for (int i = 0; i < calls; i++) {
+            var retryableException = new RetryableException(503, "Simulated server error", Request.HttpMethod.GET,
+                    null, (Long) null, request);
+
+            try {
+                feignRetryer.continueOrPropagate(retryableException);
+            } catch (Exception e) {
+                caughtException = e;
+                break;
+            }
+        }
+
+        textWorld.setLastException(caughtException);
+    }
+
+    @Then("the retry policy should have period {long}, maxPeriod {long} and maxAttempts {int}")
+    public void theRetryPolicyShouldHavePeriodMaxPeriodAndMaxAttempts(long period, long maxPeriod, int maxAttempts) {
+        assertThat(retryPolicy.getPeriod())
+                .as("period")
+                .isEqualTo(period);
+        assertThat(retryPolicy.getMaxPeriod())
+                .as("maxPeriod")
+                .isEqualTo(maxPeriod);
+        assertThat(retryPolicy.getMaxAttempts())
+                .as("maxAttempts")
+                .isEqualTo(maxAttempts);
+    }
+
+}
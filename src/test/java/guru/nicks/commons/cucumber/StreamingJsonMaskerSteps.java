@@ -0,0 +1,60 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.feign.log.StreamingJsonMasker;
+
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Step definitions for testing {@link StreamingJsonMasker}.
+ */
+@RequiredArgsConstructor
+public class StreamingJsonMaskerSteps {
+
+    private StreamingJsonMasker masker;
+    private String maskedJson;
+    private boolean complete;
+
+    @Given("a streaming JSON masker with masked fields {string} and output limit {int}")
+    public void aStreamingJsonMaskerWithMaskedFieldsAndOutputLimit(String maskedFields, int maxOutputChars) {
+        masker = new StreamingJsonMasker(Arrays.asList(maskedFields.split(",")), maxOutputChars);
+    }
+
+    @When("the streaming JSON masker masks:")
+    public void theStreamingJsonMaskerMasks(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        var output = new StringBuilder();
+
+        complete = masker.mask(bytes, bytes.length, output);
+        maskedJson = output.toString();
+    }
+
+    @Then("the masked JSON should be:")
+    public void theMaskedJsonShouldBe(String expectedJson) {
+        assertThat(maskedJson)
+                .as("masked JSON")
+                .isEqualTo(expectedJson);
+    }
+
+    @Then("the masked JSON should be at most {int} characters long")
+    public void theMaskedJsonShouldBeAtMostCharactersLong(int maxLength) {
+        assertThat(maskedJson)
+                .as("masked JSON")
+                .hasSizeLessThanOrEqualTo(maxLength);
+    }
+
+    @Then("the masked JSON should be complete: {booleanValue}")
+    public void theMaskedJsonShouldBeComplete(boolean expectedComplete) {
+        assertThat(complete)
+                .as("complete")
+                .isEqualTo(expectedComplete);
+    }
+
+}
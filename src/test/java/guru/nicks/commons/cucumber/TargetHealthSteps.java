@@ -0,0 +1,145 @@
+package guru.nicks.commons.cucumber;
+
+import guru.nicks.commons.cucumber.world.TextWorld;
+import guru.nicks.commons.feign.FeignRetryer;
+import guru.nicks.commons.feign.domain.FeignRetryProperties;
+import guru.nicks.commons.feign.retry.RetryPolicyRegistry;
+import guru.nicks.commons.feign.retry.TargetHealthRegistry;
+
+import feign.Request;
+import feign.RequestTemplate;
+import feign.RetryableException;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Step definitions for testing {@link TargetHealthRegistry} and adaptive backoff of {@link FeignRetryer}.
+ */
+@RequiredArgsConstructor
+public class TargetHealthSteps {
+
+    // DI
+    private final TextWorld textWorld;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Long> sleeps = new ArrayList<>();
+
+    private TargetHealthRegistry targetHealths;
+    private FeignRetryer feignRetryer;
+
+    @Given("a target health registry with window {int}, min. calls {int} and max. error percent {int}")
+    public void aTargetHealthRegistryWithWindowMinCallsAndMaxErrorPercent(int window, int minCalls,
+            int maxErrorPercent) {
+        targetHealths = new TargetHealthRegistry(window, minCalls, maxErrorPercent);
+        targetHealths.bindTo(meterRegistry);
+    }
+
+    /**
+     * Records calls described as comma-separated '[latency ms] [ok|failed]'.
+     */
+    @Given("calls to {string} are recorded: {string}")
+    public void callsToAreRecorded(String url, String calls) {
+        for (String call : calls.split(",")) {
+            String[] parts = call.trim().split(" ");
+            targetHealths.recordCall(url, Long.parseLong(parts[0]), "failed".equals(parts[1]));
+        }
+    }
+
+    @Given("a FeignRetryer with adaptive backoff is created with period {long}, maxPeriod {long} and maxAttempts {int}")
+    public void aFeignRetryerWithAdaptiveBackoffIsCreated(long period, long maxPeriod, int maxAttempts) {
+        aFeignRetryerWithAdaptiveBackoffIsCreatedWithJitter(period, maxPeriod, maxAttempts, "NONE");
+    }
+
+    @Given("a FeignRetryer with adaptive backoff is created with period {long}, maxPeriod {long}, maxAttempts {int} "
+            + "and jitter {string}")
+    public void aFeignRetryerWithAdaptiveBackoffIsCreatedWithJitter(long period, long maxPeriod, int maxAttempts,
+            String jitter) {
+        var retryPolicies = new RetryPolicyRegistry(FeignRetryProperties.builder()
+                .initialDelayBetweenAttempts(Duration.ofMillis(period))
+                .maxDelayBetweenAttempts(Duration.ofMillis(maxPeriod))
+                .maxAttempts(maxAttempts)
+                .jitter(FeignRetryer.Jitter.valueOf(jitter))
+                .build());
+
+        feignRetryer = new FeignRetryer(retryPolicies, null, targetHealths) {
+            @Override
+            protected void sleep(long millis) {
+                sleeps.add(millis);
+            }
+        };
+    }
+
+    @When("continueOrPropagate is called {int} times with a RetryableException to {string}")
+    public void continueOrPropagateIsCalledTimesWithARetryableExceptionTo(int calls, String url) {
+        Request request = Request.create(Request.HttpMethod.GET, url, Map.of(), null, StandardCharsets.UTF_8,
+                new RequestTemplate());
+        Throwable caughtException = null;
+
+        for (int i = 0; i < calls; i++) {
+            var retryableException = new RetryableException(503, "Simulated server error", Request.HttpMethod.GET,
+                    null, (Long) null, request);
+
+            try {
+                feignRetryer.continueOrPropagate(retryableException);
+            } catch (Exception e) {
+                caughtException = e;
+                break;
+            }
+        }
+
+        textWorld.setLastException(caughtException);
+    }
+
+    @Then("the adaptive sleeps should be {string} ms")
+    public void theAdaptiveSleepsShouldBeMs(String expectedSleeps) {
+        assertThat(sleeps)
+                .as("sleeps")
+                .isEqualTo(Arrays.stream(expectedSleeps.split(","))
+                        .map(String::trim)
+                        .filter(StringUtils::isNotEmpty)
+                        .map(Long::valueOf)
+                        .toList());
+    }
+
+    @Then("adaptive sleep {int} should be between {long} and {long} ms")
+    public void adaptiveSleepShouldBeBetweenMs(int sleepNumber, long min, long max) {
+        assertThat(sleeps)
+                .as("sleeps")
+                .hasSizeGreaterThanOrEqualTo(sleepNumber);
+        assertThat(sleeps.get(sleepNumber - 1))
+                .as("sleep #%d", sleepNumber)
+                .isBetween(min, max);
+    }
+
+    @Then("target health of service {string} should have latency {double} ms and error rate {double}")
+    public void targetHealthOfServiceShouldHaveLatencyMsAndErrorRate(String service, double latencyMillis,
+            double errorRate) {
+        assertThat(meterRegistry.get(TargetHealthRegistry.LATENCY_METER_NAME)
+                .tag("service", service)
+                .gauge()
+                .value())
+                .as("latency")
+                .isEqualTo(latencyMillis);
+
+        assertThat(meterRegistry.get(TargetHealthRegistry.ERROR_RATE_METER_NAME)
+                .tag("service", service)
+                .gauge()
+                .value())
+                .as("error rate")
+                .isEqualTo(errorRate);
+    }
+
+}
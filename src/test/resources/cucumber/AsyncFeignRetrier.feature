@@ -0,0 +1,29 @@
+@feign #@disabled
+Feature: Async Feign retrier
+  AsyncFeignRetrier should retry failed asynchronous calls on the scheduler, using FeignRetryer's policy
+
+  Background:
+    Given an async Feign retrier with period 10 ms and maxAttempts 3
+
+  Scenario: Failed attempts are retried on the scheduler
+    When an async call which fails 2 times with "RetryableException" is executed
+    Then the async call should return "OK"
+    And 3 attempts should have been made
+    And retries should have been made on thread "feign-retry-scheduler"
+
+  Scenario: Exception of the last attempt is propagated when attempts are exhausted
+    When an async call which fails 5 times with "RetryableException" is executed
+    Then the async call should fail with "RetryableException"
+    And 3 attempts should have been made
+
+  Scenario: Non-retryable exceptions are not retried
+    When an async call which fails 1 time with "IllegalStateException" is executed
+    Then the async call should fail with "IllegalStateException"
+    And 1 attempt should have been made
+
+  Scenario: Call deadline of the first attempt applies to retries
+    Given call deadline interceptor with deadline 60000 ms
+    When an async call whose attempts build new requests and fail 2 times is executed
+    Then the async call should return "OK"
+    And 3 attempts should have been made
+    And all attempts should have had the same call deadline
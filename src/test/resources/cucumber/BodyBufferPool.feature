@@ -0,0 +1,45 @@
+@feign #@disabled
+Feature: Body buffer pool
+  Mid-size response bodies should be read into pooled buffers, which should be returned to the pool when response bodies
+  are closed
+
+  Background:
+    Given a body buffer pool with 2 buffers per size class
+
+  Scenario: Body is read into a pooled buffer and the buffer is returned on close
+    When a response with a body of 70000 bytes is captured
+    Then the captured body should be the same as the original one
+    And 1 body buffer should be leased
+    When the captured response body is closed
+    Then 0 body buffers should be leased
+
+  Scenario: Buffer is reused
+    When a response with a body of 70000 bytes is captured
+    And the captured response body is closed
+    And a response with a body of 100000 bytes is captured
+    Then the captured body should be the same as the original one
+    And the pooled buffer should have been reused
+
+  Scenario: Stream obtained before close doesn't read the recycled buffer
+    When a response with a body of 70000 bytes is captured
+    And a stream of the captured response body is obtained
+    And the captured response body is closed
+    And a response with a body of 100000 bytes is captured
+    Then the pooled buffer should have been reused
+    And reading the stream obtained before close should fail
+
+  Scenario Outline: Bodies not suitable for pooling are captured as usual
+    When a response with a body of <Body Length> bytes and declared length <Declared Length> is captured
+    Then the captured body should be the same as the original one
+    And 0 body buffers should be leased
+    Examples:
+      | Body Length | Declared Length |
+      | 100         | 100             |
+      | 2000000     | 2000000         |
+      | 70000       | 80000           |
+      | 80000       | 70000           |
+
+  Scenario: Total length of a body longer than declared is unknown if the body is truncated
+    When a response with a body of 80000 bytes and declared length 70000 is captured with max. 75000 body bytes
+    Then the captured body should be truncated to 75000 bytes with total length "unknown"
+    And 0 body buffers should be leased
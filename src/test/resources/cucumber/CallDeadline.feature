@@ -0,0 +1,26 @@
+@feign #@disabled
+Feature: Call deadline
+  Feign calls should not last longer than their deadline, including all attempts
+
+  Scenario Outline: Deadline is stamped on the first attempt, per client
+    Given a call deadline interceptor with default timeout 1000 ms and timeout 5000 ms for "UserClient"
+    When the call deadline interceptor is applied 2 times to a request of "<Config Key>"
+    Then the call deadline should be in <Min> to <Max> ms
+    And the request template should have no headers
+    Examples:
+      | Config Key                   | Min  | Max  |
+      | UserClient#findById(String)  | 4000 | 5000 |
+      | OrderClient#findById(String) | 0    | 1000 |
+
+  Scenario: Read timeout is shrunk to the time remaining, remaining time is sent to the server
+    Given a call deadline capability with remaining time header "X-Remaining-Time-Ms"
+    When a request with call deadline in 2000 ms and read timeout 60000 ms is executed
+    Then the read timeout of the attempt should be between 1000 and 2000 ms
+    And header "X-Remaining-Time-Ms" of the sent request should be between 1000 and 2000
+    And the returned response should refer to the original request
+
+  Scenario: Requests without deadline are sent as-is
+    Given a call deadline capability with remaining time header "X-Remaining-Time-Ms"
+    When a request without call deadline and read timeout 60000 ms is executed
+    Then the read timeout of the attempt should be between 60000 and 60000 ms
+    And the sent request should not have header "X-Remaining-Time-Ms"
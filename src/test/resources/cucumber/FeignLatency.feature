@@ -0,0 +1,33 @@
+@feign #@disabled
+Feature: Feign exchange latencies
+  Latencies of Feign exchanges are recorded as Micrometer timers, regardless of log levels
+
+  Scenario: Exchange latencies are recorded
+    Given a Feign latency capability is bound to a meter registry
+    When exchanges of "UserClient#findById(String)" with "GET http://user-service/users/1" end with "200, 204, 503, IO error"
+    Then exchange latency should have been recorded 2 times with tags:
+      | client    | UserClient                  |
+      | configKey | UserClient#findById(String) |
+      | method    | GET                         |
+      | service   | user-service                |
+      | status    | 2xx                         |
+    And exchange latency should have been recorded 1 time with tags:
+      | status | 5xx |
+    And exchange latency should have been recorded 1 time with tags:
+      | service | user-service |
+      | status  | IO_ERROR     |
+
+  Scenario: Requests without Feign method are not recorded
+    Given a Feign latency capability is bound to a meter registry
+    When exchanges without Feign method with "GET http://user-service/users/1" end with "200"
+    Then no exchange latency should have been recorded
+
+  Scenario: Client-side latency percentiles are not published by default
+    Given a Feign latency capability is bound to a meter registry
+    When exchanges of "UserClient#findById(String)" with "GET http://user-service/users/1" end with "200"
+    Then exchange latency with status "2xx" should have client-side percentiles ""
+
+  Scenario: Client-side latency percentiles are published if requested
+    Given a Feign latency capability with latency percentiles "0.5, 0.99" is bound to a meter registry
+    When exchanges of "UserClient#findById(String)" with "GET http://user-service/users/1" end with "200"
+    Then exchange latency with status "2xx" should have client-side percentiles "0.5, 0.99"
@@ -14,7 +14,7 @@ Feature: Feign Logger
       | Method | URL                 | Request Body         | Log Should Contain Request Body? |
       | GET    | https://example.com | null                 | false                            |
       | GET    | https://example.com |                      | false                            |
-      | POST   | https://example.com | {\"id\": \"testId\"} | true                             |
+      | POST   | https://example.com | {\"id\":\"testId\"}  | true                             |
 
   Scenario Outline: Logging responses with different status codes
     When a response with status "<Status>" and reason "<Reason>" from request "<Method>" to "<URL>" with body "<Request Body>" is logged
@@ -23,12 +23,287 @@ Feature: Feign Logger
     And the log should contain the request body: <Log Should Contain Request Body?>
     Examples:
       | Status | Reason       | Method | URL                 | Request Body         | Log Level | Log Should Contain Request Body? |
-      | 200    | OK           | PUT    | https://example.com | {\"id\": \"testId\"} | info      | true                             |
+      | 200    | OK           | PUT    | https://example.com | {\"id\":\"testId\"}  | info      | true                             |
       | 400    | OK           | GET    | https://example.com | null                 | error     | false                            |
       | 404    | Not Found    | GET    | https://example.com | null                 | error     | false                            |
       | 500    | Server Error | POST   | https://example.com | {\"error\":\"Oops\"} | error     | true                             |
 
+  Scenario Outline: Logging responses with status log levels configured
+    Given a Feign Logger is created with:
+      | status-log-levels | 404=DEBUG,429=WARN,5xx=WARN,503=ERROR,2xx=DEBUG |
+    When a response with status "<Status>" and reason "<Reason>" from request "GET" to "https://example.com" with body "null" is logged
+    Then the response should be logged at <Log Level> level
+    And the log should contain the status code and reason
+    Examples:
+      | Status | Reason                | Log Level |
+      | 200    | OK                    | debug     |
+      | 302    | Found                 | info      |
+      | 400    | Bad Request           | error     |
+      | 404    | Not Found             | debug     |
+      | 429    | Too Many Requests     | warn      |
+      | 500    | Internal Server Error | warn      |
+      | 503    | Service Unavailable   | error     |
+
+  Scenario Outline: Lines of the parent logger are logged at info level, whatever they contain
+    When the parent logger logs "<Format>" with argument "<Argument>"
+    Then the response should be logged at info level
+    And the last log message should contain "<Message>"
+    Examples:
+      | Format                     | Argument | Message                                    |
+      | ---> RETRYING              |          | ---> RETRYING                              |
+      | ---> RETRYING [500]        |          | ---> RETRYING [500]                        |
+      | ---> RETRYING %s           | [404]    | ---> RETRYING [404]                        |
+      | ---> RETRYING /a%2Cb [404] | x        | ---> RETRYING /a%2Cb [404] [x]             |
+
+  Scenario Outline: Logging responses with body size limit
+    Given a Feign Logger is created with:
+      | max-body-bytes | 5 |
+    When a response with status "200" and reason "OK" from request "GET" to "https://example.com" with body "<Body>" is logged
+    Then the last log message should contain "<Logged>"
+    And the returned response body should be "<Body>"
+    Examples:
+      | Body                 | Logged                        |
+      | 01234                | : 01234                       |
+      | 0123456789           | s (truncated, 10 bytes total) |
+      | 0123456789ABCDEFGHIJ | s (truncated, 20 bytes total) |
+
+  Scenario: Logging requests with body size limit
+    Given a Feign Logger is created with:
+      | max-body-bytes | 3 |
+    When a request with method "POST" to URL "https://example.com" with body "abcdef" is logged
+    Then the last log message should contain "with body: (truncated, 6 bytes total)"
+    And the last log message should not contain "abc"
+
+  Scenario Outline: Truncated JSON bodies are logged only if they can be masked
+    Given a Feign Logger is created with:
+      | json-masker    | <Masker> |
+      | max-body-bytes | 16       |
+    When a response with status "200" and reason "OK" from request "GET" to "https://example.com" with body '{"password":"s3cr3t","user":"bob"}' is logged
+    Then the last log message should contain '<Logged>'
+    And the last log message should not contain "s3c"
+    And the returned response body should be '{"password":"s3cr3t","user":"bob"}'
+    Examples:
+      | Masker     | Logged                                          |
+      | JSON_UTILS | s (truncated, 34 bytes total)                   |
+      | STREAMING  | : {"password":"***" (truncated, 34 bytes total) |
+
+  Scenario Outline: JSON maskers mask the same fields
+    Given a Feign Logger is created with:
+      | json-masker    | <Masker> |
+      | max-body-bytes | 1000     |
+    When a response with status "200" and reason "OK" from request "GET" to "https://example.com" with body '{"password":"s3cr3t","user":"bob"}' is logged
+    Then the last log message should contain ': {"password":"***","user":"bob"}'
+    Examples:
+      | Masker     |
+      | JSON_UTILS |
+      | STREAMING  |
+
+  Scenario Outline: Logging response bodies depending on content type
+    When a response with content type "<Content Type>" and body "<Body>" is logged
+    Then the last log message should contain "<Logged>"
+    And the returned response body should be "<Body>"
+    Examples:
+      | Content Type              | Body       | Logged                                            |
+      | application/json          | [1,2]      | : [1,2]                                           |
+      | application/problem+json  | [3]        | : [3]                                             |
+      | text/plain; charset=UTF-8 | hello      | : hello                                           |
+      | application/xml           | <a/>       | : <a/>                                            |
+      | image/png                 | PNGDATA    | : [binary body, image/png, 7 bytes]               |
+      | application/pdf           | PDF        | : [binary body, application/pdf, 3 bytes]         |
+      | application/x-protobuf    | 0123456789 | : [binary body, application/x-protobuf, 10 bytes] |
+
+  Scenario Outline: Logging request bodies depending on content type
+    When a request with content type "<Content Type>" and body "<Body>" is logged
+    Then the last log message should contain "<Logged>"
+    Examples:
+      | Content Type             | Body   | Logged                                                      |
+      | application/json         | [1,2]  | with body: [1,2]                                            |
+      | text/csv                 | a,b    | with body: a,b                                              |
+      | application/octet-stream | BINARY | with body: [binary body, application/octet-stream, 6 bytes] |
+
+  Scenario Outline: Sensitive form parameters are masked
+    When a <Kind> with content type "application/x-www-form-urlencoded" and body "<Body>" is logged
+    Then the last log message should contain "<Logged>"
+    And the last log message should not contain "s3cr3t"
+    Examples:
+      | Kind     | Body                                         | Logged                                    |
+      | request  | grant_type=password&password=s3cr3t&user=bob | grant_type=password&password=***&user=bob |
+      | response | client_secret=s3cr3t&client_id=app           | client_secret=***&client_id=app           |
+      | request  | refresh_token=s3cr3t&redirect_uri=x          | refresh_token=***&redirect_uri=x          |
+
+  Scenario: Logging text bodies truncated
+    Given a Feign Logger is created with:
+      | max-text-body-bytes | 4 |
+    When a response with content type "text/plain" and body "0123456789" is logged
+    Then the last log message should contain ": 0123 (truncated, 10 bytes total)"
+    And the returned response body should be "0123456789"
+
+  Scenario: Text bodies are not truncated by default
+    When a response with content type "text/plain" and body of 10000 "x" characters is logged
+    Then the last log message should not contain "truncated"
+
+  Scenario: Application name is put to MDC
+    When a request with method "GET" to URL "https://example.com/x" with body "null" is logged
+    Then MDC should contain application name "test-app"
+
+  Scenario: Application name is looked up again when the application context is refreshed
+    Given the application name is changed to "renamed-app"
+    When the application context is refreshed
+    And a request with method "GET" to URL "https://example.com/x" with body "null" is logged
+    Then MDC should contain application name "renamed-app"
+
   Scenario: Logging IO exceptions
     When an IOException occurs
     Then the exception should be logged at error level
     And the log should contain the stack trace
+
+  Scenario: Logging responses asynchronously
+    Given a Feign Logger is created with:
+      | async.queue-capacity  | 10                  |
+      | async.overflow-policy | DROP_BODY_KEEP_LINE |
+    And MDC contains "traceId" = "trace-1"
+    When a response with content type "text/plain" and body "hello" is logged
+    And the Feign Logger is shut down
+    Then the last log message should contain ": hello"
+    And the last log message should have been logged on thread "feign-logger" with MDC "traceId" = "trace-1"
+    And the returned response body should be "hello"
+
+  Scenario: Logging requests asynchronously
+    Given a Feign Logger is created with:
+      | async.queue-capacity  | 10    |
+      | async.overflow-policy | BLOCK |
+    When a request with content type "text/csv" and body "a,b" is logged
+    And the Feign Logger is shut down
+    Then the last log message should contain "with body: a,b"
+
+  Scenario: Successful response bodies are sampled
+    Given a Feign Logger is created with body sample rate 2000000000
+    When a response with content type "text/plain" and body "hello" is logged
+    Then the last log message should contain "[200 OK]"
+    And the last log message should contain ": [body not sampled]"
+    And the last log message should not contain "hello"
+    And the returned response body should be "hello"
+
+  Scenario: Request bodies are sampled
+    Given a Feign Logger is created with body sample rate 2000000000
+    When a request with content type "text/csv" and body "a,b" is logged
+    Then the last log message should contain "with body: [body not sampled]"
+
+  Scenario: Error response bodies are never sampled
+    Given a Feign Logger is created with body sample rate 2000000000
+    When a response with status "500" and reason "Server Error" from request "POST" to "https://example.com" with body "oops" is logged
+    Then the last log message should contain ": oops"
+
+  Scenario: Body sample rate is changed at runtime
+    Given a Feign Logger is created with body sample rate 2000000000
+    And body sample rate is changed to 1
+    When a response with content type "text/plain" and body "hello" is logged
+    Then the last log message should contain ": hello"
+
+  Scenario: Full URLs are resolved by default, so resolvers can route by path
+    Given a Feign Logger is created with URL "http://gateway/users/1" resolved to "http://10.0.0.1:8080/user-service/users/1"
+    When a request with method "GET" to URL "http://gateway/users/1" with body "null" is logged
+    Then the last log message should contain "[GET http://10.0.0.1:8080/user-service/users/1]"
+    When a request with method "GET" to URL "http://gateway/users/1" with body "null" is logged
+    Then URL "http://gateway/users/1" should have been resolved 2 times
+    And URL "http://gateway" should have been resolved 0 times
+
+  Scenario: Service URLs are resolved once per service if URL bases are cached
+    Given a Feign Logger caching resolved URL bases is created with service URL "http://user-service" resolved to "http://10.0.0.1:8080/"
+    When a request with method "GET" to URL "http://user-service/users/1" with body "null" is logged
+    Then the last log message should contain "[GET http://10.0.0.1:8080/users/1]"
+    When a request with method "GET" to URL "http://user-service/users?name=x" with body "null" is logged
+    Then the last log message should contain "[GET http://10.0.0.1:8080/users?name=x]"
+    And URL "http://user-service" should have been resolved 1 time
+
+  Scenario: Logging responses in structured format
+    Given a Feign Logger is created with:
+      | log-format | STRUCTURED |
+    When a response with status "404" and reason "Not Found" from request "GET" to "https://example.com/a%20b" with body "{}" is logged
+    Then the last log message should contain "Received response: {}"
+    And the last log message should not contain "example.com"
+    And the last log event should have key-value pairs:
+      | configKey   | testMethod()            |
+      | method      | GET                     |
+      | resolvedUrl | https://example.com/a b |
+      | status      | 404                     |
+      | reason      | Not Found               |
+      | elapsedMs   | 1                       |
+      | bodyBytes   | 2                       |
+      | truncated   | false                   |
+
+  Scenario: Logging requests in structured format
+    Given a Feign Logger is created with:
+      | log-format | STRUCTURED |
+    When a request with content type "text/plain" and body "hello" is logged
+    Then the last log message should contain "Sending request with body: hello"
+    And the last log event should have key-value pairs:
+      | method      | POST                |
+      | resolvedUrl | https://example.com |
+      | bodyBytes   | 5                   |
+
+  Scenario Outline: Sensitive query parameters are masked
+    When a request with method "GET" to URL "<URL>" with body "null" is logged
+    Then the last log message should contain "<Logged>"
+    Examples:
+      | URL                                           | Logged                                                  |
+      | https://example.com/x?api_key=abc&name=x      | [GET https://example.com/x?api_key=***&name=x]          |
+      | https://example.com/x?name=x&TOKEN=a%20b#frag | [GET https://example.com/x?name=x&TOKEN=***#frag]       |
+      | https://example.com/x?token=&sig=1&password=p | [GET https://example.com/x?token=&sig=1&password=***]   |
+      | https://example.com/x?code=123&signature=abc  | [GET https://example.com/x?code=123&signature=***]      |
+      | https://example.com/x?tokens=abc              | [GET https://example.com/x?tokens=abc]                  |
+      | https://example.com/x?%74oken=abc&name=x      | [GET https://example.com/x?token=***&name=x]            |
+      | https://example.com/x?api%5Fkey=abc           | [GET https://example.com/x?api_key=***]                 |
+      | https://example.com/x?token=a%26b&name=x      | [GET https://example.com/x?token=***&name=x]            |
+      | https://example.com/x?token=a&name=x&token=b  | [GET https://example.com/x?token=***&name=x&token=***]  |
+      | https://example.com/x?name=x#token=abc        | [GET https://example.com/x?name=x#token=abc]            |
+      | https://example.com/x?token=abc#token=abc     | [GET https://example.com/x?token=***#token=abc]         |
+
+  Scenario: Similar errors are rate-limited
+    Given a Feign Logger is created with:
+      | error-rate-limit.max-errors | 2     |
+      | error-rate-limit.interval   | 60000 |
+    When 5 IOExceptions occur
+    Then 2 log messages should contain "Mocked stack trace"
+
+  Scenario: Error responses are rate-limited per status
+    Given a Feign Logger is created with:
+      | error-rate-limit.max-errors | 1     |
+      | error-rate-limit.interval   | 60000 |
+    When 3 responses with status 503 are logged
+    And 2 responses with status 500 are logged
+    Then 2 log messages should contain ": oops"
+
+  Scenario: Errors are logged again in the next interval
+    Given a Feign Logger is created with:
+      | error-rate-limit.max-errors | 1   |
+      | error-rate-limit.interval   | 200 |
+    When 3 IOExceptions occur
+    And a log message containing "Suppressed 2 similar error(s)" has been awaited
+    And 1 IOExceptions occur
+    Then 1 log message should contain "Suppressed 2 similar error(s): java.io.IOException"
+    And 2 log messages should contain "Mocked stack trace"
+
+  Scenario: Number of suppressed errors is reported even if no similar error follows
+    Given a Feign Logger is created with:
+      | error-rate-limit.max-errors | 1   |
+      | error-rate-limit.interval   | 200 |
+    When 3 IOExceptions occur
+    And a log message containing "Suppressed 2 similar error(s)" has been awaited
+    Then 1 log message should contain "Suppressed 2 similar error(s): java.io.IOException"
+    And 1 log message should contain "Mocked stack trace"
+
+  Scenario: Similar errors are not rate-limited by default
+    When 5 IOExceptions occur
+    Then 5 log messages should contain "Mocked stack trace"
+
+  Scenario: Similar error responses are rate-limited
+    Given a Feign Logger is created with:
+      | error-rate-limit.max-errors | 1     |
+      | error-rate-limit.interval   | 60000 |
+    When a response with status "503" and reason "Unavailable" from request "GET" to "https://example.com" with body "a" is logged
+    And a response with status "503" and reason "Unavailable" from request "GET" to "https://example.com" with body "b" is logged
+    And a response with status "500" and reason "Server Error" from request "GET" to "https://example.com" with body "c" is logged
+    Then 1 log message should contain "[503 Unavailable]"
+    And 1 log message should contain "[500 Server Error]"
+    And the returned response body should be "c"
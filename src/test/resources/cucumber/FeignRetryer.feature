@@ -25,5 +25,76 @@ Feature: FeignRetryer logic
   Scenario: Cloning the FeignRetryer
     Given a FeignRetryer is created with period 100, maxPeriod 1000, and maxAttempts 3
     When the FeignRetryer is cloned
-    Then the cloned FeignRetryer should be a new instance
+    Then the cloned FeignRetryer should be a new instance of the same class
     And the cloned FeignRetryer should have the same period, maxPeriod, and maxAttempts
+
+  Scenario: Attempts are counted per call
+    Given a FeignRetryer is created with period 10, maxPeriod 20, maxAttempts 3 and jitter "NONE"
+    When continueOrPropagate is called 2 times with a RetryableException without Retry-After
+    And continueOrPropagate is called 2 times with a RetryableException without Retry-After
+    Then no exception should be thrown
+    And the sleeps should be "10, 15, 10, 15" ms
+
+  Scenario: Attempts are counted per request template
+    Given a FeignRetryer is created with period 10, maxPeriod 20, maxAttempts 3 and jitter "NONE"
+    When continueOrPropagate is called 2 times with a RetryableException of a request with template
+    And continueOrPropagate is called 2 times with a RetryableException of a request with template
+    Then no exception should be thrown
+    And the sleeps should be "10, 15, 10, 15" ms
+
+  Scenario: Attempts are counted per request template even if the FeignRetryer is not cloned
+    Given a FeignRetryer is created with period 10, maxPeriod 20, maxAttempts 3 and jitter "NONE"
+    When continueOrPropagate is called 3 times with a RetryableException of a request with template without cloning the FeignRetryer
+    Then an exception should be thrown
+    And the sleeps should be "10, 15" ms
+
+  Scenario: Attempts of requests without template are counted per FeignRetryer clone
+    Given a FeignRetryer is created with period 10, maxPeriod 20, maxAttempts 3 and jitter "NONE"
+    When continueOrPropagate is called 5 times with a RetryableException of a new request without template
+    Then an exception should be thrown
+    And the sleeps should be "10, 15" ms
+
+  Scenario: Sleeps grow exponentially without jitter
+    Given a FeignRetryer is created with period 10, maxPeriod 20, maxAttempts 5 and jitter "NONE"
+    When continueOrPropagate is called 4 times with a RetryableException without Retry-After
+    Then no exception should be thrown
+    And the sleeps should be "10, 15, 20, 20" ms
+
+  Scenario Outline: Sleeps are randomized with jitter
+    Given a FeignRetryer is created with period 100, maxPeriod 1000, maxAttempts 4 and jitter "<Jitter>"
+    When continueOrPropagate is called 3 times with a RetryableException without Retry-After
+    Then sleep 1 should be between <Min 1> and <Max 1> ms
+    And sleep 3 should be between <Min 3> and <Max 3> ms
+    Examples:
+      | Jitter       | Min 1 | Max 1 | Min 3 | Max 3 |
+      | FULL         | 0     | 100   | 0     | 225   |
+      | EQUAL        | 50    | 100   | 112   | 225   |
+      | DECORRELATED | 100   | 300   | 100   | 1000  |
+
+  Scenario Outline: Retries are limited by retry budget
+    Given a FeignRetryer is created with maxAttempts 5 and a retry budget of 2 tokens
+    When continueOrPropagate is called <retries> times with a RetryableException
+    Then <outcome>
+    Examples:
+      | retries | outcome                       |
+      | 2       | no exception should be thrown |
+      | 3       | an exception should be thrown |
+
+  Scenario: Retry-After is honored
+    Given a FeignRetryer is created with period 10, maxPeriod 1000, maxAttempts 3 and jitter "FULL"
+    When continueOrPropagate is called 1 times with a RetryableException with Retry-After in 500 ms
+    Then sleep 1 should be between 400 and 500 ms
+
+  Scenario: Retry-After is capped by max. period
+    Given a FeignRetryer is created with period 10, maxPeriod 100, maxAttempts 3 and jitter "NONE"
+    When continueOrPropagate is called 2 times with a RetryableException with Retry-After in 60000 ms
+    Then the sleeps should be "100, 100" ms
+
+  Scenario Outline: Retries are not made past call deadline
+    Given a FeignRetryer is created with period 100, maxPeriod 1000, maxAttempts 5 and jitter "NONE"
+    When continueOrPropagate is called 2 times with a RetryableException and call deadline in <deadline> ms
+    Then <outcome>
+    Examples:
+      | deadline | outcome                       |
+      | 60000    | no exception should be thrown |
+      | 50       | an exception should be thrown |
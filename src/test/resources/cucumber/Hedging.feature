@@ -0,0 +1,75 @@
+@feign #@disabled
+Feature: Hedged requests
+  A second copy of an idempotent request is sent if the first one is too slow, and the first response wins
+
+  Scenario: Latency percentile is estimated after enough samples
+    Given a hedge delay estimator with min. samples 20
+    When latencies from 1 to 19 us are recorded
+    Then the estimated latency percentile should be -1 us
+    When latencies from 20 to 128 us are recorded
+    Then the estimated latency percentile should be 122 us
+
+  Scenario Outline: Estimated delay of fast methods is not less than min. delay
+    Given a hedging capability with estimated delay, min. samples 1 and min. delay <Min Delay> ms
+    And attempts of the client take "0, 30, 10" ms
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    And a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the client should have been called <Calls> times
+    Examples:
+      | Min Delay | Calls | Comment                                         |
+      | 200       | 2     | 2nd request responds within min. delay          |
+      | 1         | 3     | 2nd request is hedged after the estimated delay |
+
+  Scenario: Slow request is hedged, and the faster attempt wins
+    Given a hedging capability with delay 50 ms, budget percent 10 and max tokens 10
+    And attempts of the client take "1000, 10" ms
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the response should come from attempt 2
+    And the client should have been called 2 times
+    And the slower attempt should have been cancelled
+
+  Scenario: First attempt runs on the caller's thread, hedge sees the caller's MDC
+    Given a hedging capability with delay 50 ms, budget percent 10 and max tokens 10
+    And attempts of the client take "1000, 10" ms
+    And the caller's MDC contains "traceId" = "abc"
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the response should come from attempt 2
+    And attempt 1 should have run on the caller's thread
+    And attempt 2 should have seen MDC "traceId" = "abc"
+    And the caller's thread should not be interrupted
+
+  Scenario: Hedge is used if the first attempt fails
+    Given a hedging capability with delay 20 ms, budget percent 10 and max tokens 10
+    And attempts of the client take "100, 200" ms, attempt 1 failing
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the response should come from attempt 2
+    And the client should have been called 2 times
+
+  Scenario: Fast request is not hedged
+    Given a hedging capability with delay 200 ms, budget percent 10 and max tokens 10
+    And attempts of the client take "10, 10" ms
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the response should come from attempt 1
+    And the client should have been called 1 time
+
+  Scenario: POST is not hedged
+    Given a hedging capability with delay 10 ms, budget percent 10 and max tokens 10
+    And attempts of the client take "100, 10" ms
+    When a "POST" request of "UserClient#create(User)" is sent through the hedging capability
+    Then the response should come from attempt 1
+    And the client should have been called 1 time
+
+  Scenario: Hedges are limited by budget
+    Given a hedging capability with delay 10 ms, budget percent 0 and max tokens 1
+    And attempts of the client take "100, 10, 100, 10" ms
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    And a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the response should come from attempt 3
+    And the client should have been called 3 times
+
+  Scenario: Hedging is disabled per client
+    Given a hedging capability with delay 10 ms, budget percent 10 and max tokens 10, disabled for "UserClient"
+    And attempts of the client take "100, 10" ms
+    When a "GET" request of "UserClient#findById(String)" is sent through the hedging capability
+    Then the response should come from attempt 1
+    And the client should have been called 1 time
@@ -0,0 +1,29 @@
+@feign #@disabled
+Feature: Idempotency keys
+  POST requests get a key which is stable across retries, and the error decoder may retry POST requests having one
+
+  Scenario: Key is injected into POST requests and kept across attempts
+    Given an idempotency key injector
+    When the idempotency key injector is applied 3 times to a "POST" request template
+    Then the request template should have a UUID idempotency key
+    And the idempotency key should have been generated once
+
+  Scenario: Key is not injected into GET requests
+    Given an idempotency key injector
+    When the idempotency key injector is applied 1 time to a "GET" request template
+    Then the request template should have no idempotency key
+
+  Scenario: Key set by the caller is kept
+    Given an idempotency key injector
+    And a "POST" request template with header "idempotency-key" set to "order-42"
+    When the idempotency key injector is applied 2 times to the request template
+    Then the request template should have idempotency key "order-42"
+
+  Scenario Outline: Error decoder retries POST with idempotency key only if told the header name
+    When a POST request with idempotency key "<Key>" fails with status 503, decoder idempotency key header "<Header>"
+    Then the error decoder should treat the request as retryable: <Retryable>
+    Examples:
+      | Key      | Header          | Retryable |
+      | order-42 | Idempotency-Key | true      |
+      | order-42 | null            | false     |
+      | null     | Idempotency-Key | false     |
@@ -0,0 +1,34 @@
+@feign #@disabled
+Feature: Retry-After
+  Retry-After header should be parsed (both delay in seconds and HTTP-date) and passed to the retryer
+
+  Scenario Outline: Parsing Retry-After header values
+    When Retry-After "<Value>" is parsed at 1000000 epoch millis
+    Then the parsed Retry-After should be "<Epoch Millis>"
+    Examples:
+      | Value                          | Epoch Millis | Comment                                  |
+      | 120                            | 1120000      |                                          |
+      | 0                              | 1000000      |                                          |
+      | 12345678901                    | null         | too long                                 |
+      | 12a                            | null         |                                          |
+      | -5                             | null         |                                          |
+      | Sun, 06 Nov 1994 08:49:37 GMT  | 784111777000 | IMF-fixdate                              |
+      | Sun, 6 Nov 1994 08:49:37 GMT   | 784111777000 | RFC 1123 with 1-digit day                |
+      | Sun, 06 Foo 1994 08:49:37 GMT  | null         |                                          |
+      | Sun, 31 Nov 1994 08:49:37 GMT  | null         | no such date                             |
+      | Sunday, 06-Nov-94 08:49:37 GMT | null         | obsolete RFC 850 format is not supported |
+      | soon                           | null         |                                          |
+      |                                | null         |                                          |
+      | null                           | null         |                                          |
+
+  Scenario: Error decoder passes Retry-After to the retryer
+    When a "GET" request fails with status 429 and Retry-After "Sun, 06 Nov 1994 08:49:37 GMT"
+    Then the decoded exception should be retryable with retry after "784111777000"
+
+  Scenario: Error decoder leaves backoff to the retryer if there's no Retry-After
+    When a "GET" request fails with status 503 and Retry-After "null"
+    Then the decoded exception should be retryable with retry after "null"
+
+  Scenario: Error decoder doesn't retry POST without Retry-After
+    When a "POST" request fails with status 503 and Retry-After "null"
+    Then the decoded exception should not be retryable
@@ -0,0 +1,35 @@
+@feign #@disabled
+Feature: Retry budget
+  Retries to a service should not exceed a percentage of recent successful requests to it
+
+  Background:
+    Given a retry budget registry with retry percent 50 and max tokens 2
+
+  Scenario: Retries beyond the budget are rejected
+    When 3 retries to "http://user-service/users/1" are requested
+    Then 2 retries should have been permitted
+    And retry budget of service "user-service" should have 0.0 tokens, 2 permitted and 1 rejected retries
+
+  Scenario: Successful requests replenish the budget
+    Given 2 retries to "http://user-service/users/1" are requested
+    And 3 successful requests to "http://user-service/users/2" are recorded
+    When 3 retries to "http://user-service/users/3" are requested
+    Then 1 retry should have been permitted
+    And retry budget of service "user-service" should have 0.5 tokens, 3 permitted and 2 rejected retries
+
+  Scenario: Successful responses passed through the capability replenish the budget of their target
+    Given 2 retries to "http://user-service/users/1" are requested
+    And 3 successful responses from target "http://user-service" pass through the retry budget capability
+    When 3 retries to "http://user-service/users/3" are requested
+    Then 1 retry should have been permitted
+    And retry budget of service "user-service" should have 0.5 tokens, 3 permitted and 2 rejected retries
+
+  Scenario: Budget doesn't grow beyond max tokens
+    Given 100 successful requests to "http://user-service/users/1" are recorded
+    When 3 retries to "http://user-service/users/1" are requested
+    Then 2 retries should have been permitted
+
+  Scenario: Budgets are per service
+    Given 2 retries to "http://user-service/users/1" are requested
+    When 1 retry to "http://order-service:8080/orders" is requested
+    Then 1 retry should have been permitted
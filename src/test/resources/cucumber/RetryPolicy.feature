@@ -0,0 +1,48 @@
+@feign #@disabled
+Feature: Retry policies
+  Retry settings can be overridden per Feign client and per Feign method
+
+  Background:
+    Given retry settings with initial delay 100 ms, max. delay 1000 ms and 3 max. attempts
+    And client "UserClient" retry settings with initial delay 200 ms and 5 max. attempts
+    And method "findById(String)" retry settings of client "UserClient" with 7 max. attempts
+    And method "findAll" retry settings of client "UserClient" with max. delay 5000 ms
+    And a retry policy registry is created
+
+  Scenario Outline: Policies are resolved by config key
+    When retry policy of "<Config key>" is resolved
+    Then the retry policy should have period <Period>, maxPeriod <Max period> and maxAttempts <Max attempts>
+    Examples:
+      | Config key                       | Period | Max period | Max attempts |
+      | OrderClient#findById(String)     | 100    | 1000       | 3            |
+      | UserClient#delete(String)        | 200    | 1000       | 5            |
+      | UserClient#findById(String)      | 200    | 1000       | 7            |
+      | UserClient#findById(String,Long) | 200    | 1000       | 5            |
+      | UserClient#findAll(Pageable)     | 200    | 5000       | 5            |
+
+  Scenario: Unknown config key means the top-level policy
+    When retry policy of an unknown config key is resolved
+    Then the retry policy should have period 100, maxPeriod 1000 and maxAttempts 3
+
+  Scenario: Settings are updated at runtime
+    Given retry policy of "UserClient#findById(String)" is resolved
+    When retry settings are updated to initial delay 50 ms, max. delay 500 ms and 2 max. attempts
+    And retry policy of "UserClient#findById(String)" is resolved
+    Then the retry policy should have period 50, maxPeriod 500 and maxAttempts 2
+
+  Scenario: Invalid method settings are rejected up front, old settings are kept
+    When retry settings are updated with -1 max. attempts of method "findAll" of client "OrderClient"
+    Then an exception should be thrown
+    When retry policy of "UserClient#findById(String)" is resolved
+    Then the retry policy should have period 200, maxPeriod 1000 and maxAttempts 7
+
+  Scenario Outline: FeignRetryer applies the policy of the failed method
+    Given a FeignRetryer is created with the retry policy registry
+    When continueOrPropagate is called <Retries> times with a RetryableException of "<Config key>"
+    Then <Outcome>
+    Examples:
+      | Config key                   | Retries | Outcome                       |
+      | OrderClient#findById(String) | 2       | no exception should be thrown |
+      | OrderClient#findById(String) | 3       | an exception should be thrown |
+      | UserClient#findById(String)  | 6       | no exception should be thrown |
+      | UserClient#findById(String)  | 7       | an exception should be thrown |
@@ -0,0 +1,58 @@
+@feign #@disabled
+Feature: Streaming JSON masker
+  StreamingJsonMasker should mask values of sensitive JSON fields in a single pass, tolerating incomplete JSON and
+  stopping at the output limit
+
+  Background:
+    Given a streaming JSON masker with masked fields "password,token" and output limit 1000
+
+  Scenario: Scalar values of sensitive fields are masked
+    When the streaming JSON masker masks:
+      """
+      {"user": "bob", "password": "secret", "age": 42, "token": null}
+      """
+    Then the masked JSON should be:
+      """
+      {"user":"bob","password":"***","age":42,"token":"***"}
+      """
+    And the masked JSON should be complete: true
+
+  Scenario: Structured values of sensitive fields are masked, nested fields are masked too
+    When the streaming JSON masker masks:
+      """
+      [{"token": {"value": "abc", "expires": 3600}, "items": [1, 2]}, {"nested": {"Password": ["a", "b"]}}]
+      """
+    Then the masked JSON should be:
+      """
+      [{"token":"***","items":[1,2]},{"nested":{"Password":"***"}}]
+      """
+    And the masked JSON should be complete: true
+
+  Scenario: Incomplete JSON is masked up to the point where it breaks
+    When the streaming JSON masker masks:
+      """
+      {"user": "bob", "password": "sec
+      """
+    Then the masked JSON should be:
+      """
+      {"user":"bob","password":"***"
+      """
+
+  Scenario: Input which is not JSON is copied as-is
+    When the streaming JSON masker masks:
+      """
+      not a JSON
+      """
+    Then the masked JSON should be:
+      """
+      not a JSON
+      """
+
+  Scenario: Output is limited
+    Given a streaming JSON masker with masked fields "password" and output limit 10
+    When the streaming JSON masker masks:
+      """
+      {"description": "0123456789", "password": "secret"}
+      """
+    Then the masked JSON should be at most 10 characters long
+    And the masked JSON should be complete: false
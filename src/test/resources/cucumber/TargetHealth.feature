@@ -0,0 +1,42 @@
+@feign #@disabled
+Feature: Adaptive retry backoff
+  Backoff follows recent latency and error rate of the target service, and retries stop while the error rate is high
+
+  Background:
+    Given a target health registry with window 3, min. calls 4 and max. error percent 50
+
+  Scenario: Averages are exponentially weighted
+    Given calls to "http://user-service/users/1" are recorded: "100 ok, 200 ok, 300 failed"
+    Then target health of service "user-service" should have latency 225.0 ms and error rate 0.5
+
+  Scenario: Health is tracked per service
+    Given calls to "http://user-service/users/1" are recorded: "100 failed"
+    And calls to "http://order-service:8080/orders" are recorded: "50 ok"
+    Then target health of service "user-service" should have latency 100.0 ms and error rate 1.0
+    And target health of service "order-service" should have latency 50.0 ms and error rate 0.0
+
+  Scenario Outline: Backoff adapts to target health
+    Given calls to "http://user-service/users/1" are recorded: "<Calls>"
+    And a FeignRetryer with adaptive backoff is created with period 10, maxPeriod 1000 and maxAttempts 3
+    When continueOrPropagate is called <Retries> times with a RetryableException to "http://user-service/users/2"
+    Then <Outcome>
+    And the adaptive sleeps should be "<Sleeps>" ms
+    Examples:
+      | Calls                                      | Retries | Outcome                       | Sleeps   | Comment                  |
+      | 100 ok, 100 ok, 100 ok                     | 2       | no exception should be thrown | 10, 15   | too few calls to judge   |
+      | 100 ok, 100 ok, 100 ok, 100 ok             | 2       | no exception should be thrown | 100, 100 | at least average latency |
+      | 100 ok, 100 ok, 100 ok, 100 failed         | 1       | no exception should be thrown | 200      | grows with error rate    |
+      | 100 ok, 100 failed, 100 failed, 100 ok     | 1       | no exception should be thrown | 160      |                          |
+      | 100 ok, 100 failed, 100 failed, 100 failed | 1       | an exception should be thrown |          | error rate above 50%     |
+
+  Scenario Outline: Adapted backoff is randomized
+    Given calls to "http://user-service/users/1" are recorded: "100 ok, 100 ok, 100 ok, 100 ok"
+    And a FeignRetryer with adaptive backoff is created with period 10, maxPeriod 1000, maxAttempts 3 and jitter "<Jitter>"
+    When continueOrPropagate is called 1 times with a RetryableException to "http://user-service/users/2"
+    Then no exception should be thrown
+    And adaptive sleep 1 should be between <Min> and <Max> ms
+    Examples:
+      | Jitter       | Min | Max |
+      | FULL         | 0   | 100 |
+      | EQUAL        | 50  | 100 |
+      | DECORRELATED | 100 | 300 |